@@ -1,14 +1,25 @@
 package com.bytecoders.pharmaid;
 
 import com.bytecoders.pharmaid.security.JwtRequestFilter;
-import com.bytecoders.pharmaid.util.JwtUtils;
+import com.bytecoders.pharmaid.security.PublicEndpointMatcher;
+import com.bytecoders.pharmaid.util.BcryptPasswordHasher;
+import com.bytecoders.pharmaid.util.PasswordHasher;
+import com.bytecoders.pharmaid.util.PasswordHashingExecutor;
 import com.bytecoders.pharmaid.util.PasswordUtils;
+import com.bytecoders.pharmaid.util.Pbkdf2PasswordHasher;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -17,20 +28,80 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableWebSecurity
 public class AppConfig {
 
+  private static final String ACTUATOR_ROLE = "ACTUATOR";
+
   @Autowired
   private JwtRequestFilter jwtRequestFilter;
 
   @Autowired
-  private JwtUtils jwtUtils;
+  private PublicEndpointMatcher publicEndpointMatcher;
 
+  /**
+   * Password hashing on the bounded hashing pool, with the algorithm and its cost tunable per
+   * environment. Hashes of the other supported formats keep verifying and are upgraded on login.
+   *
+   * @param algorithm  target algorithm for new hashes, bcrypt or pbkdf2
+   * @param cost       BCrypt log2 work factor for new hashes
+   * @param iterations PBKDF2 iterations for new hashes
+   * @param executor   dedicated hashing pool
+   * @return the configured PasswordUtils
+   */
   @Bean
-  public PasswordUtils passwordUtils() {
-    return new PasswordUtils();
+  public PasswordUtils passwordUtils(
+      @Value("${pharmaid.password.algorithm:bcrypt}") String algorithm,
+      @Value("${pharmaid.password.bcrypt-cost:" + PasswordUtils.DEFAULT_COST + "}") int cost,
+      @Value("${pharmaid.password.pbkdf2-iterations:" + PasswordUtils.DEFAULT_PBKDF2_ITERATIONS
+          + "}") int iterations,
+      PasswordHashingExecutor executor) {
+    final PasswordHasher target = switch (algorithm) {
+      case "bcrypt" -> new BcryptPasswordHasher(cost);
+      case "pbkdf2" -> new Pbkdf2PasswordHasher(iterations);
+      default -> throw new IllegalArgumentException("Unknown password algorithm: " + algorithm);
+    };
+    return new PasswordUtils(target, executor);
+  }
+
+  /**
+   * Security filter chain of the Actuator endpoints (health, metrics, prometheus), ahead of the
+   * API chain. They expose the whole instance rather than one user's records, so user tokens do
+   * not open them; a scraper signs in with HTTP Basic as the single actuator account. Without a
+   * configured password the endpoints are closed.
+   *
+   * @param http         the HttpSecurity to configure
+   * @param username     actuator account name
+   * @param passwordHash actuator account password, encoded with its {id} prefix, e.g. {bcrypt}
+   * @return the configured SecurityFilterChain
+   * @throws Exception if an error occurs during configuration
+   */
+  @Bean
+  @Order(1)
+  public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http,
+      @Value("${pharmaid.actuator.username:metrics}") String username,
+      @Value("${pharmaid.actuator.password-hash:}") String passwordHash) throws Exception {
+    http.securityMatcher(EndpointRequest.toAnyEndpoint())
+        .csrf(csrf -> csrf.disable())
+        .authorizeHttpRequests(auth -> {
+          if (passwordHash.isBlank()) {
+            auth.anyRequest().denyAll();
+          } else {
+            auth.anyRequest().hasRole(ACTUATOR_ROLE);
+          }
+        })
+        .httpBasic(Customizer.withDefaults())
+        .sessionManagement(
+            session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+    if (!passwordHash.isBlank()) {
+      http.userDetailsService(new InMemoryUserDetailsManager(User.withUsername(username)
+          .password(passwordHash)
+          .roles(ACTUATOR_ROLE)
+          .build()));
+    }
+    return http.build();
   }
 
   /**
-   * Configure the security filter chain. Defines the endpoints that can be accessed without auth
-   * via requestMatchers().
+   * Configure the security filter chain. The endpoints that can be accessed without auth are
+   * defined by {@link PublicEndpointMatcher}, the same matcher used by {@link JwtRequestFilter}.
    *
    * @param http the HttpSecurity to configure
    * @return the configured SecurityFilterChain
@@ -39,7 +110,9 @@ public class AppConfig {
   @Bean
   public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
     http.csrf(csrf -> csrf.disable()).authorizeHttpRequests(auth -> {
-      auth.requestMatchers(jwtUtils.getPublicEndpoints()).permitAll();
+      auth.requestMatchers(publicEndpointMatcher).permitAll();
+      // completes streamed responses (e.g. exports) whose initial request was already authorized
+      auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
       auth.anyRequest().authenticated();
     }).sessionManagement(
         session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
@@ -0,0 +1,71 @@
+package com.bytecoders.pharmaid;
+
+import com.bytecoders.pharmaid.repository.model.Medication;
+import com.bytecoders.pharmaid.repository.model.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Config class for the Hibernate second-level cache of the read-mostly {@link User} and
+ * {@link Medication} entities, held in bounded Caffeine caches through JCache.
+ *
+ * <p>Changes made through Hibernate, including bulk JPQL updates and deletes, evict the cached
+ * entries. The cache is local to each instance, so the TTL bounds how long another instance may
+ * keep serving an entity that was changed elsewhere.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+  private static final List<String> REGIONS = List.of(User.CACHE_REGION, Medication.CACHE_REGION);
+
+  /**
+   * Enables the second-level cache, with every entity region bounded in size and age.
+   *
+   * @param enabled     whether entities are cached at all
+   * @param maximumSize maximum number of entities held per region
+   * @param ttlMillis   time in milliseconds an entity is kept after it was loaded
+   * @return customizer of the Hibernate settings
+   */
+  @Bean
+  public HibernatePropertiesCustomizer entityCacheCustomizer(
+      @Value("${pharmaid.entity-cache.enabled:true}") boolean enabled,
+      @Value("${pharmaid.entity-cache.maximum-size:10000}") long maximumSize,
+      @Value("${pharmaid.entity-cache.ttl-ms:60000}") long ttlMillis) {
+    return properties -> {
+      properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+      if (!enabled) {
+        return;
+      }
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+      properties.put(ConfigSettings.CACHE_MANAGER, cacheManager(maximumSize, ttlMillis));
+      // every region is created above, so a missing one is a mapping mistake
+      properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+    };
+  }
+
+  private static CacheManager cacheManager(long maximumSize, long ttlMillis) {
+    final CacheManager cacheManager =
+        Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+    final CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+    configuration.setMaximumSize(OptionalLong.of(maximumSize));
+    configuration.setExpireAfterWrite(OptionalLong.of(Duration.ofMillis(ttlMillis).toNanos()));
+    for (String region : REGIONS) {
+      // the provider's default manager outlives an application context, e.g. across tests
+      if (cacheManager.getCache(region) == null) {
+        cacheManager.createCache(region, configuration);
+      }
+    }
+    return cacheManager;
+  }
+}
@@ -1,23 +1,38 @@
 package com.bytecoders.pharmaid;
 
+import com.bytecoders.pharmaid.openapi.model.BulkPrescriptionResult;
 import com.bytecoders.pharmaid.openapi.model.CreatePrescriptionRequest;
 import com.bytecoders.pharmaid.openapi.model.LoginUserRequest;
 import com.bytecoders.pharmaid.openapi.model.LoginUserResponse;
 import com.bytecoders.pharmaid.openapi.model.RegisterUserRequest;
 import com.bytecoders.pharmaid.openapi.model.UpdatePrescriptionRequest;
+import com.bytecoders.pharmaid.repository.PrescriptionFilter;
 import com.bytecoders.pharmaid.repository.model.Medication;
 import com.bytecoders.pharmaid.repository.model.Prescription;
 import com.bytecoders.pharmaid.repository.model.User;
+import com.bytecoders.pharmaid.service.ExportFormat;
+import com.bytecoders.pharmaid.service.MedicationCatalog;
 import com.bytecoders.pharmaid.service.MedicationService;
+import com.bytecoders.pharmaid.service.PrescriptionExport;
 import com.bytecoders.pharmaid.service.PrescriptionService;
 import com.bytecoders.pharmaid.service.UserService;
+import com.bytecoders.pharmaid.util.KeysetPage;
+import io.micrometer.observation.annotation.Observed;
 import jakarta.validation.Valid;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -25,13 +40,20 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 
 /**
  * This class contains all the API routes for the system.
  */
 @RestController
+@Observed(name = "pharmaid.controller")
 public class PharmaidController {
 
   @Autowired
@@ -45,6 +67,8 @@ public class PharmaidController {
 
   private static final String USER_ID = "userId";
   private static final String PRESCRIPTION_ID = "prescriptionId";
+  private static final String LIMIT = "limit";
+  private static final String CURSOR = "cursor";
 
   /**
    * Basic warmup endpoint for App Engine.
@@ -80,6 +104,8 @@ public class PharmaidController {
       return new ResponseEntity<>(user, HttpStatus.CREATED);
     } catch (DataIntegrityViolationException e) {
       return new ResponseEntity<>("User already exists for this email", HttpStatus.BAD_REQUEST);
+    } catch (ResponseStatusException e) {
+      throw e; // e.g. 503 when the password hashing pool is saturated
     } catch (Exception e) {
       return new ResponseEntity<>("Something went wrong", HttpStatus.INTERNAL_SERVER_ERROR);
     }
@@ -89,21 +115,15 @@ public class PharmaidController {
    * Delete a user endpoint.
    *
    * @param userId user to delete
-   * @return a ResponseEntity with a success message if user is successfully deleted, or an error
-   *     message if the deletion is unsuccessful
+   * @return a ResponseEntity with 202 Accepted once the user is scheduled for deletion, or an
+   *     error message if the deletion is unsuccessful
    */
   @DeleteMapping(path = "/users/{userId}")
   public ResponseEntity<?> deleteUser(@PathVariable(USER_ID) String userId) {
     try {
-      // check if user exists
-      userService.getUser(userId);
-
-      for (Prescription p : prescriptionService.getPrescriptionsForUser(userId)) {
-        prescriptionService.deletePrescription(p.getId());
-      }
-
       userService.deleteUser(userId);
-      return new ResponseEntity<>("User deleted successfully", HttpStatus.OK);
+      // the user is gone from the API now; their records are purged in the background
+      return new ResponseEntity<>("User scheduled for deletion", HttpStatus.ACCEPTED);
     } catch (ResponseStatusException e) {
       throw e; // propagates to globalExceptionHandler
     } catch (Exception e) {
@@ -129,6 +149,8 @@ public class PharmaidController {
       }
       return new ResponseEntity<>(jwt.get(), HttpStatus.OK);
 
+    } catch (ResponseStatusException e) {
+      throw e; // e.g. 503 when the password hashing pool is saturated
     } catch (Exception e) {
       return new ResponseEntity<>("Unexpected error encountered during login",
           HttpStatus.INTERNAL_SERVER_ERROR);
@@ -136,16 +158,42 @@ public class PharmaidController {
   }
 
   /**
-   * Get all available medications endpoint.
+   * Get all available medications endpoint. Without paging parameters the whole catalog is served
+   * from the in-memory snapshot with its pre-serialized body, and clients revalidate with
+   * If-None-Match. With {@code limit} and/or {@code cursor} one keyset page is returned, and the
+   * next page is linked through a {@code Link: <...>; rel="next"} header.
    *
-   * @return a ResponseEntity with a list of medications if the operation is successful, or an
-   *     error message if an error occurred
+   * @param limit       page size, 1 to {@value KeysetPage#MAX_LIMIT}
+   * @param cursor      cursor from the previous page's next link
+   * @param ifNoneMatch ETag(s) of the catalog the client already holds, if any
+   * @return a ResponseEntity with a list of medications if the operation is successful, 304 if
+   *     the client's copy is current, or an error message if an error occurred
    */
   @GetMapping(path = "/medications")
-  public ResponseEntity<?> getAllMedications() {
+  public ResponseEntity<?> getAllMedications(
+      @RequestParam(value = LIMIT, required = false) Integer limit,
+      @RequestParam(value = CURSOR, required = false) String cursor,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     try {
-      final List<Medication> medications = medicationService.getAllMedications();
-      return new ResponseEntity<>(medications, HttpStatus.OK);
+      if (limit != null || cursor != null) {
+        final int pageSize = KeysetPage.checkLimit(limit);
+        final KeysetPage<Medication> page = medicationService.getMedicationsPage(cursor, pageSize);
+        return withNextLink(ResponseEntity.ok(), UriComponentsBuilder.fromPath("/medications"),
+            pageSize, page)
+            .body(page.items());
+      }
+
+      final MedicationCatalog catalog = medicationService.getCatalog();
+      if (catalog.isMatchedBy(ifNoneMatch)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(catalog.etag()).build();
+      }
+      return ResponseEntity.ok()
+          .eTag(catalog.etag())
+          .cacheControl(CacheControl.noCache())
+          .contentType(MediaType.APPLICATION_JSON)
+          .body(catalog.body());
+    } catch (ResponseStatusException e) {
+      throw e; // propagates to globalExceptionHandler
     } catch (Exception e) {
       return new ResponseEntity<>(
           "Unexpected error encountered during getting a list of medications",
@@ -153,6 +201,37 @@ public class PharmaidController {
     }
   }
 
+  /**
+   * Medication name autocomplete endpoint.
+   *
+   * @param query text typed so far
+   * @param limit maximum number of results, 1 to {@value MedicationService#SEARCH_MAX_LIMIT}
+   * @return a ResponseEntity with the best matching medications, or an error message if an error
+   *     occurred
+   */
+  @GetMapping(path = "/medications/search")
+  public ResponseEntity<?> searchMedications(
+      @RequestParam("q") String query,
+      @RequestParam(value = LIMIT, required = false) Integer limit) {
+    try {
+      if (query.isBlank()) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must not be blank");
+      }
+      final int maxResults = limit == null ? MedicationService.SEARCH_DEFAULT_LIMIT : limit;
+      if (maxResults < 1 || maxResults > MedicationService.SEARCH_MAX_LIMIT) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            String.format("limit must be between 1 and %d", MedicationService.SEARCH_MAX_LIMIT));
+      }
+      return new ResponseEntity<>(medicationService.searchMedications(query, maxResults),
+          HttpStatus.OK);
+    } catch (ResponseStatusException e) {
+      throw e; // propagates to globalExceptionHandler
+    } catch (Exception e) {
+      return new ResponseEntity<>("Unexpected error encountered while searching medications",
+          HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   /**
    * Add prescription endpoint.
    *
@@ -188,6 +267,40 @@ public class PharmaidController {
     }
   }
 
+  /**
+   * Bulk add prescriptions endpoint. Each item is validated on its own, so one bad item does not
+   * prevent the others from being created.
+   *
+   * @param userId   user to add prescriptions for
+   * @param requests prescriptions to create, 1 to {@value PrescriptionService#MAX_BULK_ITEMS}
+   * @return a ResponseEntity with one result per item, 201 if all were created or 207 if some
+   *     were rejected, or an error message if an error occurred
+   */
+  @PostMapping(path = "/users/{userId}/prescriptions/bulk")
+  public ResponseEntity<?> addPrescriptions(
+      @PathVariable(USER_ID) String userId,
+      @RequestBody List<CreatePrescriptionRequest> requests) {
+    try {
+      if (requests.isEmpty() || requests.size() > PrescriptionService.MAX_BULK_ITEMS) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format(
+            "Between 1 and %d prescriptions are required", PrescriptionService.MAX_BULK_ITEMS));
+      }
+      final User user = userService.getUser(userId);
+
+      final List<BulkPrescriptionResult> results =
+          prescriptionService.createPrescriptions(user, requests);
+      final boolean allCreated = results.stream()
+          .allMatch(result -> result.getStatus() == HttpStatus.CREATED.value());
+      return new ResponseEntity<>(results,
+          allCreated ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS);
+    } catch (ResponseStatusException e) {
+      throw e; // propagates to globalExceptionHandler
+    } catch (Exception e) {
+      return new ResponseEntity<>("Unexpected error encountered while creating prescriptions",
+          HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   /**
    * Endpoint to update a user's prescriptions.
    *
@@ -210,7 +323,8 @@ public class PharmaidController {
         return new ResponseEntity<>("Invalid update request", HttpStatus.BAD_REQUEST);
       }
 
-      if (user.equals(prescription.getUser())) {
+      // by ID, which the lazy owner reference holds without loading the user
+      if (user.getId().equals(prescription.getUser().getId())) {
         if (request.getEndDate() != null) {
           if (request.getEndDate().compareTo(prescription.getStartDate()) > 0) {
             prescription.setEndDate(request.getEndDate());
@@ -238,20 +352,46 @@ public class PharmaidController {
   }
 
   /**
-   * Endpoint to get user's prescriptions.
+   * Endpoint to get user's prescriptions, one keyset page at a time, most recently started first.
+   * Filters are applied by the database, and the next page is linked through a
+   * {@code Link: <...>; rel="next"} header that carries the same filters.
    *
-   * @param userId user whose prescriptions we're trying to retrieve
+   * @param userId       user whose prescriptions we're trying to retrieve
+   * @param isActive     only prescriptions with this active flag
+   * @param from         only prescriptions not ended before this day
+   * @param to           only prescriptions started on or before this day
+   * @param medicationId only prescriptions of this medication
+   * @param limit        page size, 1 to {@value KeysetPage#MAX_LIMIT}
+   * @param cursor       cursor from the previous page's next link
    * @return a ResponseEntity with user's prescriptions if the operation is successful, or an
    *     error message if an error occurred
    */
   @GetMapping(path = "/users/{userId}/prescriptions")
-  public ResponseEntity<?> getPrescriptionsForUser(@PathVariable(USER_ID) String userId) {
+  public ResponseEntity<?> getPrescriptionsForUser(
+      @PathVariable(USER_ID) String userId,
+      @RequestParam(value = "isActive", required = false) Boolean isActive,
+      @RequestParam(value = "from", required = false) @DateTimeFormat(iso = ISO.DATE)
+      LocalDate from,
+      @RequestParam(value = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+      @RequestParam(value = "medicationId", required = false) String medicationId,
+      @RequestParam(value = LIMIT, required = false) Integer limit,
+      @RequestParam(value = CURSOR, required = false) String cursor) {
     try {
+      final int pageSize = KeysetPage.checkLimit(limit);
+      final PrescriptionFilter filter = new PrescriptionFilter(isActive, from, to, medicationId);
+
       // check if user exists
       userService.getUser(userId);
 
-      return new ResponseEntity<>(prescriptionService.getPrescriptionsForUser(userId),
-          HttpStatus.OK);
+      final KeysetPage<Prescription> page =
+          prescriptionService.getPrescriptionsPage(userId, filter, cursor, pageSize);
+      final UriComponentsBuilder nextLink = UriComponentsBuilder.fromPath("/users")
+          .pathSegment(userId, "prescriptions")
+          .queryParamIfPresent("isActive", Optional.ofNullable(isActive))
+          .queryParamIfPresent("from", Optional.ofNullable(from))
+          .queryParamIfPresent("to", Optional.ofNullable(to))
+          .queryParamIfPresent("medicationId", Optional.ofNullable(medicationId));
+      return withNextLink(ResponseEntity.ok(), nextLink, pageSize, page).body(page.items());
     } catch (ResponseStatusException e) {
       throw e; // propagates to globalExceptionHandler
     } catch (Exception e) {
@@ -260,6 +400,53 @@ public class PharmaidController {
     }
   }
 
+  /**
+   * Endpoint to export a user's whole prescription history, most recently started first. The
+   * body is streamed from a database cursor as it is written, so the history is never held in
+   * memory at once.
+   *
+   * @param userId user whose prescriptions we're trying to export
+   * @param format {@code ndjson} (default) or {@code csv}
+   * @param request the current request, whose completion releases the export
+   * @return a ResponseEntity streaming the prescriptions if the operation is successful, or an
+   *     error message if an error occurred
+   */
+  @GetMapping(path = "/users/{userId}/prescriptions/export")
+  public ResponseEntity<?> exportPrescriptions(
+      @PathVariable(USER_ID) String userId,
+      @RequestParam(value = "format", required = false, defaultValue = "ndjson") String format,
+      NativeWebRequest request) {
+    try {
+      final ExportFormat exportFormat = ExportFormat.fromParameter(format);
+
+      // check if user exists
+      userService.getUser(userId);
+
+      final PrescriptionExport body =
+          prescriptionService.exportPrescriptions(userId, exportFormat);
+      // the body is never written if the task is rejected, or the client leaves or the request
+      // times out before it runs, so its slot is also released once the async request completes
+      WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(
+          PrescriptionExport.class, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+              body.release();
+            }
+          });
+      return ResponseEntity.ok()
+          .contentType(exportFormat.getMediaType())
+          .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+              .filename(String.format("prescriptions-%s.%s", userId, exportFormat.getExtension()))
+              .build().toString())
+          .body(body);
+    } catch (ResponseStatusException e) {
+      throw e; // propagates to globalExceptionHandler
+    } catch (Exception e) {
+      return new ResponseEntity<>("Unexpected error encountered while exporting user prescriptions",
+          HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   /**
    * Endpoint to remove a user's prescription.
    *
@@ -276,7 +463,8 @@ public class PharmaidController {
       final User user = userService.getUser(userId);
       final Prescription prescription = prescriptionService.getPrescription(prescriptionId);
 
-      if (user.equals(prescription.getUser())) {
+      // by ID, which the lazy owner reference holds without loading the user
+      if (user.getId().equals(prescription.getUser().getId())) {
         prescriptionService.deletePrescription(prescriptionId);
       } else {
         return new ResponseEntity<>("Provided prescription/user combination doesn't exist",
@@ -292,5 +480,16 @@ public class PharmaidController {
     }
   }
 
-
+  private static ResponseEntity.BodyBuilder withNextLink(ResponseEntity.BodyBuilder builder,
+      UriComponentsBuilder listing, int limit, KeysetPage<?> page) {
+    if (page.nextCursor() != null) {
+      final String next = listing
+          .queryParam(LIMIT, limit)
+          .queryParam(CURSOR, page.nextCursor())
+          .encode()
+          .toUriString();
+      builder.header(HttpHeaders.LINK, String.format("<%s>; rel=\"next\"", next));
+    }
+    return builder;
+  }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.bytecoders.pharmaid.openapi.model.ShareRequestStatus;
 import com.bytecoders.pharmaid.repository.model.SharedPermission;
 import com.bytecoders.pharmaid.service.SharedPermissionService;
 import com.bytecoders.pharmaid.util.JwtUtils;
+import io.micrometer.observation.annotation.Observed;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +21,7 @@ import org.springframework.web.server.ResponseStatusException;
 /** This class contains all the API routes for Shared Permission. */
 @Slf4j
 @RestController
+@Observed(name = "pharmaid.controller")
 public class ShareController {
 
   @Autowired
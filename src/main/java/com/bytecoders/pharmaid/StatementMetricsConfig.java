@@ -0,0 +1,39 @@
+package com.bytecoders.pharmaid;
+
+import com.bytecoders.pharmaid.repository.StatementMetrics;
+import com.bytecoders.pharmaid.repository.StatementTimingDataSource;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.function.SingletonSupplier;
+
+/** Config class for the per-statement latency metrics and slow-query log. */
+@Configuration
+public class StatementMetricsConfig {
+
+  /**
+   * Wraps the application DataSource so every statement execution is recorded by
+   * {@link StatementMetrics}. Static, as post-processors are created before other beans; the
+   * metrics are looked up when the first statement runs.
+   *
+   * @param metrics statement recorder
+   * @return the post-processor
+   */
+  @Bean
+  public static BeanPostProcessor statementTimingPostProcessor(
+      ObjectProvider<StatementMetrics> metrics) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource
+            && !(bean instanceof StatementTimingDataSource)) {
+          return new StatementTimingDataSource(dataSource,
+              SingletonSupplier.of(metrics::getObject));
+        }
+        return bean;
+      }
+    };
+  }
+}
@@ -0,0 +1,87 @@
+package com.bytecoders.pharmaid.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logs an alert while the connection pool is exhausted, that is while requests are waiting for a
+ * connection or have timed out waiting for one since the previous check.
+ *
+ * <p>The pool is sampled every {@code pool-check-ms}. A {@code pool_exhausted} line is logged at
+ * every check that finds it exhausted, and one {@code pool_recovered} line once it is not, both
+ * key=value so a log-based metric can alert on them. Timeouts are read from Hikari's
+ * {@value #TIMEOUT_METRIC} counter, so exhaustion that clears between two checks is still caught.
+ */
+@Slf4j
+@Component
+public class ConnectionPoolMonitor {
+
+  static final String TIMEOUT_METRIC = "hikaricp.connections.timeout";
+
+  private final DataSource dataSource;
+
+  private final MeterRegistry registry;
+
+  private double timeoutsSeen;
+
+  private boolean exhausted;
+
+  /**
+   * Creates the monitor.
+   *
+   * @param dataSource application DataSource; only a Hikari pool, possibly wrapped, is monitored
+   * @param registry   registry holding the pool's metrics
+   */
+  @Autowired
+  public ConnectionPoolMonitor(DataSource dataSource, MeterRegistry registry) {
+    this.dataSource = dataSource;
+    this.registry = registry;
+  }
+
+  /**
+   * Samples the pool and logs if it is exhausted or has just recovered.
+   */
+  @Scheduled(fixedDelayString = "${pharmaid.db.pool-check-ms:5000}")
+  public synchronized void check() {
+    final HikariDataSource hikari = hikari();
+    // not a Hikari pool, or not started yet
+    if (hikari == null || hikari.getHikariPoolMXBean() == null) {
+      return;
+    }
+    final HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+    final Counter counter = registry.find(TIMEOUT_METRIC).tag("pool", hikari.getPoolName())
+        .counter();
+    final double timeouts = counter == null ? 0 : counter.count();
+    final long newTimeouts = (long) (timeouts - timeoutsSeen);
+    timeoutsSeen = timeouts;
+    final int waiting = pool.getThreadsAwaitingConnection();
+
+    if (waiting > 0 || newTimeouts > 0) {
+      exhausted = true;
+      log.warn("pool_exhausted pool={} active={} idle={} max={} waiting={} timeouts={}",
+          hikari.getPoolName(), pool.getActiveConnections(), pool.getIdleConnections(),
+          hikari.getMaximumPoolSize(), waiting, newTimeouts);
+    } else if (exhausted) {
+      exhausted = false;
+      log.info("pool_recovered pool={} active={} idle={} max={}", hikari.getPoolName(),
+          pool.getActiveConnections(), pool.getIdleConnections(), hikari.getMaximumPoolSize());
+    }
+  }
+
+  private HikariDataSource hikari() {
+    try {
+      return dataSource.isWrapperFor(HikariDataSource.class)
+          ? dataSource.unwrap(HikariDataSource.class) : null;
+    } catch (SQLException e) {
+      return null;
+    }
+  }
+}
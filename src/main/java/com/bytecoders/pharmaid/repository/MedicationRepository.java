@@ -1,11 +1,32 @@
 package com.bytecoders.pharmaid.repository;
 
 import com.bytecoders.pharmaid.repository.model.Medication;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * JPA medications repository.
  */
-public interface MedicationRepository extends JpaRepository<Medication, String> {
+public interface MedicationRepository extends JpaRepository<Medication, UUID> {
 
+  @Query("SELECT m FROM Medication m ORDER BY m.medicationName, m.id")
+  List<Medication> findFirstPage(Pageable pageable);
+
+  /**
+   * Keyset page: medications sorted by (name, id) strictly after the given key. Served by the
+   * (medication_name, medication_id) index without an offset scan.
+   *
+   * @param name     name of the last medication on the previous page
+   * @param id       id of the last medication on the previous page
+   * @param pageable only the page size is used
+   * @return the next medications in (name, id) order
+   */
+  @Query("SELECT m FROM Medication m WHERE m.medicationName > :name "
+      + "OR (m.medicationName = :name AND m.id > :id) ORDER BY m.medicationName, m.id")
+  List<Medication> findPageAfter(@Param("name") String name, @Param("id") UUID id,
+      Pageable pageable);
 }
@@ -0,0 +1,94 @@
+package com.bytecoders.pharmaid.repository;
+
+import com.bytecoders.pharmaid.repository.model.Prescription;
+import com.bytecoders.pharmaid.util.ServiceUtils;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Optional filters for listing a user's prescriptions. Null fields are not applied.
+ *
+ * <p>{@code from} and {@code to} select prescriptions whose course overlaps the inclusive date
+ * range: started on or before {@code to} and not ended before {@code from}. Dates are UTC days,
+ * matching how prescription dates are deserialized. A {@code medicationId} that is not a UUID
+ * matches no prescription.
+ *
+ * @param isActive     only prescriptions with this active flag
+ * @param from         first day of the range
+ * @param to           last day of the range
+ * @param medicationId only prescriptions of this medication
+ */
+public record PrescriptionFilter(Boolean isActive, LocalDate from, LocalDate to,
+                                 String medicationId) {
+
+  public static final PrescriptionFilter NONE = new PrescriptionFilter(null, null, null, null);
+
+  /**
+   * Creates a filter.
+   *
+   * @throws ResponseStatusException 400 if {@code from} is after {@code to}
+   */
+  public PrescriptionFilter {
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+    }
+  }
+
+  /**
+   * Criteria selecting the given user's prescriptions that pass this filter.
+   *
+   * @param userId owner of the prescriptions
+   * @return the specification
+   */
+  public Specification<Prescription> forUser(UUID userId) {
+    Specification<Prescription> specification =
+        (root, query, builder) -> builder.equal(root.get("user").get("id"), userId);
+    if (medicationId != null) {
+      final Optional<UUID> medication = ServiceUtils.toUuid(medicationId);
+      specification = specification.and((root, query, builder) -> medication
+          .map(id -> builder.equal(root.get("medication").get("id"), id))
+          .orElseGet(builder::disjunction));
+    }
+    if (isActive != null) {
+      specification = specification.and((root, query, builder) ->
+          builder.equal(root.get("isActive"), isActive));
+    }
+    if (to != null) {
+      final Date endExclusive = startOfDay(to.plusDays(1));
+      specification = specification.and((root, query, builder) ->
+          builder.lessThan(root.get("startDate"), endExclusive));
+    }
+    if (from != null) {
+      final Date start = startOfDay(from);
+      specification = specification.and((root, query, builder) -> builder.or(
+          builder.isNull(root.get("endDate")),
+          builder.greaterThanOrEqualTo(root.get("endDate"), start)));
+    }
+    return specification;
+  }
+
+  /**
+   * Keyset condition for the listing order (start date descending, then id descending): rows
+   * strictly after the last row of the previous page.
+   *
+   * @param startDate start date of the last row on the previous page
+   * @param id        id of the last row on the previous page
+   * @return the specification
+   */
+  public static Specification<Prescription> after(Date startDate, UUID id) {
+    return (root, query, builder) -> builder.or(
+        builder.lessThan(root.get("startDate"), startDate),
+        builder.and(builder.equal(root.get("startDate"), startDate),
+            builder.lessThan(root.get("id"), id)));
+  }
+
+  private static Date startOfDay(LocalDate day) {
+    return Date.from(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+  }
+}
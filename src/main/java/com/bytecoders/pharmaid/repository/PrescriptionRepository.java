@@ -1,13 +1,86 @@
 package com.bytecoders.pharmaid.repository;
 
 import com.bytecoders.pharmaid.repository.model.Prescription;
+import jakarta.persistence.QueryHint;
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 /**
  * JPA prescriptions repository.
  */
-public interface PrescriptionRepository extends JpaRepository<Prescription, String> {
+public interface PrescriptionRepository extends JpaRepository<Prescription, UUID>,
+    JpaSpecificationExecutor<Prescription> {
 
-  List<Prescription> findAllByUserId(String userId);
-}
\ No newline at end of file
+  /**
+   * Listing order, most recently started first; served by the (user_id, start_date,
+   * prescription_id) index.
+   */
+  Sort PAGE_ORDER = Sort.by(Sort.Order.desc("startDate"), Sort.Order.desc("id"));
+
+  /**
+   * Forward-only cursor over a user's whole prescription history in {@link #PAGE_ORDER}, with
+   * medications fetched in the same statement. Rows are pulled from the database in batches of
+   * the fetch size rather than materialized up front; the stream must be consumed and closed
+   * inside a transaction.
+   *
+   * @param userId owner of the prescriptions
+   * @return the prescriptions
+   */
+  @QueryHints({
+      @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+  @Query("SELECT p FROM Prescription p JOIN FETCH p.medication WHERE p.user.id = :userId "
+      + "ORDER BY p.startDate DESC, p.id DESC")
+  Stream<Prescription> streamAllByUserId(@Param("userId") UUID userId);
+
+  /**
+   * Deletes up to {@code chunkSize} prescriptions of a user in one statement, without loading
+   * them, so each call holds row locks only briefly.
+   *
+   * @param userId    owner of the prescriptions
+   * @param chunkSize maximum number of prescriptions to delete
+   * @return number of prescriptions deleted; fewer than {@code chunkSize} once none are left
+   */
+  @Modifying
+  // names the table written, else Hibernate evicts every second-level cache region
+  @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "prescriptions"))
+  @Query(value = "DELETE FROM prescriptions WHERE prescription_id IN (SELECT prescription_id "
+      + "FROM prescriptions WHERE user_id = :userId LIMIT :chunkSize)", nativeQuery = true)
+  int deleteChunkByUserId(@Param("userId") UUID userId, @Param("chunkSize") int chunkSize);
+
+  /**
+   * Keyset page of a user's prescriptions in {@link #PAGE_ORDER}, filtered in the database and
+   * fetched together with their medications in a single statement.
+   *
+   * @param userId         owner of the prescriptions
+   * @param filter         filters to apply
+   * @param afterStartDate start date of the last row on the previous page, or null for the first
+   * @param afterId        id of the last row on the previous page, or null for the first
+   * @param maxRows        maximum number of rows to return
+   * @return the matching prescriptions
+   */
+  default List<Prescription> findPage(UUID userId, PrescriptionFilter filter,
+      Date afterStartDate, UUID afterId, int maxRows) {
+    // fetch-join medications, otherwise each distinct one is loaded by a select of its own
+    Specification<Prescription> specification = filter.forUser(userId)
+        .and((root, query, builder) -> {
+          root.fetch("medication");
+          return null;
+        });
+    if (afterId != null) {
+      specification = specification.and(PrescriptionFilter.after(afterStartDate, afterId));
+    }
+    return findBy(specification, query -> query.sortBy(PAGE_ORDER).limit(maxRows).all());
+  }
+}
@@ -4,14 +4,21 @@ import com.bytecoders.pharmaid.openapi.model.SharePermissionType;
 import com.bytecoders.pharmaid.openapi.model.ShareRequestStatus;
 import com.bytecoders.pharmaid.repository.model.SharedPermission;
 import com.bytecoders.pharmaid.repository.model.User;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /** Shared Permission Repository. */
 @Repository
-public interface SharedPermissionRepository extends JpaRepository<SharedPermission, String> {
+public interface SharedPermissionRepository extends JpaRepository<SharedPermission, UUID> {
 
 
   /**
@@ -40,4 +47,60 @@ public interface SharedPermissionRepository extends JpaRepository<SharedPermissi
       User requester,
       List<SharePermissionType> permissionTypes,
       List<ShareRequestStatus> statuses);
+
+  /**
+   * Resolves, in a single round trip, whether both users exist and the highest ACCEPTed
+   * {@link SharePermissionType} the requester holds over the owner's records. Works purely on IDs,
+   * so neither {@link User} has to be loaded. A user pending deletion counts as not existing.
+   *
+   * @param ownerId     owner of the health records
+   * @param requesterId user requesting access to the health records
+   * @return the resolution; {@link EffectivePermission#getPermissionType()} is null without access
+   */
+  @Query(value = """
+      SELECT
+        EXISTS (SELECT 1 FROM users WHERE user_id = :requesterId
+                  AND deletion_requested_at IS NULL) AS requesterExists,
+        EXISTS (SELECT 1 FROM users WHERE user_id = :ownerId
+                  AND deletion_requested_at IS NULL) AS ownerExists,
+        CASE
+          WHEN EXISTS (SELECT 1 FROM shared_permissions sp
+                       WHERE sp.owner_id = :ownerId AND sp.requester_id = :requesterId
+                         AND sp.share_request_status = 'ACCEPT'
+                         AND sp.share_permission_type = 'EDIT') THEN 'EDIT'
+          WHEN EXISTS (SELECT 1 FROM shared_permissions sp
+                       WHERE sp.owner_id = :ownerId AND sp.requester_id = :requesterId
+                         AND sp.share_request_status = 'ACCEPT'
+                         AND sp.share_permission_type = 'VIEW') THEN 'VIEW'
+        END AS permissionType
+      """, nativeQuery = true)
+  EffectivePermission resolveEffectivePermission(
+      @Param("ownerId") UUID ownerId, @Param("requesterId") UUID requesterId);
+
+  /**
+   * Deletes, in one statement, up to {@code chunkSize} share requests the user is part of, as
+   * owner or requester.
+   *
+   * @param userId    the user
+   * @param chunkSize maximum number of share requests to delete
+   * @return number of share requests deleted; fewer than {@code chunkSize} once none are left
+   */
+  @Modifying
+  // names the table written, else Hibernate evicts every second-level cache region
+  @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "shared_permissions"))
+  @Query(value = "DELETE FROM shared_permissions WHERE share_request_id IN (SELECT "
+      + "share_request_id FROM shared_permissions WHERE owner_id = :userId "
+      + "OR requester_id = :userId LIMIT :chunkSize)", nativeQuery = true)
+  int deleteChunkInvolvingUser(@Param("userId") UUID userId,
+      @Param("chunkSize") int chunkSize);
+
+  /** Projection returned by {@link #resolveEffectivePermission(UUID, UUID)}. */
+  interface EffectivePermission {
+
+    boolean getRequesterExists();
+
+    boolean getOwnerExists();
+
+    SharePermissionType getPermissionType();
+  }
 }
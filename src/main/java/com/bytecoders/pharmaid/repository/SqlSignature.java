@@ -0,0 +1,52 @@
+package com.bytecoders.pharmaid.repository;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shape of a SQL statement with every value taken out, shared by all executions that differ
+ * only in their values.
+ *
+ * <p>Bind parameters are never part of the SQL text, and literals written into it (quoted
+ * strings, numbers) are replaced by {@code ?}, so a signature carries no patient data and can be
+ * logged. IN lists of any length collapse to {@code (?)}.
+ *
+ * @param id        short hexadecimal hash of {@code sql}, for metric tags and log correlation
+ * @param operation leading keyword in lower case, e.g. select, insert, update, delete
+ * @param table     first table the statement reads or writes, or "unknown"
+ * @param sql       the normalized statement
+ */
+public record SqlSignature(String id, String operation, String table, String sql) {
+
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+  private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private static final Pattern TABLE =
+      Pattern.compile("\\b(?:from|into|update|join)\\s+([a-z_][a-z0-9_.]*)");
+
+  /**
+   * Normalizes a statement as sent to the JDBC driver.
+   *
+   * @param sql statement text, with bind parameters as {@code ?}
+   * @return its signature
+   */
+  public static SqlSignature of(String sql) {
+    String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+    normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+    normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    normalized = IN_LIST.matcher(normalized).replaceAll("(?)");
+
+    final String lower = normalized.toLowerCase(Locale.ROOT);
+    final int firstSpace = lower.indexOf(' ');
+    final String operation = firstSpace < 0 ? lower : lower.substring(0, firstSpace);
+    final Matcher table = TABLE.matcher(lower);
+    return new SqlSignature(Integer.toHexString(normalized.hashCode()), operation,
+        table.find() ? table.group(1) : "unknown", normalized);
+  }
+}
@@ -0,0 +1,160 @@
+package com.bytecoders.pharmaid.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency of every JDBC statement execution, by {@link SqlSignature}, a trace span for each one,
+ * and a log line for each one slower than {@code slow-query-threshold-ms}.
+ *
+ * <p>Executions are recorded in the {@value #METRIC_NAME} histogram tagged with the signature's
+ * id, operation and table. Past {@code max-signatures} distinct signatures, new ones share the
+ * "other" tag so a stream of ad hoc statements cannot grow the registry without bound.
+ *
+ * <p>The slow-query log and the spans carry the normalized SQL only: bind values and literals,
+ * which may be patient data, are never logged or exported.
+ */
+@Slf4j
+@Component
+public class StatementMetrics {
+
+  static final String METRIC_NAME = "pharmaid.jdbc.statement";
+
+  private static final String OTHER = "other";
+
+  private static final int STATEMENTS_PER_SIGNATURE = 4;
+
+  // fixed buckets rather than a percentile histogram's ~70, as there is a histogram per signature
+  private static final Duration[] BUCKETS = LongStream.of(1, 5, 10, 25, 50, 100, 250, 500, 1000,
+      2500, 5000, 10000).mapToObj(Duration::ofMillis).toArray(Duration[]::new);
+
+  private final MeterRegistry registry;
+
+  private final Tracer tracer;
+
+  private final Duration slowQueryThreshold;
+
+  private final int maxSignatures;
+
+  private final Map<String, SqlSignature> signatures = new ConcurrentHashMap<>();
+
+  private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the statement recorder.
+   *
+   * @param registry             registry the histograms are published to
+   * @param tracer               tracer the statement spans are started with
+   * @param slowQueryThresholdMs executions taking at least this long are logged
+   * @param maxSignatures        maximum number of signatures given a histogram of their own
+   */
+  @Autowired
+  public StatementMetrics(MeterRegistry registry, Tracer tracer,
+      @Value("${pharmaid.sql.slow-query-threshold-ms:500}") long slowQueryThresholdMs,
+      @Value("${pharmaid.sql.max-signatures:500}") int maxSignatures) {
+    this.registry = registry;
+    this.tracer = tracer;
+    this.slowQueryThreshold = Duration.ofMillis(slowQueryThresholdMs);
+    this.maxSignatures = maxSignatures;
+  }
+
+  /**
+   * Runs one statement execution in a child span of the current one, and records it.
+   *
+   * @param sql       statement text as prepared, with bind parameters as {@code ?}
+   * @param execution the driver call
+   * @return what the driver returned
+   * @throws Throwable whatever the driver threw
+   */
+  public Object execute(String sql, Execution execution) throws Throwable {
+    final SqlSignature signature = signature(sql);
+    final Span span = tracer.nextSpan()
+        .name(signature.operation() + " " + signature.table())
+        .tag("db.operation", signature.operation())
+        .tag("db.sql.table", signature.table())
+        .tag("db.statement", signature.sql())
+        .start();
+    final long start = System.nanoTime();
+    boolean failed = true;
+    try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+      final Object result = execution.run();
+      failed = false;
+      return result;
+    } catch (Throwable e) {
+      span.error(e);
+      throw e;
+    } finally {
+      span.end();
+      record(signature, System.nanoTime() - start, failed);
+    }
+  }
+
+  private void record(SqlSignature signature, long elapsedNanos, boolean failed) {
+    timer(signature).record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+    if (elapsedNanos >= slowQueryThreshold.toNanos()) {
+      log.warn("slow_query signature={} operation={} table={} duration_ms={} failed={} sql=\"{}\"",
+          signature.id(), signature.operation(), signature.table(),
+          TimeUnit.NANOSECONDS.toMillis(elapsedNanos), failed, signature.sql());
+    }
+  }
+
+  private SqlSignature signature(String sql) {
+    final SqlSignature cached = signatures.get(sql);
+    if (cached != null) {
+      return cached;
+    }
+    final SqlSignature signature = SqlSignature.of(sql);
+    // several texts can share a signature, e.g. IN lists of different lengths
+    if (signatures.size() < maxSignatures * STATEMENTS_PER_SIGNATURE) {
+      signatures.put(sql, signature);
+    }
+    return signature;
+  }
+
+  private Timer timer(SqlSignature signature) {
+    final Timer timer = timers.get(signature.id());
+    if (timer != null) {
+      return timer;
+    }
+    if (timers.size() >= maxSignatures) {
+      return timers.computeIfAbsent(OTHER, key -> register(OTHER, OTHER, OTHER));
+    }
+    return timers.computeIfAbsent(signature.id(),
+        key -> register(key, signature.operation(), signature.table()));
+  }
+
+  private Timer register(String signatureId, String operation, String table) {
+    return Timer.builder(METRIC_NAME)
+        .description("JDBC statement execution time by statement signature")
+        .tag("signature", signatureId)
+        .tag("operation", operation)
+        .tag("table", table)
+        .serviceLevelObjectives(BUCKETS)
+        .register(registry);
+  }
+
+  /** A JDBC driver call, such as {@code executeQuery}. */
+  @FunctionalInterface
+  public interface Execution {
+
+    /**
+     * Calls the driver.
+     *
+     * @return what the driver returned
+     * @throws Throwable whatever the driver threw
+     */
+    Object run() throws Throwable;
+  }
+}
@@ -0,0 +1,81 @@
+package com.bytecoders.pharmaid.repository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * DataSource whose statements run every execution through {@link StatementMetrics}, which times
+ * and traces it, whoever issues them (Hibernate, Flyway, JdbcTemplate).
+ *
+ * <p>Only the driver's execute call is timed; rows fetched afterwards from a result set are not.
+ * SQL passed to {@code addBatch} on a plain statement is not recorded. Spring Boot still finds the
+ * pool behind this wrapper, so the Hikari metrics are unaffected.
+ */
+public class StatementTimingDataSource extends DelegatingDataSource {
+
+  private final Supplier<StatementMetrics> metrics;
+
+  /**
+   * Wraps a DataSource.
+   *
+   * @param target  the DataSource handing out the connections, usually the pool
+   * @param metrics recorder of the executions, resolved when the first statement runs
+   */
+  public StatementTimingDataSource(DataSource target, Supplier<StatementMetrics> metrics) {
+    super(target);
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return timed(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return timed(super.getConnection(username, password));
+  }
+
+  private Connection timed(Connection connection) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+          final Object result = invoke(connection, method, args);
+          if (result instanceof Statement statement) {
+            // prepareStatement and prepareCall take the SQL first; createStatement has none yet
+            final String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+            return timed(statement, method.getReturnType(), sql);
+          }
+          return result;
+        });
+  }
+
+  private Object timed(Statement statement, Class<?> statementType, String preparedSql) {
+    return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] {statementType}, (proxy, method, args) -> {
+          if (!method.getName().startsWith("execute")) {
+            return invoke(statement, method, args);
+          }
+          final String sql = args != null && args.length > 0 && args[0] instanceof String text
+              ? text : preparedSql;
+          if (sql == null) {
+            return invoke(statement, method, args);
+          }
+          return metrics.get().execute(sql, () -> invoke(statement, method, args));
+        });
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
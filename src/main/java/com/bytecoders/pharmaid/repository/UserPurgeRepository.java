@@ -0,0 +1,76 @@
+package com.bytecoders.pharmaid.repository;
+
+import com.bytecoders.pharmaid.repository.model.UserPurge;
+import com.bytecoders.pharmaid.repository.model.UserPurge.Status;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * JPA user purge repository.
+ */
+public interface UserPurgeRepository extends JpaRepository<UserPurge, UUID> {
+
+  /**
+   * Purges in one of the given statuses that are due, oldest request first.
+   *
+   * @param statuses statuses to look for
+   * @param now      purges whose next attempt is after this are skipped
+   * @param limit    maximum number of purges to return
+   * @return the due purges
+   */
+  List<UserPurge> findByStatusInAndNextAttemptAtLessThanEqualOrderByRequestedAt(
+      Collection<Status> statuses, Date now, Limit limit);
+
+  long countByStatusIn(Collection<Status> statuses);
+
+  /**
+   * Claims a due purge, or a running one whose lease has expired, by marking it RUNNING until
+   * {@code leaseUntil}. The row lock taken by the update makes concurrent claims of the same
+   * purge wait for each other, and only the first one still finds it due.
+   *
+   * @return 1 if this caller won the purge, 0 if it is not due or was claimed by another
+   */
+  @Modifying
+  @Query("UPDATE UserPurge p SET p.status = RUNNING, p.nextAttemptAt = :leaseUntil "
+      + "WHERE p.userId = :userId AND p.status IN (PENDING, RUNNING) AND p.nextAttemptAt <= :now")
+  int claim(@Param("userId") UUID userId, @Param("now") Date now,
+      @Param("leaseUntil") Date leaseUntil);
+
+  /**
+   * Adds the rows removed by one chunk to a purge's progress counters and renews its lease.
+   *
+   * @return number of rows updated, 0 or 1
+   */
+  @Modifying
+  @Query("UPDATE UserPurge p SET p.prescriptionsDeleted = p.prescriptionsDeleted + :prescriptions, "
+      + "p.sharedPermissionsDeleted = p.sharedPermissionsDeleted + :sharedPermissions, "
+      + "p.nextAttemptAt = :leaseUntil WHERE p.userId = :userId")
+  int addProgress(@Param("userId") UUID userId, @Param("prescriptions") long prescriptions,
+      @Param("sharedPermissions") long sharedPermissions, @Param("leaseUntil") Date leaseUntil);
+
+  @Modifying
+  @Query("UPDATE UserPurge p SET p.status = :status, p.completedAt = :completedAt, "
+      + "p.lastError = NULL WHERE p.userId = :userId")
+  int markCompleted(@Param("userId") UUID userId, @Param("status") Status status,
+      @Param("completedAt") Date completedAt);
+
+  /**
+   * Records a failed attempt and either when to retry or, with status FAILED, that no retry
+   * follows.
+   *
+   * @return number of rows updated, 0 or 1
+   */
+  @Modifying
+  @Query("UPDATE UserPurge p SET p.attempts = :attempts, p.status = :status, "
+      + "p.nextAttemptAt = :nextAttemptAt, p.lastError = :lastError WHERE p.userId = :userId")
+  int recordFailure(@Param("userId") UUID userId, @Param("attempts") int attempts,
+      @Param("status") Status status, @Param("nextAttemptAt") Date nextAttemptAt,
+      @Param("lastError") String lastError);
+}
@@ -1,13 +1,57 @@
 package com.bytecoders.pharmaid.repository;
 
 import com.bytecoders.pharmaid.repository.model.User;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * JPA user repository.
  */
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, UUID> {
 
   Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+
+  /**
+   * Replaces a password hash only if it still holds the value it was verified against, so a
+   * background rehash never overwrites a password changed in the meantime.
+   *
+   * @return number of rows updated, 0 or 1
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE User u SET u.hashedPassword = :newHash "
+      + "WHERE u.id = :userId AND u.hashedPassword = :oldHash")
+  int replaceHashedPassword(@Param("userId") UUID userId, @Param("oldHash") String oldHash,
+      @Param("newHash") String newHash);
+
+  /**
+   * Flags a user as pending deletion unless already flagged. Clears the persistence context so
+   * later reads in the same transaction see the flag.
+   *
+   * @return number of rows updated, 0 or 1
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE User u SET u.deletionRequestedAt = :requestedAt "
+      + "WHERE u.id = :userId AND u.deletionRequestedAt IS NULL")
+  int markPendingDeletion(@Param("userId") UUID userId,
+      @Param("requestedAt") Date requestedAt);
+
+  @Query("SELECT u.id FROM User u WHERE u.deletionRequestedAt IS NOT NULL")
+  List<UUID> findIdsPendingDeletion();
+
+  /**
+   * Deletes a user in one statement, without loading it first.
+   *
+   * @return number of rows deleted, 0 or 1
+   */
+  @Modifying
+  @Query("DELETE FROM User u WHERE u.id = :userId")
+  int deleteUserById(@Param("userId") UUID userId);
+}
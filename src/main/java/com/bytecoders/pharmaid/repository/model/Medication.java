@@ -1,11 +1,15 @@
 package com.bytecoders.pharmaid.repository.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import java.util.UUID;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.UuidGenerator;
 
 /**
@@ -14,13 +18,17 @@ import org.hibernate.annotations.UuidGenerator;
 @Data
 @Entity
 @Table(name = "medications")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Medication.CACHE_REGION)
 public class Medication {
 
+  public static final String CACHE_REGION = "pharmaid.medications";
+
   @Id
   @UuidGenerator
   @JsonProperty
   @Column(name = "medication_id")
-  private String id;
+  private UUID id;
 
   @Column(name = "medication_name", nullable = false)
   @JsonProperty
@@ -4,14 +4,15 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.AssertTrue;
 import java.util.Date;
+import java.util.UUID;
 import lombok.Data;
-import org.hibernate.annotations.UuidGenerator;
 
 
 /**
@@ -23,12 +24,13 @@ import org.hibernate.annotations.UuidGenerator;
 public class Prescription {
 
   @Id
-  @UuidGenerator
+  @TimeOrderedId
   @JsonProperty
   @Column(name = "prescription_id")
-  private String id;
+  private UUID id;
 
-  @ManyToOne
+  // never serialized, so reads do not need to load it
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "user_id", nullable = false)
   @JsonIgnore
   private User user;
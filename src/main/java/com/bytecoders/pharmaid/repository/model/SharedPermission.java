@@ -10,8 +10,8 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import java.util.UUID;
 import lombok.Data;
-import org.hibernate.annotations.UuidGenerator;
 
 /** Shared permissions Table. */
 @Data
@@ -20,9 +20,9 @@ import org.hibernate.annotations.UuidGenerator;
 public class SharedPermission {
 
   @Id
-  @UuidGenerator
+  @TimeOrderedId
   @Column(name = "share_request_id")
-  private String id;
+  private UUID id;
 
   @ManyToOne
   @JoinColumn(name = "owner_id", nullable = false)
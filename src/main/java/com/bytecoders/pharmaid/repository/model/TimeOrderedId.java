@@ -0,0 +1,19 @@
+package com.bytecoders.pharmaid.repository.model;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Generates a {@link java.util.UUID} primary key ordered by creation time, for tables with a
+ * steady stream of inserts. Use in place of {@link org.hibernate.annotations.UuidGenerator}.
+ */
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface TimeOrderedId {
+}
@@ -0,0 +1,26 @@
+package com.bytecoders.pharmaid.repository.model;
+
+import com.bytecoders.pharmaid.util.UuidV7;
+import java.util.EnumSet;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+/**
+ * Assigns a {@link UuidV7} to an entity annotated with {@link TimeOrderedId} before it is
+ * inserted. Like {@code @UuidGenerator}, the ID is known without a round trip, so inserts can
+ * still be batched.
+ */
+public class TimeOrderedIdGenerator implements BeforeExecutionGenerator {
+
+  @Override
+  public Object generate(SharedSessionContractImplementor session, Object owner,
+      Object currentValue, EventType eventType) {
+    return UuidV7.next();
+  }
+
+  @Override
+  public EnumSet<EventType> getEventTypes() {
+    return EnumSet.of(EventType.INSERT);
+  }
+}
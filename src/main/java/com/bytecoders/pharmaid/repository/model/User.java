@@ -3,13 +3,18 @@ package com.bytecoders.pharmaid.repository.model;
 import com.bytecoders.pharmaid.openapi.model.UserType;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import java.util.Date;
+import java.util.UUID;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.UuidGenerator;
 
 /**
@@ -18,13 +23,17 @@ import org.hibernate.annotations.UuidGenerator;
 @Data
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 public class User {
 
+  public static final String CACHE_REGION = "pharmaid.users";
+
   @Id
   @UuidGenerator
   @JsonProperty
   @Column(name = "user_id")
-  private String id;
+  private UUID id;
 
   @Column(name = "email", nullable = false, unique = true)
   @JsonProperty
@@ -37,4 +46,15 @@ public class User {
   @Enumerated(EnumType.STRING)
   @Column(name = "user_type", nullable = false)
   private UserType userType;
-}
\ No newline at end of file
+
+  // set when deletion is requested; the account is unusable from then on until the background
+  // purge removes it
+  @Column(name = "deletion_requested_at")
+  @JsonIgnore
+  private Date deletionRequestedAt;
+
+  @JsonIgnore
+  public boolean isPendingDeletion() {
+    return deletionRequestedAt != null;
+  }
+}
@@ -0,0 +1,72 @@
+package com.bytecoders.pharmaid.repository.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.util.Date;
+import java.util.UUID;
+import lombok.Data;
+
+/**
+ * Model class to describe the "user_purges" table: progress of the background removal of a user
+ * whose deletion was requested. Rows are kept once completed, as a record of the deletion.
+ */
+@Data
+@Entity
+@Table(name = "user_purges")
+public class UserPurge {
+
+  /** Lifecycle of a purge. */
+  public enum Status {
+    PENDING, RUNNING, COMPLETED, FAILED
+  }
+
+  // no foreign key, the user row is gone once the purge completes
+  @Id
+  @Column(name = "user_id")
+  private UUID userId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "status", nullable = false)
+  private Status status;
+
+  @Column(name = "requested_at", nullable = false)
+  private Date requestedAt;
+
+  @Column(name = "next_attempt_at", nullable = false)
+  private Date nextAttemptAt;
+
+  @Column(name = "attempts", nullable = false)
+  private int attempts;
+
+  @Column(name = "prescriptions_deleted", nullable = false)
+  private long prescriptionsDeleted;
+
+  @Column(name = "shared_permissions_deleted", nullable = false)
+  private long sharedPermissionsDeleted;
+
+  @Column(name = "last_error", length = 1000)
+  private String lastError;
+
+  @Column(name = "completed_at")
+  private Date completedAt;
+
+  /**
+   * Creates the purge of a user, due immediately.
+   *
+   * @param userId      user to purge
+   * @param requestedAt when deletion was requested
+   * @return the new, unsaved purge
+   */
+  public static UserPurge pending(UUID userId, Date requestedAt) {
+    final UserPurge purge = new UserPurge();
+    purge.setUserId(userId);
+    purge.setStatus(Status.PENDING);
+    purge.setRequestedAt(requestedAt);
+    purge.setNextAttemptAt(requestedAt);
+    return purge;
+  }
+}
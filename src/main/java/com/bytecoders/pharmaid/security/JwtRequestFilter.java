@@ -1,6 +1,10 @@
 package com.bytecoders.pharmaid.security;
 
+import com.bytecoders.pharmaid.service.UserPurger;
+import com.bytecoders.pharmaid.util.JwtPrincipal;
 import com.bytecoders.pharmaid.util.JwtUtils;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -19,9 +23,24 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+  static final String OBSERVATION_NAME = "pharmaid.jwt";
+
   @Autowired
   private JwtUtils jwtUtils;
 
+  @Autowired
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @Autowired
+  private PublicEndpointMatcher publicEndpointMatcher;
+
+  @Autowired
+  private UserPurger userPurger;
+
+  // absent where observability is not auto-configured, e.g. in the web test slices
+  @Autowired(required = false)
+  private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
   /**
    * Filter incoming requests to authenticate users based on JWT token Auth header.
    *
@@ -37,24 +56,32 @@ public class JwtRequestFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
 
     // Skip JWT validation for public endpoints
-    String requestUri = request.getRequestURI();
-    for (String endpoint : jwtUtils.getPublicEndpoints()) {
-      if (requestUri.equals(endpoint)) {
-        chain.doFilter(request, response);
-        return;
-      }
+    if (publicEndpointMatcher.matches(request)) {
+      chain.doFilter(request, response);
+      return;
     }
 
     final String jwt = extractJwtFromHeader(request);
-    final String userId = extractUserIdFromJwt(jwt);
 
-    if (userId != null && isAuthenticationNull() && jwtUtils.isTokenValid(jwt, userId)) {
-      setUpAuthentication(userId, request);
+    if (jwt != null && isAuthenticationNull()) {
+      // its own span, ended before the chain runs so it holds the token check alone
+      Observation.createNotStarted(OBSERVATION_NAME, observationRegistry)
+          .observe(() -> authenticate(jwt, request));
     }
 
     chain.doFilter(request, response);
   }
 
+  private void authenticate(String jwt, HttpServletRequest request) {
+    // a single parse verifies the signature and expiry and yields the subject; repeat tokens
+    // are served from the cache when it is enabled
+    final JwtPrincipal principal = verifiedTokenCache.verify(jwt, jwtUtils::verifyToken);
+    // users pending deletion are rejected from the moment deletion is requested
+    if (principal.userId() != null && !userPurger.isPending(principal.userId())) {
+      setUpAuthentication(principal.userId(), request);
+    }
+  }
+
   /**
    * Extract JWT token from Auth header.
    *
@@ -69,18 +96,6 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     return null; // No valid JWT found
   }
 
-  /**
-   * Extracts the userId from JWT token to utilize in other JWT request methods.
-   *
-   * @return userId
-   */
-  public String extractUserIdFromJwt(String jwt) {
-    if (jwt != null) {
-      return jwtUtils.extractUserId(jwt);
-    }
-    return null;
-  }
-
   /**
    * Checks if the current SecurityContext has no authentication set.
    *
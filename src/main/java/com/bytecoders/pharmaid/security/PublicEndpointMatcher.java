@@ -0,0 +1,109 @@
+package com.bytecoders.pharmaid.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Immutable matcher for the endpoints that can be accessed without a JSON Web Token (JWT).
+ *
+ * <p>Built once at startup and shared by {@link JwtRequestFilter} and the security filter chain, so
+ * both agree on exactly which paths are public. Exact paths are looked up in a hash set; static
+ * asset directories are matched through a character trie of path prefixes.
+ */
+@Component
+public class PublicEndpointMatcher implements RequestMatcher {
+
+  private static final Set<String> EXACT_PATHS = Set.of(
+      "/hello",
+      "/login",
+      "/register",
+      "/pharmaid-api-docs",
+      "/pharmaid-api-docs/swagger-config",
+      "/pharmaid-api-docs-ui.html");
+
+  private static final List<String> PATH_PREFIXES = List.of("/swagger-ui/");
+
+  private final Set<String> exactPaths;
+
+  private final TrieNode prefixRoot = new TrieNode();
+
+  public PublicEndpointMatcher() {
+    this(EXACT_PATHS, PATH_PREFIXES);
+  }
+
+  PublicEndpointMatcher(Set<String> exactPaths, List<String> pathPrefixes) {
+    this.exactPaths = new HashSet<>(exactPaths);
+    for (String prefix : pathPrefixes) {
+      TrieNode node = prefixRoot;
+      for (int i = 0; i < prefix.length(); i++) {
+        node = node.childOrCreate(prefix.charAt(i));
+      }
+      node.terminal = true;
+    }
+  }
+
+  @Override
+  public boolean matches(HttpServletRequest request) {
+    return matches(request.getRequestURI());
+  }
+
+  /**
+   * Whether a request path is public.
+   *
+   * @param path request URI, without query string
+   * @return true if the path is listed exactly or falls under a public prefix
+   */
+  public boolean matches(String path) {
+    return path != null && (exactPaths.contains(path) || hasPublicPrefix(path));
+  }
+
+  private boolean hasPublicPrefix(String path) {
+    TrieNode node = prefixRoot;
+    for (int i = 0; i < path.length() && !node.terminal; i++) {
+      node = node.child(path.charAt(i));
+      if (node == null) {
+        return false;
+      }
+    }
+    return node.terminal;
+  }
+
+  /**
+   * Trie node keeping its few children in parallel arrays, so a lookup neither boxes the character
+   * nor hashes it.
+   */
+  private static final class TrieNode {
+
+    private char[] labels = new char[0];
+
+    private TrieNode[] children = new TrieNode[0];
+
+    private boolean terminal;
+
+    private TrieNode child(char label) {
+      for (int i = 0; i < labels.length; i++) {
+        if (labels[i] == label) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    private TrieNode childOrCreate(char label) {
+      TrieNode existing = child(label);
+      if (existing != null) {
+        return existing;
+      }
+      labels = Arrays.copyOf(labels, labels.length + 1);
+      children = Arrays.copyOf(children, children.length + 1);
+      labels[labels.length - 1] = label;
+      children[children.length - 1] = new TrieNode();
+      return children[children.length - 1];
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.bytecoders.pharmaid.security;
+
+import com.bytecoders.pharmaid.util.JwtPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional LRU cache of already verified JSON Web Tokens (JWT), keyed by the SHA-256 of the raw
+ * token so that tokens themselves are never held in memory.
+ *
+ * <p>An entry lives until the earlier of the token's own expiry and {@code max-ttl-ms}; the latter
+ * bounds how long another instance may keep accepting a token of a user deleted elsewhere. When
+ * disabled, every call falls through to the verifier.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+  static final String CACHE_NAME = "jwtVerifiedTokens";
+
+  private final boolean enabled;
+
+  private final Duration maxTtl;
+
+  private final Clock clock;
+
+  private final Cache<String, JwtPrincipal> cache;
+
+  /**
+   * Creates the verified-token cache.
+   *
+   * @param enabled     whether verified tokens are cached at all
+   * @param maximumSize maximum number of tokens held in memory
+   * @param maxTtlMillis upper bound in milliseconds on how long a verification is reused
+   */
+  @Autowired
+  public VerifiedTokenCache(
+      @Value("${security.jwt.cache.enabled:false}") boolean enabled,
+      @Value("${security.jwt.cache.maximum-size:50000}") long maximumSize,
+      @Value("${security.jwt.cache.max-ttl-ms:600000}") long maxTtlMillis) {
+    this(enabled, maximumSize, Duration.ofMillis(maxTtlMillis), Clock.systemUTC());
+  }
+
+  VerifiedTokenCache(boolean enabled, long maximumSize, Duration maxTtl, Clock clock) {
+    this.enabled = enabled;
+    this.maxTtl = maxTtl;
+    this.clock = clock;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new TokenExpiry())
+        .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+        .executor(Runnable::run)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns the cached verification of a token, verifying and caching it on a miss.
+   *
+   * <p>Exceptions thrown by the verifier (bad signature, expired, malformed) are propagated and
+   * nothing is cached.
+   *
+   * @param token    raw JWT from the Authorization header
+   * @param verifier full signature and expiry check, used on a miss or when caching is disabled
+   * @return the verified {@link JwtPrincipal}
+   */
+  public JwtPrincipal verify(String token, Function<String, JwtPrincipal> verifier) {
+    if (!enabled) {
+      return verifier.apply(token);
+    }
+
+    final String key = hash(token);
+    final JwtPrincipal principal = cache.get(key, k -> verifier.apply(token));
+    final Instant now = clock.instant();
+    if (principal.isExpired(now)) {
+      // expired between load and read; re-verify so the caller sees the verifier's error
+      cache.invalidate(key);
+      return verifier.apply(token);
+    }
+    return principal;
+  }
+
+  /**
+   * Drops every cached token belonging to a user, e.g. once the user is deleted.
+   *
+   * @param userId id of the token subject
+   */
+  public void invalidateUser(String userId) {
+    cache.asMap().values().removeIf(principal -> userId.equals(principal.userId()));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Hit, miss and eviction counters since startup.
+   *
+   * @return a snapshot of the cache statistics
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  /**
+   * Publishes the standard {@code cache.*} meters plus a {@code cache.hit.ratio} gauge.
+   *
+   * @param registry registry the meters are added to
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+        .tag("cache", CACHE_NAME)
+        .description("Fraction of requests served without verifying the JWT signature")
+        .register(registry);
+  }
+
+  /**
+   * Expires an entry at the token's own expiry or after {@code maxTtl}, whichever comes first.
+   */
+  private final class TokenExpiry implements Expiry<String, JwtPrincipal> {
+
+    @Override
+    public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+      Duration untilExpiry = Duration.between(clock.instant(), principal.expiresAt());
+      return Math.max(0, (untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl).toNanos());
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(
+        String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+
+  private static String hash(String token) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
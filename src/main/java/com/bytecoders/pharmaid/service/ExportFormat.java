@@ -0,0 +1,48 @@
+package com.bytecoders.pharmaid.service;
+
+import java.util.Locale;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Output formats of the prescription history export.
+ */
+public enum ExportFormat {
+  NDJSON(new MediaType("application", "x-ndjson"), "ndjson"),
+  CSV(new MediaType("text", "csv"), "csv");
+
+  private final MediaType mediaType;
+
+  private final String extension;
+
+  ExportFormat(MediaType mediaType, String extension) {
+    this.mediaType = mediaType;
+    this.extension = extension;
+  }
+
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  /**
+   * Parses the {@code format} request parameter.
+   *
+   * @param value parameter value, case-insensitive
+   * @return the format
+   * @throws ResponseStatusException 400 if the format is not supported
+   */
+  public static ExportFormat fromParameter(String value) {
+    for (ExportFormat format : values()) {
+      if (format.extension.equals(value.toLowerCase(Locale.ROOT))) {
+        return format;
+      }
+    }
+    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+        String.format("Unsupported export format: %s", value));
+  }
+}
@@ -0,0 +1,70 @@
+package com.bytecoders.pharmaid.service;
+
+import com.bytecoders.pharmaid.repository.model.Medication;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the medication catalog together with its pre-serialized JSON body, a
+ * strong ETag derived from that body and a name search index.
+ *
+ * @param medications the catalog entries
+ * @param body        the entries serialized as a JSON array
+ * @param etag        quoted strong entity tag, the base64url SHA-256 of {@code body}
+ * @param searchIndex autocomplete index over the entries' names
+ */
+public record MedicationCatalog(List<Medication> medications, byte[] body, String etag,
+    MedicationSearchIndex searchIndex) {
+
+  /**
+   * Serializes a catalog once, fingerprints the result and indexes the names.
+   *
+   * @param medications  the catalog entries
+   * @param objectMapper mapper used for HTTP responses
+   * @return the snapshot
+   * @throws JsonProcessingException if the entries cannot be serialized
+   */
+  public static MedicationCatalog of(List<Medication> medications, ObjectMapper objectMapper)
+      throws JsonProcessingException {
+    final byte[] body = objectMapper.writeValueAsBytes(medications);
+    return new MedicationCatalog(List.copyOf(medications), body, "\"" + fingerprint(body) + "\"",
+        MedicationSearchIndex.build(medications));
+  }
+
+  /**
+   * Whether an {@code If-None-Match} header value matches this snapshot, i.e. whether the client
+   * already holds the current catalog. Uses the weak comparison required for If-None-Match.
+   *
+   * @param ifNoneMatch raw header value, possibly null, {@code *} or a comma separated list
+   * @return true if a 304 Not Modified can be returned
+   */
+  public boolean isMatchedBy(String ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      String candidate = tag.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if ("*".equals(candidate) || etag.equals(candidate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String fingerprint(byte[] body) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package com.bytecoders.pharmaid.service;
+
+import com.bytecoders.pharmaid.repository.model.Medication;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable in-memory index over medication names for autocomplete.
+ *
+ * <p>Prefix matches come from a binary search over the sorted, normalized names, which acts as a
+ * flattened prefix trie without a node per character. When there are fewer prefix matches than
+ * requested, the remainder is filled with fuzzy matches: candidates sharing enough trigrams with
+ * the query are ranked by the edit distance between the query and the start of their name, so
+ * {@code ibuprfen} still finds Ibuprofen.
+ */
+public final class MedicationSearchIndex {
+
+  private static final int GRAM = 3;
+
+  private static final String PAD = "$$";
+
+  private static final int MIN_FUZZY_LENGTH = 3;
+
+  private static final int SHORT_QUERY_LENGTH = 5;
+
+  // longer queries are cut, keeping trigram counts within a byte
+  private static final int MAX_QUERY_LENGTH = 64;
+
+  private static final int[] NO_POSTINGS = new int[0];
+
+  private final Medication[] medications;
+
+  private final String[] names;
+
+  private final Map<String, int[]> postings;
+
+  private MedicationSearchIndex(Medication[] medications, String[] names,
+      Map<String, int[]> postings) {
+    this.medications = medications;
+    this.names = names;
+    this.postings = postings;
+  }
+
+  /**
+   * Builds the index.
+   *
+   * @param catalog medications to index
+   * @return the index
+   */
+  public static MedicationSearchIndex build(List<Medication> catalog) {
+    final Medication[] sorted = catalog.stream()
+        .filter(medication -> medication.getMedicationName() != null)
+        .sorted(Comparator.comparing((Medication m) -> normalize(m.getMedicationName()))
+            .thenComparing(Medication::getId, Comparator.nullsFirst(Comparator.naturalOrder())))
+        .toArray(Medication[]::new);
+    final String[] names = new String[sorted.length];
+    final Map<String, List<Integer>> grams = new HashMap<>();
+    for (int i = 0; i < sorted.length; i++) {
+      names[i] = normalize(sorted[i].getMedicationName());
+      for (String gram : trigrams(names[i])) {
+        grams.computeIfAbsent(gram, g -> new ArrayList<>()).add(i);
+      }
+    }
+
+    final Map<String, int[]> postings = new HashMap<>(grams.size() * 2);
+    grams.forEach((gram, ids) ->
+        postings.put(gram, ids.stream().mapToInt(Integer::intValue).toArray()));
+    return new MedicationSearchIndex(sorted, names, postings);
+  }
+
+  public int size() {
+    return medications.length;
+  }
+
+  /**
+   * Returns up to {@code limit} medications whose name starts with the query, in name order,
+   * followed by the closest fuzzy matches if there are not enough of them.
+   *
+   * @param query text typed so far, case-insensitive
+   * @param limit maximum number of results
+   * @return matching medications, best first
+   */
+  public List<Medication> search(String query, int limit) {
+    // cut once for both passes: the fuzzy pass counts every name outside the prefix range as at
+    // least one edit away, which only holds if both ranges come from the same query
+    final String normalized = truncate(normalize(query));
+    if (normalized.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+
+    final List<Medication> results = new ArrayList<>(limit);
+    final int first = lowerBound(normalized);
+    final int last = prefixEnd(normalized, first);
+    for (int i = first; i < last && results.size() < limit; i++) {
+      results.add(medications[i]);
+    }
+    if (results.size() < limit && normalized.length() >= MIN_FUZZY_LENGTH) {
+      for (int i : fuzzyMatches(normalized, limit - results.size(), first, last)) {
+        results.add(medications[i]);
+      }
+    }
+    return results;
+  }
+
+  private int lowerBound(String prefix) {
+    final int found = Arrays.binarySearch(names, prefix);
+    int index = found >= 0 ? found : -found - 1;
+    // binarySearch may land on any of several equal names
+    while (index > 0 && names[index - 1].equals(prefix)) {
+      index--;
+    }
+    return index;
+  }
+
+  /**
+   * End of the contiguous run of names starting at {@code from} that begin with the prefix.
+   */
+  private int prefixEnd(String prefix, int from) {
+    int low = from;
+    int high = names.length;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (names[middle].startsWith(prefix)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Closest names outside the prefix range [prefixFrom, prefixTo), by edit distance then name.
+   */
+  private List<Integer> fuzzyMatches(String query, int wanted, int prefixFrom, int prefixTo) {
+    final int maxEdits = query.length() <= SHORT_QUERY_LENGTH ? 1 : 2;
+    final Set<String> queryGrams = trigrams(query);
+    // one edit destroys at most GRAM trigrams
+    final int minShared = Math.max(1, queryGrams.size() - GRAM * maxEdits);
+
+    final byte[] shared = new byte[names.length];
+    for (String gram : queryGrams) {
+      for (int i : postings.getOrDefault(gram, NO_POSTINGS)) {
+        shared[i]++;
+      }
+    }
+
+    // names outside the prefix range are at least one edit away, so buckets[d - 1] holds the
+    // candidates at distance d; scanning in index order keeps each bucket sorted by name
+    final List<List<Integer>> buckets = new ArrayList<>(maxEdits);
+    for (int d = 0; d < maxEdits; d++) {
+      buckets.add(new ArrayList<>());
+    }
+    // only the first compared characters of a name affect its distance, and sorted neighbours
+    // often share them, so the previous candidate's distance can be reused
+    final int compared = query.length() + maxEdits;
+    int cap = maxEdits;
+    int lastComputed = -1;
+    int distance = 0;
+    for (int i = 0; i < names.length && buckets.get(0).size() < wanted; i++) {
+      if (shared[i] < minShared || i >= prefixFrom && i < prefixTo) {
+        continue;
+      }
+      if (lastComputed < 0 || !sameStart(names[lastComputed], names[i], compared)) {
+        distance = prefixEditDistance(query, names[i], cap);
+        lastComputed = i;
+      }
+      if (distance <= cap) {
+        buckets.get(distance - 1).add(i);
+        // once enough closer matches are known, farther ones can no longer make the cut
+        while (cap > 1 && countUpTo(buckets, cap - 1) >= wanted) {
+          cap--;
+        }
+      }
+    }
+
+    final List<Integer> matches = new ArrayList<>(wanted);
+    for (List<Integer> bucket : buckets) {
+      for (int i : bucket) {
+        if (matches.size() == wanted) {
+          return matches;
+        }
+        matches.add(i);
+      }
+    }
+    return matches;
+  }
+
+  private static String truncate(String query) {
+    return query.length() > MAX_QUERY_LENGTH ? query.substring(0, MAX_QUERY_LENGTH) : query;
+  }
+
+  private static boolean sameStart(String first, String second, int length) {
+    if (first.length() < length || second.length() < length) {
+      return first.equals(second);
+    }
+    return first.regionMatches(0, second, 0, length);
+  }
+
+  private static int countUpTo(List<List<Integer>> buckets, int distance) {
+    int count = 0;
+    for (int d = 0; d < distance; d++) {
+      count += buckets.get(d).size();
+    }
+    return count;
+  }
+
+  /**
+   * Smallest Levenshtein distance between the query and any prefix of the name whose length is
+   * within {@code maxEdits} of the query's, or {@code maxEdits + 1} as soon as it must exceed it.
+   */
+  static int prefixEditDistance(String query, String name, int maxEdits) {
+    final int columns = Math.min(name.length(), query.length() + maxEdits);
+    int[] previous = new int[columns + 1];
+    int[] current = new int[columns + 1];
+    for (int j = 0; j <= columns; j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= query.length(); i++) {
+      current[0] = i;
+      for (int j = 1; j <= columns; j++) {
+        final int substitution = query.charAt(i - 1) == name.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1),
+            previous[j - 1] + substitution);
+      }
+      int rowMinimum = current[0];
+      for (int j = 1; j <= columns; j++) {
+        rowMinimum = Math.min(rowMinimum, current[j]);
+      }
+      if (rowMinimum > maxEdits) {
+        return maxEdits + 1;
+      }
+      final int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    int best = Integer.MAX_VALUE;
+    for (int j = Math.max(0, query.length() - maxEdits); j <= columns; j++) {
+      best = Math.min(best, previous[j]);
+    }
+    return best;
+  }
+
+  private static Set<String> trigrams(String text) {
+    final String padded = PAD + text;
+    final Set<String> grams = new LinkedHashSet<>();
+    for (int i = 0; i + GRAM <= padded.length(); i++) {
+      grams.add(padded.substring(i, i + GRAM));
+    }
+    return grams;
+  }
+
+  private static String normalize(String text) {
+    return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+}
@@ -2,25 +2,129 @@ package com.bytecoders.pharmaid.service;
 
 import com.bytecoders.pharmaid.repository.MedicationRepository;
 import com.bytecoders.pharmaid.repository.model.Medication;
+import com.bytecoders.pharmaid.util.KeysetPage;
 import com.bytecoders.pharmaid.util.ServiceUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.annotation.Observed;
 import java.util.List;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 /**
  * Service operations around {@link com.bytecoders.pharmaid.repository.model.Medication}.
  */
+@Slf4j
 @Service
+@Observed(name = "pharmaid.service")
 public class MedicationService {
 
+  public static final int SEARCH_DEFAULT_LIMIT = 10;
+
+  public static final int SEARCH_MAX_LIMIT = 50;
+
   @Autowired
   private MedicationRepository medicationRepository;
 
   @Autowired
   private ServiceUtils serviceUtils;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  private volatile MedicationCatalog catalog;
+
   public List<Medication> getAllMedications() {
-    return medicationRepository.findAll();
+    return getCatalog().medications();
+  }
+
+  /**
+   * Returns the in-memory catalog snapshot, loading it on first use.
+   *
+   * @return the current {@link MedicationCatalog}
+   */
+  public MedicationCatalog getCatalog() {
+    MedicationCatalog current = catalog;
+    if (current == null) {
+      synchronized (this) {
+        current = catalog;
+        if (current == null) {
+          current = loadCatalog();
+          catalog = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Loads the catalog and its search index at startup rather than on the first request.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmCatalog() {
+    refreshCatalog();
+  }
+
+  /**
+   * Reloads the catalog from the database, periodically and whenever medications change. On
+   * failure the previous snapshot keeps being served.
+   */
+  @Scheduled(fixedDelayString = "${pharmaid.medication-catalog.refresh-ms:300000}",
+      initialDelayString = "${pharmaid.medication-catalog.refresh-ms:300000}")
+  public void refreshCatalog() {
+    try {
+      final MedicationCatalog refreshed = loadCatalog();
+      synchronized (this) {
+        catalog = refreshed;
+      }
+    } catch (RuntimeException e) {
+      log.error("Failed to refresh the medication catalog, serving the previous snapshot", e);
+    }
+  }
+
+  private MedicationCatalog loadCatalog() {
+    try {
+      return MedicationCatalog.of(medicationRepository.findAll(), objectMapper);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to serialize the medication catalog", e);
+    }
+  }
+
+  /**
+   * Autocomplete search over medication names: prefix matches first, then close misspellings.
+   *
+   * @param query text typed so far
+   * @param limit maximum number of results, already validated
+   * @return best matches first
+   */
+  public List<Medication> searchMedications(String query, int limit) {
+    return getCatalog().searchIndex().search(query, limit);
+  }
+
+  /**
+   * Returns one page of medications in (name, id) order.
+   *
+   * @param cursor cursor returned with the previous page, or null for the first page
+   * @param limit  page size, already validated
+   * @return the page and the cursor of the next one
+   */
+  public KeysetPage<Medication> getMedicationsPage(String cursor, int limit) {
+    final Pageable pageable = PageRequest.of(0, limit + 1);
+    final List<Medication> rows;
+    if (cursor == null) {
+      rows = medicationRepository.findFirstPage(pageable);
+    } else {
+      final String[] key = KeysetPage.decodeCursor(cursor, 2);
+      rows = medicationRepository.findPageAfter(key[0], KeysetPage.parseId(key[1]), pageable);
+    }
+    return KeysetPage.of(rows, limit,
+        medication -> new String[]{medication.getMedicationName(), medication.getId().toString()});
   }
 
   /**
@@ -31,4 +135,4 @@ public class MedicationService {
   public Medication getMedication(String medicationId) {
     return serviceUtils.findEntityById(medicationId, "medication", medicationRepository);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package com.bytecoders.pharmaid.service;
+
+/**
+ * Effective access level a requester holds over another user's health records.
+ */
+public enum PermissionLevel {
+  NONE,
+  VIEW,
+  EDIT;
+
+  public boolean canView() {
+    return this != NONE;
+  }
+
+  public boolean canEdit() {
+    return this == EDIT;
+  }
+}
@@ -0,0 +1,50 @@
+package com.bytecoders.pharmaid.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Response body of one prescription history export, holding an export slot of the
+ * {@link PrescriptionExporter} from creation until {@link #release()}.
+ *
+ * <p>Writing the body releases the slot when done. The body may also never be written, e.g. if
+ * the client disconnects or the request times out first, so whoever hands it to the response must
+ * release it once the request completes as well; only the first release gives the slot back.
+ */
+public class PrescriptionExport implements StreamingResponseBody {
+
+  private final PrescriptionExporter exporter;
+
+  private final UUID userId;
+
+  private final ExportFormat format;
+
+  private final AtomicBoolean released = new AtomicBoolean();
+
+  PrescriptionExport(PrescriptionExporter exporter, UUID userId, ExportFormat format) {
+    this.exporter = exporter;
+    this.userId = userId;
+    this.format = format;
+  }
+
+  @Override
+  public void writeTo(OutputStream output) throws IOException {
+    try {
+      exporter.write(userId, format, output);
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Gives the export slot back, unless that has already been done.
+   */
+  public void release() {
+    if (released.compareAndSet(false, true)) {
+      exporter.release();
+    }
+  }
+}
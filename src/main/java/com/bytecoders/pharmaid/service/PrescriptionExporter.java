@@ -0,0 +1,163 @@
+package com.bytecoders.pharmaid.service;
+
+import com.bytecoders.pharmaid.repository.PrescriptionRepository;
+import com.bytecoders.pharmaid.repository.model.Prescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Writes a user's whole prescription history to an output stream.
+ *
+ * <p>Rows come from a forward-only database cursor and are detached once written, so memory use
+ * stays flat however long the history is. Output is flushed every {@value #FLUSH_EVERY} rows so
+ * clients start receiving data before the export completes.
+ *
+ * <p>The cursor holds a pooled connection until the client has read the last row, for up to the
+ * async request timeout, so at most {@code max-concurrent} exports run at once per instance and
+ * the rest of the pool stays with ordinary requests.
+ */
+@Component
+public class PrescriptionExporter {
+
+  static final String CSV_HEADER =
+      "prescriptionId,medicationId,medicationName,dosage,numOfDoses,startDate,endDate,isActive";
+
+  private static final int FLUSH_EVERY = 500;
+
+  private static final DateTimeFormatter CSV_DATE =
+      DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneOffset.UTC);
+
+  private final Semaphore slots;
+
+  @Autowired
+  private PrescriptionRepository prescriptionRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Creates the exporter.
+   *
+   * @param maxConcurrent exports allowed to stream at once
+   */
+  @Autowired
+  public PrescriptionExporter(@Value("${pharmaid.export.max-concurrent:2}") int maxConcurrent) {
+    this.slots = new Semaphore(maxConcurrent);
+  }
+
+  /**
+   * Takes one of the export slots, to be given back with {@link #release()} once the export has
+   * been written or has failed.
+   *
+   * @throws ResponseStatusException 503 if all slots are taken
+   */
+  public void acquire() {
+    if (!slots.tryAcquire()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+          "Too many exports in progress, retry later");
+    }
+  }
+
+  /**
+   * Gives back a slot taken with {@link #acquire()}.
+   */
+  public void release() {
+    slots.release();
+  }
+
+  /**
+   * Streams the prescriptions of a user, most recently started first. Does not close the output.
+   *
+   * @param userId owner of the prescriptions
+   * @param format NDJSON, one API-shaped prescription per line, or CSV with a header row
+   * @param output destination
+   * @return number of prescriptions written
+   * @throws IOException if writing to the output fails, e.g. the client disconnected
+   */
+  @Transactional(readOnly = true)
+  public long write(UUID userId, ExportFormat format, OutputStream output) throws IOException {
+    final Writer writer =
+        new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    final ObjectWriter json = objectMapper.writerFor(Prescription.class);
+    if (format == ExportFormat.CSV) {
+      writer.write(CSV_HEADER);
+      writer.write('\n');
+    }
+
+    long rows = 0;
+    try (Stream<Prescription> prescriptions =
+             prescriptionRepository.streamAllByUserId(userId)) {
+      final Iterator<Prescription> iterator = prescriptions.iterator();
+      while (iterator.hasNext()) {
+        final Prescription prescription = iterator.next();
+        writer.write(format == ExportFormat.CSV
+            ? toCsvRow(prescription) : json.writeValueAsString(prescription));
+        writer.write('\n');
+        // written rows are never needed again; keeps the persistence context from growing
+        entityManager.detach(prescription);
+        rows++;
+        if (rows % FLUSH_EVERY == 0) {
+          writer.flush();
+        }
+      }
+    }
+    writer.flush();
+    return rows;
+  }
+
+  private static String toCsvRow(Prescription prescription) {
+    return String.join(",",
+        csvField(prescription.getId().toString()),
+        csvField(prescription.getMedication().getId().toString()),
+        csvField(prescription.getMedication().getMedicationName()),
+        Integer.toString(prescription.getDosage()),
+        Integer.toString(prescription.getNumOfDoses()),
+        csvDate(prescription.getStartDate()),
+        csvDate(prescription.getEndDate()),
+        prescription.getIsActive() == null ? "" : prescription.getIsActive().toString());
+  }
+
+  private static String csvDate(Date date) {
+    // java.sql.Date rejects toInstant(), so go through the epoch value
+    return date == null ? "" : CSV_DATE.format(Instant.ofEpochMilli(date.getTime()));
+  }
+
+  /**
+   * Quotes a field per RFC 4180 when it contains a separator, quote or line break.
+   */
+  static String csvField(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
@@ -1,13 +1,31 @@
 package com.bytecoders.pharmaid.service;
 
+import com.bytecoders.pharmaid.openapi.model.BulkPrescriptionResult;
+import com.bytecoders.pharmaid.openapi.model.CreatePrescriptionRequest;
+import com.bytecoders.pharmaid.repository.MedicationRepository;
+import com.bytecoders.pharmaid.repository.PrescriptionFilter;
 import com.bytecoders.pharmaid.repository.PrescriptionRepository;
+import com.bytecoders.pharmaid.repository.model.Medication;
 import com.bytecoders.pharmaid.repository.model.Prescription;
+import com.bytecoders.pharmaid.repository.model.User;
 import com.bytecoders.pharmaid.util.JwtUtils;
+import com.bytecoders.pharmaid.util.KeysetPage;
 import com.bytecoders.pharmaid.util.ServiceUtils;
+import io.micrometer.observation.annotation.Observed;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 
 /**
@@ -15,8 +33,11 @@ import org.springframework.stereotype.Service;
  */
 @Slf4j
 @Service
+@Observed(name = "pharmaid.service")
 public class PrescriptionService {
 
+  public static final int MAX_BULK_ITEMS = 500;
+
   @Autowired
   private PrescriptionRepository prescriptionRepository;
 
@@ -29,6 +50,12 @@ public class PrescriptionService {
   @Autowired
   private ServiceUtils serviceUtils;
 
+  @Autowired
+  private PrescriptionExporter prescriptionExporter;
+
+  @Autowired
+  private MedicationRepository medicationRepository;
+
   /**
    * Create a new prescription.
    *
@@ -38,11 +65,124 @@ public class PrescriptionService {
   public Prescription createPrescription(Prescription prescription) {
     // check if user has permissions to create a prescription
     permissionValidator.validateEditPermission(jwtUtils.getLoggedInUserId(),
-        prescription.getUser().getId());
+        prescription.getUser().getId().toString());
 
     return prescriptionRepository.save(prescription);
   }
 
+  /**
+   * Create many prescriptions for one user in a single transaction. Edit permission is checked
+   * once, all medications are resolved in one query, and the valid items are inserted in JDBC
+   * batches. Items that fail validation or reference an unknown medication are reported in their
+   * result and skipped.
+   *
+   * @param user     owner of the new prescriptions
+   * @param requests items to create, at most {@value #MAX_BULK_ITEMS}
+   * @return one result per item, in request order
+   */
+  @Transactional
+  public List<BulkPrescriptionResult> createPrescriptions(User user,
+      List<CreatePrescriptionRequest> requests) {
+    // check if user has permissions to create prescriptions
+    permissionValidator.validateEditPermission(jwtUtils.getLoggedInUserId(),
+        user.getId().toString());
+
+    final Set<UUID> medicationIds = new HashSet<>();
+    for (CreatePrescriptionRequest request : requests) {
+      if (request != null) {
+        ServiceUtils.toUuid(request.getMedicationId()).ifPresent(medicationIds::add);
+      }
+    }
+    final Map<UUID, Medication> medications = new HashMap<>();
+    for (Medication medication : medicationRepository.findAllById(medicationIds)) {
+      medications.put(medication.getId(), medication);
+    }
+
+    final List<BulkPrescriptionResult> results = new ArrayList<>(requests.size());
+    final List<Prescription> prescriptions = new ArrayList<>(requests.size());
+    final List<BulkPrescriptionResult> created = new ArrayList<>(requests.size());
+    for (int index = 0; index < requests.size(); index++) {
+      final BulkPrescriptionResult result = new BulkPrescriptionResult();
+      result.setIndex(index);
+      results.add(result);
+
+      final CreatePrescriptionRequest request = requests.get(index);
+      final String invalid = describeViolations(request);
+      if (invalid != null) {
+        result.setStatus(HttpStatus.BAD_REQUEST.value());
+        result.setError(invalid);
+        continue;
+      }
+      // an ID that is not a UUID is reported like an unknown one
+      final Medication medication =
+          ServiceUtils.toUuid(request.getMedicationId()).map(medications::get).orElse(null);
+      if (medication == null) {
+        result.setStatus(HttpStatus.NOT_FOUND.value());
+        result.setError(serviceUtils.entityNotFound("medication", request.getMedicationId())
+            .getReason());
+        continue;
+      }
+      prescriptions.add(toPrescription(user, medication, request));
+      created.add(result);
+    }
+
+    // ids are generated before insert (@TimeOrderedId), so the inserts can be batched
+    prescriptionRepository.saveAll(prescriptions);
+    prescriptionRepository.flush();
+    for (int i = 0; i < prescriptions.size(); i++) {
+      created.get(i).setStatus(HttpStatus.CREATED.value());
+      created.get(i).setPrescriptionId(prescriptions.get(i).getId().toString());
+    }
+    return results;
+  }
+
+  /**
+   * Why a bulk item cannot be created, or null if it is valid. The generated request model
+   * carries no bean validation constraints, so required fields are checked here.
+   */
+  private static String describeViolations(CreatePrescriptionRequest request) {
+    if (request == null) {
+      return "Item must not be null";
+    }
+    final List<String> missing = new ArrayList<>();
+    if (request.getMedicationId() == null) {
+      missing.add("medicationId");
+    }
+    if (request.getDosage() == null) {
+      missing.add("dosage");
+    }
+    if (request.getNumOfDoses() == null) {
+      missing.add("numOfDoses");
+    }
+    if (request.getStartDate() == null) {
+      missing.add("startDate");
+    }
+    if (request.getIsActive() == null) {
+      missing.add("isActive");
+    }
+    if (!missing.isEmpty()) {
+      return "Missing required fields: " + String.join(", ", missing);
+    }
+    if (request.getEndDate() != null
+        && request.getEndDate().compareTo(request.getStartDate()) <= 0) {
+      return "Invalid end date";
+    }
+    return null;
+  }
+
+  private static Prescription toPrescription(User user, Medication medication,
+      CreatePrescriptionRequest request) {
+    final Prescription prescription = new Prescription();
+    prescription.setUser(user);
+    prescription.setMedication(medication);
+    prescription.setDosage(request.getDosage());
+    prescription.setNumOfDoses(request.getNumOfDoses());
+    prescription.setStartDate(request.getStartDate());
+    prescription.setEndDate(request.getEndDate());
+    prescription.setIsActive(request.getIsActive());
+    return prescription;
+  }
+
   /**
    * Update an existing prescription.
    *
@@ -52,7 +192,7 @@ public class PrescriptionService {
   public Prescription updatePrescription(Prescription prescription) {
     // check if user has permissions to update a prescription
     permissionValidator.validateEditPermission(jwtUtils.getLoggedInUserId(),
-        prescription.getUser().getId());
+        prescription.getUser().getId().toString());
 
     return prescriptionRepository.save(prescription);
   }
@@ -72,20 +212,64 @@ public class PrescriptionService {
    * @param prescriptionId the prescription ID
    */
   public void deletePrescription(String prescriptionId) {
-    if (getPrescription(prescriptionId) != null) {
-      prescriptionRepository.deleteById(prescriptionId);
+    final Prescription prescription = getPrescription(prescriptionId);
+    if (prescription != null) {
+      prescriptionRepository.deleteById(prescription.getId());
+      serviceUtils.forgetEntity(prescription.getId(), "prescription");
     }
   }
 
   /**
-   * Retrieve a list of provided user's prescriptions.
+   * Retrieve one keyset page of provided user's prescriptions, most recently started first.
    *
    * @param userId the user ID
+   * @param filter filters applied by the database
+   * @param cursor cursor from the previous page, or null for the first page
+   * @param limit  page size
+   * @return the page
    */
-  public List<Prescription> getPrescriptionsForUser(String userId) {
+  public KeysetPage<Prescription> getPrescriptionsPage(String userId, PrescriptionFilter filter,
+      String cursor, int limit) {
     // check if user has permissions to view prescriptions
     permissionValidator.validateViewPermission(jwtUtils.getLoggedInUserId(), userId);
 
-    return prescriptionRepository.findAllByUserId(userId);
+    Date afterStartDate = null;
+    UUID afterId = null;
+    if (cursor != null) {
+      final String[] key = KeysetPage.decodeCursor(cursor, 2);
+      afterStartDate = new Date(parseEpochMillis(key[0]));
+      afterId = KeysetPage.parseId(key[1]);
+    }
+    final List<Prescription> rows = prescriptionRepository.findPage(
+        serviceUtils.parseId(userId, "user"), filter, afterStartDate, afterId, limit + 1);
+    return KeysetPage.of(rows, limit, prescription -> new String[]{
+        Long.toString(prescription.getStartDate().getTime()), prescription.getId().toString()});
+  }
+
+  /**
+   * Export provided user's whole prescription history. Permissions are checked and an export
+   * slot taken right away, while the rows are only read once the returned body is written to the
+   * response; the slot is given back when that ends, or when the body is released unwritten.
+   *
+   * @param userId the user ID
+   * @param format output format
+   * @return the response body, to be released once the request completes
+   * @throws ResponseStatusException 503 if the instance already runs its maximum of exports
+   */
+  public PrescriptionExport exportPrescriptions(String userId, ExportFormat format) {
+    // check if user has permissions to view prescriptions
+    permissionValidator.validateViewPermission(jwtUtils.getLoggedInUserId(), userId);
+
+    final UUID ownerId = serviceUtils.parseId(userId, "user");
+    prescriptionExporter.acquire();
+    return new PrescriptionExport(prescriptionExporter, ownerId, format);
+  }
+
+  private static long parseEpochMillis(String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+    }
   }
-}
\ No newline at end of file
+}
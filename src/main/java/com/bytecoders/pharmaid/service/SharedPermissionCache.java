@@ -0,0 +1,117 @@
+package com.bytecoders.pharmaid.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded, TTL-based cache of (requesterId, ownerId) to {@link PermissionLevel} decisions.
+ *
+ * <p>Entries are invalidated synchronously whenever a share request between the two users changes
+ * state. The cache is local to each instance, so the TTL bounds how long another instance may keep
+ * serving a decision that was changed elsewhere.
+ */
+@Component
+public class SharedPermissionCache implements MeterBinder {
+
+  static final String CACHE_NAME = "sharedPermissions";
+
+  private final Cache<Key, PermissionLevel> cache;
+
+  /**
+   * Creates the permission cache.
+   *
+   * @param maximumSize maximum number of (requester, owner) pairs held in memory
+   * @param ttlMillis   time in milliseconds a decision is kept after it was loaded
+   */
+  @Autowired
+  public SharedPermissionCache(
+      @Value("${pharmaid.permission-cache.maximum-size:10000}") long maximumSize,
+      @Value("${pharmaid.permission-cache.ttl-ms:60000}") long ttlMillis) {
+    this(maximumSize, ttlMillis, Ticker.systemTicker());
+  }
+
+  SharedPermissionCache(long maximumSize, long ttlMillis, Ticker ticker) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(Duration.ofMillis(ttlMillis))
+        .ticker(ticker)
+        .executor(Runnable::run)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns the cached permission level for a requester/owner pair, loading it on a miss.
+   *
+   * <p>Exceptions thrown by the loader (e.g. a user does not exist) are propagated and nothing is
+   * cached.
+   *
+   * @param requesterId user requesting access
+   * @param ownerId     user whose records are being accessed
+   * @param loader      resolves the permission level from the database
+   * @return the effective {@link PermissionLevel}
+   */
+  public PermissionLevel get(String requesterId, String ownerId, Supplier<PermissionLevel> loader) {
+    return cache.get(new Key(requesterId, ownerId), key -> loader.get());
+  }
+
+  /**
+   * Drops the cached decision for a requester/owner pair.
+   *
+   * @param requesterId user requesting access
+   * @param ownerId     user whose records are being accessed
+   */
+  public void invalidate(String requesterId, String ownerId) {
+    cache.invalidate(new Key(requesterId, ownerId));
+  }
+
+  /**
+   * Drops every cached decision the user is part of, as requester or owner.
+   *
+   * @param userId the user
+   */
+  public void invalidateUser(String userId) {
+    cache.asMap().keySet().removeIf(
+        key -> key.requesterId().equals(userId) || key.ownerId().equals(userId));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Hit, miss and eviction counters since startup.
+   *
+   * @return a snapshot of the cache statistics
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  /**
+   * Publishes the standard {@code cache.*} meters, hits, misses and evictions included.
+   *
+   * @param registry registry the meters are added to
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+  }
+
+  private record Key(String requesterId, String ownerId) {
+  }
+}
@@ -6,6 +6,7 @@ import com.bytecoders.pharmaid.repository.SharedPermissionRepository;
 import com.bytecoders.pharmaid.repository.model.SharedPermission;
 import com.bytecoders.pharmaid.repository.model.User;
 import com.bytecoders.pharmaid.util.ServiceUtils;
+import io.micrometer.observation.annotation.Observed;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +15,7 @@ import org.springframework.stereotype.Service;
 /** Functionality to create, accept, deny, revoke permission share requests. */
 @Slf4j
 @Service
+@Observed(name = "pharmaid.service")
 public class SharedPermissionService {
 
   @Autowired
@@ -28,6 +30,9 @@ public class SharedPermissionService {
   @Autowired
   private SharedPermissionValidator permissionValidator;
 
+  @Autowired
+  private SharedPermissionCache permissionCache;
+
   /**
    * Creates a new sharing request.
    *
@@ -55,7 +60,11 @@ public class SharedPermissionService {
     permission.setRequester(requester);
     permission.setSharePermissionType(permissionType);
     permission.setStatus(permissionValidator.retrieveShareRequestStatus(requester.getUserType()));
-    return sharedPermissionRepository.save(permission);
+    SharedPermission savedPermission = sharedPermissionRepository.save(permission);
+
+    // first responder requests are accepted immediately, so drop any cached NONE decision
+    invalidateCachedPermission(savedPermission);
+    return savedPermission;
   }
 
   /**
@@ -75,7 +84,9 @@ public class SharedPermissionService {
 
     // update permission status
     permission.setStatus(requestStatus);
-    return sharedPermissionRepository.save(permission);
+    SharedPermission savedPermission = sharedPermissionRepository.save(permission);
+    invalidateCachedPermission(savedPermission);
+    return savedPermission;
   }
 
   /**
@@ -92,6 +103,7 @@ public class SharedPermissionService {
 
     // delete the permission
     sharedPermissionRepository.delete(permission);
+    invalidateCachedPermission(permission);
   }
 
   /**
@@ -103,4 +115,9 @@ public class SharedPermissionService {
     return serviceUtils.findEntityById(shareRequestId, "shareRequest",
         sharedPermissionRepository);
   }
+
+  private void invalidateCachedPermission(SharedPermission permission) {
+    permissionCache.invalidate(permission.getRequester().getId().toString(),
+        permission.getOwner().getId().toString());
+  }
 }
\ No newline at end of file
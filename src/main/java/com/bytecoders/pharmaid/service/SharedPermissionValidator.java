@@ -4,11 +4,15 @@ import com.bytecoders.pharmaid.openapi.model.SharePermissionType;
 import com.bytecoders.pharmaid.openapi.model.ShareRequestStatus;
 import com.bytecoders.pharmaid.openapi.model.UserType;
 import com.bytecoders.pharmaid.repository.SharedPermissionRepository;
+import com.bytecoders.pharmaid.repository.SharedPermissionRepository.EffectivePermission;
 import com.bytecoders.pharmaid.repository.model.SharedPermission;
 import com.bytecoders.pharmaid.repository.model.User;
 import com.bytecoders.pharmaid.util.JwtUtils;
+import com.bytecoders.pharmaid.util.ServiceUtils;
+import io.micrometer.observation.annotation.Observed;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -18,17 +22,21 @@ import org.springframework.web.server.ResponseStatusException;
 /** Helper methods to validate all input in SharedPermissionService. */
 @Slf4j
 @Service
+@Observed(name = "pharmaid.service")
 public class SharedPermissionValidator {
 
   @Autowired
   private SharedPermissionRepository sharedPermissionRepository;
 
   @Autowired
-  private UserService userService;
+  private ServiceUtils serviceUtils;
 
   @Autowired
   private JwtUtils jwtUtils;
 
+  @Autowired
+  private SharedPermissionCache permissionCache;
+
   /**
    * Checks if current user can EDIT another user's records.
    *
@@ -40,16 +48,7 @@ public class SharedPermissionValidator {
       return;
     }
 
-    // throw an exception if either requester or owner does not exist
-    User requester = userService.getUser(requesterId);
-    User owner = userService.getUser(ownerId);
-
-    // check if the requester has EDIT permission
-    Optional<SharedPermission> permission =
-        sharedPermissionRepository.findByOwnerAndRequesterAndSharePermissionTypeAndStatus(owner,
-            requester, SharePermissionType.EDIT, ShareRequestStatus.ACCEPT);
-
-    if (permission.isEmpty()) {
+    if (!getPermissionLevel(requesterId, ownerId).canEdit()) {
       throw new ResponseStatusException(HttpStatus.FORBIDDEN,
           String.format("User %s is not authorized to edit records of user: %s", requesterId,
               ownerId));
@@ -67,25 +66,47 @@ public class SharedPermissionValidator {
       return;
     }
 
-    // throw an exception if either requester or owner does not exist
-    User requester = userService.getUser(requesterId);
-    User owner = userService.getUser(ownerId);
-
-    // check if requester has either VIEW or EDIT permission
-    List<SharePermissionType> relevantPermissions =
-        List.of(SharePermissionType.EDIT, SharePermissionType.VIEW);
-
-    Optional<SharedPermission> permission =
-        sharedPermissionRepository.findFirstByOwnerAndRequesterAndSharePermissionTypeInAndStatusIn(
-            owner, requester, relevantPermissions, List.of(ShareRequestStatus.ACCEPT));
-
-    if (permission.isEmpty()) {
+    if (!getPermissionLevel(requesterId, ownerId).canView()) {
       throw new ResponseStatusException(HttpStatus.FORBIDDEN,
           String.format("User %s is not authorized to view records of user: %s", requesterId,
               ownerId));
     }
   }
 
+  /**
+   * Returns the effective permission level a requester holds over an owner's records, served from
+   * {@link SharedPermissionCache} when possible.
+   *
+   * @param requesterId user requesting access
+   * @param ownerId     user whose records are being accessed
+   * @return the effective {@link PermissionLevel}
+   */
+  public PermissionLevel getPermissionLevel(String requesterId, String ownerId) {
+    return permissionCache.get(requesterId, ownerId,
+        () -> resolvePermissionLevel(requesterId, ownerId));
+  }
+
+  private PermissionLevel resolvePermissionLevel(String requesterId, String ownerId) {
+    final UUID requester = serviceUtils.parseId(requesterId, "user");
+    final UUID owner = serviceUtils.parseId(ownerId, "user");
+    EffectivePermission permission =
+        sharedPermissionRepository.resolveEffectivePermission(owner, requester);
+
+    // throw an exception if either requester or owner does not exist
+    if (!permission.getRequesterExists()) {
+      throw serviceUtils.entityNotFound("user", requesterId);
+    }
+    if (!permission.getOwnerExists()) {
+      throw serviceUtils.entityNotFound("user", ownerId);
+    }
+
+    if (permission.getPermissionType() == null) {
+      return PermissionLevel.NONE;
+    }
+    return permission.getPermissionType() == SharePermissionType.EDIT
+        ? PermissionLevel.EDIT : PermissionLevel.VIEW;
+  }
+
   private boolean isSameUser(String requesterId, String ownerId) {
     return requesterId.equals(ownerId);
   }
@@ -205,9 +226,9 @@ public class SharedPermissionValidator {
    */
   public Optional<SharedPermission> validateCreateShareRequestSetup(
       User owner, User requester, SharePermissionType permissionType) {
-    validateLoggedInUser(jwtUtils.getLoggedInUserId(), requester.getId());
+    validateLoggedInUser(jwtUtils.getLoggedInUserId(), requester.getId().toString());
     validateRequesterUserType(requester.getUserType());
-    validateDistinctOwnerAndRequester(owner.getId(), requester.getId());
+    validateDistinctOwnerAndRequester(owner.getId().toString(), requester.getId().toString());
     validateFirstResponderRequest(requester.getUserType(), permissionType);
     return validateCreateShareRequestAttributes(owner, requester, permissionType);
   }
@@ -286,7 +307,7 @@ public class SharedPermissionValidator {
   public void validateShareRequestAction(
       SharedPermission permission, String actingOwnerId, ShareRequestStatus responseStatus) {
     validateLoggedInUser(jwtUtils.getLoggedInUserId(), actingOwnerId);
-    validateProperOwner(permission.getOwner().getId(), actingOwnerId);
+    validateProperOwner(permission.getOwner().getId().toString(), actingOwnerId);
     validateProperRequestStatusAction(permission.getStatus());
     validateRequestStatusResponse(responseStatus);
   }
@@ -301,7 +322,7 @@ public class SharedPermissionValidator {
    */
   public void validateRevokeSharePermission(SharedPermission permission, String actingOwnerId) {
     validateLoggedInUser(jwtUtils.getLoggedInUserId(), actingOwnerId);
-    validateProperOwner(permission.getOwner().getId(), actingOwnerId);
+    validateProperOwner(permission.getOwner().getId().toString(), actingOwnerId);
     validateProperRevokeRequest(permission.getStatus());
   }
 }
\ No newline at end of file
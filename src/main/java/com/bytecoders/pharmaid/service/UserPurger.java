@@ -0,0 +1,302 @@
+package com.bytecoders.pharmaid.service;
+
+import com.bytecoders.pharmaid.repository.PrescriptionRepository;
+import com.bytecoders.pharmaid.repository.SharedPermissionRepository;
+import com.bytecoders.pharmaid.repository.UserPurgeRepository;
+import com.bytecoders.pharmaid.repository.UserRepository;
+import com.bytecoders.pharmaid.repository.model.UserPurge;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Background removal of users whose deletion was requested.
+ *
+ * <p>Deleting a user only flags the account and queues a {@link UserPurge}; this component then
+ * removes the user's prescriptions and share requests in chunks of {@code chunk-size} rows, each
+ * chunk in a transaction of its own, so no request thread waits on the purge and row locks are
+ * held briefly. Progress is recorded after every chunk. A failed purge is retried with
+ * exponential backoff and marked FAILED after {@code max-attempts}.
+ *
+ * <p>Every instance runs the purger, so a due purge is first claimed with a conditional update
+ * that marks it RUNNING under a lease of {@code lease-ms}, and only the instance whose update won
+ * works on it. The lease is renewed with every chunk; if the instance dies mid-purge the lease
+ * runs out and another instance claims the purge and resumes it.
+ *
+ * <p>The IDs of users pending deletion are also kept in memory, refreshed from the database on
+ * every run, so the request filter can reject their tokens without a query.
+ */
+@Slf4j
+@Component
+public class UserPurger implements MeterBinder {
+
+  static final String METRIC_PREFIX = "pharmaid.user.purge";
+
+  private static final int USERS_PER_RUN = 10;
+
+  private static final int MAX_ERROR_LENGTH = 1000;
+
+  // due purges, and running ones whose lease has expired
+  private static final List<UserPurge.Status> CLAIMABLE =
+      List.of(UserPurge.Status.PENDING, UserPurge.Status.RUNNING);
+
+  private final int chunkSize;
+
+  private final int maxAttempts;
+
+  private final Duration retryBackoff;
+
+  private final Duration lease;
+
+  private final TransactionOperations transactions;
+
+  private final Clock clock;
+
+  // held as JWT subjects, so the request filter can check a token without parsing its ID
+  private final Set<String> pendingUserIds = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong backlog = new AtomicLong();
+
+  private final AtomicLong completed = new AtomicLong();
+
+  private final AtomicLong retried = new AtomicLong();
+
+  private final AtomicLong failed = new AtomicLong();
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private PrescriptionRepository prescriptionRepository;
+
+  @Autowired
+  private SharedPermissionRepository sharedPermissionRepository;
+
+  @Autowired
+  private UserPurgeRepository userPurgeRepository;
+
+  /**
+   * Creates the purger.
+   *
+   * @param chunkSize          maximum number of rows removed per statement and transaction
+   * @param maxAttempts        attempts before a purge is marked FAILED
+   * @param retryBackoffMillis delay in milliseconds before the first retry, doubled on each retry
+   * @param leaseMillis        how long a claimed purge stays with this instance without progress
+   * @param transactionManager manager of the per-chunk transactions
+   */
+  @Autowired
+  public UserPurger(
+      @Value("${pharmaid.user-purge.chunk-size:1000}") int chunkSize,
+      @Value("${pharmaid.user-purge.max-attempts:5}") int maxAttempts,
+      @Value("${pharmaid.user-purge.retry-backoff-ms:60000}") long retryBackoffMillis,
+      @Value("${pharmaid.user-purge.lease-ms:600000}") long leaseMillis,
+      PlatformTransactionManager transactionManager) {
+    this(chunkSize, maxAttempts, Duration.ofMillis(retryBackoffMillis),
+        Duration.ofMillis(leaseMillis), new TransactionTemplate(transactionManager),
+        Clock.systemUTC());
+  }
+
+  UserPurger(int chunkSize, int maxAttempts, Duration retryBackoff, Duration lease,
+      TransactionOperations transactions, Clock clock) {
+    this.chunkSize = chunkSize;
+    this.maxAttempts = maxAttempts;
+    this.retryBackoff = retryBackoff;
+    this.lease = lease;
+    this.transactions = transactions;
+    this.clock = clock;
+  }
+
+  /**
+   * Queues the purge of a user already flagged as pending deletion. Within a transaction, the user
+   * is treated as pending in memory only once it commits.
+   *
+   * @param userId      user to purge
+   * @param requestedAt when deletion was requested
+   */
+  public void enqueue(UUID userId, Date requestedAt) {
+    userPurgeRepository.save(UserPurge.pending(userId, requestedAt));
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          markPending(userId);
+        }
+      });
+    } else {
+      markPending(userId);
+    }
+  }
+
+  private void markPending(UUID userId) {
+    pendingUserIds.add(userId.toString());
+    backlog.incrementAndGet();
+  }
+
+  /**
+   * Whether a user's deletion was requested, as of the last run or a local request.
+   *
+   * @param userId id of the user
+   * @return true if the user must no longer be authenticated
+   */
+  public boolean isPending(String userId) {
+    return pendingUserIds.contains(userId);
+  }
+
+  /**
+   * Refreshes the pending users and works through the due purges this instance manages to claim.
+   * Failures are logged and retried on the next run.
+   */
+  @Scheduled(fixedDelayString = "${pharmaid.user-purge.poll-ms:5000}",
+      initialDelayString = "${pharmaid.user-purge.poll-ms:5000}")
+  public void purgePending() {
+    try {
+      refreshPendingUsers();
+      final Date now = Date.from(clock.instant());
+      final List<UserPurge> due =
+          userPurgeRepository.findByStatusInAndNextAttemptAtLessThanEqualOrderByRequestedAt(
+              CLAIMABLE, now, Limit.of(USERS_PER_RUN));
+      for (UserPurge purge : due) {
+        // lost to another instance, which is purging the user already
+        if (claim(purge, now)) {
+          purge(purge);
+        }
+      }
+      backlog.set(userPurgeRepository.countByStatusIn(CLAIMABLE));
+    } catch (RuntimeException e) {
+      log.error("User purge run failed, retrying on the next run", e);
+    }
+  }
+
+  private boolean claim(UserPurge purge, Date now) {
+    return transactions.execute(status ->
+        userPurgeRepository.claim(purge.getUserId(), now, leaseUntil())) == 1;
+  }
+
+  private Date leaseUntil() {
+    return Date.from(clock.instant().plus(lease));
+  }
+
+  private void refreshPendingUsers() {
+    // IDs queued while the query runs are not in the snapshot and so are never dropped
+    final Set<String> before = new HashSet<>(pendingUserIds);
+    final Set<String> current = new HashSet<>();
+    for (UUID userId : userRepository.findIdsPendingDeletion()) {
+      current.add(userId.toString());
+    }
+    before.removeAll(current);
+    pendingUserIds.removeAll(before);
+    pendingUserIds.addAll(current);
+  }
+
+  /**
+   * Removes one user's records chunk by chunk and finally the user. Rows removed by an earlier,
+   * failed attempt stay removed, so a retry resumes where it stopped.
+   *
+   * @param purge the purge to run, claimed by this instance
+   */
+  void purge(UserPurge purge) {
+    final UUID userId = purge.getUserId();
+    try {
+      deleteInChunks(() -> {
+        final int deleted = prescriptionRepository.deleteChunkByUserId(userId, chunkSize);
+        userPurgeRepository.addProgress(userId, deleted, 0, leaseUntil());
+        return deleted;
+      });
+      deleteInChunks(() -> {
+        final int deleted = sharedPermissionRepository.deleteChunkInvolvingUser(userId, chunkSize);
+        userPurgeRepository.addProgress(userId, 0, deleted, leaseUntil());
+        return deleted;
+      });
+      transactions.executeWithoutResult(status -> {
+        userRepository.deleteUserById(userId);
+        userPurgeRepository.markCompleted(userId, UserPurge.Status.COMPLETED,
+            Date.from(clock.instant()));
+      });
+      pendingUserIds.remove(userId.toString());
+      completed.incrementAndGet();
+      log.info("Purged user {}", userId);
+    } catch (RuntimeException e) {
+      recordFailure(purge, e);
+    }
+  }
+
+  private void deleteInChunks(IntSupplier chunk) {
+    int deleted;
+    do {
+      deleted = transactions.execute(status -> chunk.getAsInt());
+    } while (deleted == chunkSize);
+  }
+
+  private void recordFailure(UserPurge purge, RuntimeException cause) {
+    final int attempts = purge.getAttempts() + 1;
+    final boolean exhausted = attempts >= maxAttempts;
+    if (exhausted) {
+      failed.incrementAndGet();
+      log.error("Purge of user {} failed {} times, giving up", purge.getUserId(), attempts, cause);
+    } else {
+      retried.incrementAndGet();
+      log.warn("Purge of user {} failed on attempt {}, retrying", purge.getUserId(), attempts,
+          cause);
+    }
+    // 1x, 2x, 4x ... the base backoff
+    final Date nextAttemptAt = Date.from(clock.instant()
+        .plus(retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20))));
+    try {
+      transactions.executeWithoutResult(status -> userPurgeRepository.recordFailure(
+          purge.getUserId(), attempts,
+          exhausted ? UserPurge.Status.FAILED : UserPurge.Status.PENDING, nextAttemptAt,
+          truncate(String.valueOf(cause.getMessage()))));
+    } catch (RuntimeException e) {
+      // the purge is claimed again once its lease runs out
+      log.error("Unable to record the failed purge of user {}", purge.getUserId(), e);
+    }
+  }
+
+  private static String truncate(String message) {
+    return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+  }
+
+  /**
+   * Publishes the purge backlog and counts of completed, retried and failed purges.
+   *
+   * @param registry registry the meters are added to
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder(METRIC_PREFIX + ".backlog", backlog, AtomicLong::get)
+        .description("Users pending deletion whose records are still being purged")
+        .register(registry);
+    bindRunCounter(registry, "completed", completed);
+    bindRunCounter(registry, "retry", retried);
+    bindRunCounter(registry, "failed", failed);
+  }
+
+  private static void bindRunCounter(MeterRegistry registry, String outcome, AtomicLong count) {
+    FunctionCounter.builder(METRIC_PREFIX + ".runs", count, AtomicLong::get)
+        .tag("outcome", outcome)
+        .description("Purge attempts, by outcome")
+        .register(registry);
+  }
+}
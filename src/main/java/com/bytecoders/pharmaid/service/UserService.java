@@ -5,19 +5,30 @@ import com.bytecoders.pharmaid.openapi.model.LoginUserResponse;
 import com.bytecoders.pharmaid.openapi.model.RegisterUserRequest;
 import com.bytecoders.pharmaid.repository.UserRepository;
 import com.bytecoders.pharmaid.repository.model.User;
+import com.bytecoders.pharmaid.security.VerifiedTokenCache;
 import com.bytecoders.pharmaid.util.JwtUtils;
 import com.bytecoders.pharmaid.util.PasswordUtils;
 import com.bytecoders.pharmaid.util.ServiceUtils;
+import io.micrometer.observation.annotation.Observed;
+import java.util.Date;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service operations around {@link User}.
  */
 @Service
+@Observed(name = "pharmaid.service")
 public class UserService {
 
+  private static final String USER = "user";
+
   @Autowired
   private UserRepository userRepository;
 
@@ -30,6 +41,23 @@ public class UserService {
   @Autowired
   private ServiceUtils serviceUtils;
 
+  @Autowired
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @Autowired
+  private UserPurger userPurger;
+
+  @Autowired
+  private SharedPermissionCache permissionCache;
+
+  @Autowired
+  private SharedPermissionValidator permissionValidator;
+
+  // stores upgraded hashes, so a database wait never holds the hashing lane
+  @Autowired
+  @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  private Executor taskExecutor;
+
   /**
    * Register new user service.
    *
@@ -45,14 +73,31 @@ public class UserService {
   }
 
   /**
-   * Delete a user service.
+   * Delete a user service. The user is flagged as pending deletion, which immediately stops their
+   * tokens from authenticating and the user from being found, and their records are purged in the
+   * background by {@link UserPurger}.
    *
    * @param userId String of user id
    */
+  @Transactional
   public void deleteUser(String userId) {
-    if (getUser(userId) != null) {
-      userRepository.deleteById(userId);
+    final UUID id = getUser(userId).getId();
+    // the caller must be able to view the user's records, as when prescriptions were listed
+    // one by one for deletion
+    permissionValidator.validateViewPermission(jwtUtils.getLoggedInUserId(), userId);
+
+    final Date requestedAt = new Date();
+    if (userRepository.markPendingDeletion(id, requestedAt) == 0) {
+      // flagged concurrently by another request
+      throw serviceUtils.entityNotFound(USER, userId);
     }
+    userPurger.enqueue(id, requestedAt);
+    // the user loaded above predates the flag
+    serviceUtils.forgetEntity(id, USER);
+
+    // outstanding tokens of the deleted user must not keep authenticating from the cache
+    verifiedTokenCache.invalidateUser(id.toString());
+    permissionCache.invalidateUser(id.toString());
   }
 
   /**
@@ -64,7 +109,7 @@ public class UserService {
   public Optional<LoginUserResponse> loginUser(LoginUserRequest loginUserRequest) {
     Optional<User> userWithEmail = userRepository.findByEmail(loginUserRequest.getEmail());
 
-    if (userWithEmail.isEmpty()) {
+    if (userWithEmail.isEmpty() || userWithEmail.get().isPendingDeletion()) {
       return Optional.empty();
     }
 
@@ -72,11 +117,12 @@ public class UserService {
         userWithEmail.get().getHashedPassword());
 
     if (isCorrectPassword) {
-      String token = jwtUtils.generateToken(userWithEmail.get().getId());
       User user = userWithEmail.get();
+      upgradeHashIfOutdated(user, loginUserRequest.getPassword());
+      String token = jwtUtils.generateToken(user.getId().toString());
 
       LoginUserResponse loginResponse = new LoginUserResponse();
-      loginResponse.setUserId(user.getId());
+      loginResponse.setUserId(user.getId().toString());
       loginResponse.setEmail(user.getEmail());
       loginResponse.setToken(token);
 
@@ -85,12 +131,25 @@ public class UserService {
     return Optional.empty();
   }
 
+  private void upgradeHashIfOutdated(User user, String password) {
+    final String currentHash = user.getHashedPassword();
+    if (passwordUtils.needsRehash(currentHash)) {
+      passwordUtils.rehashInBackground(password).thenAcceptAsync(
+          newHash -> userRepository.replaceHashedPassword(user.getId(), currentHash, newHash),
+          taskExecutor);
+    }
+  }
+
   /**
-   * Returns a User or throws a ResponseStatusException.
+   * Returns a User or throws a ResponseStatusException. Users pending deletion are not found.
    *
    * @param userId Id of the User
    */
   public User getUser(String userId) {
-    return serviceUtils.findEntityById(userId, "user", userRepository);
+    final User user = serviceUtils.findEntityById(userId, USER, userRepository);
+    if (user.isPendingDeletion()) {
+      throw serviceUtils.entityNotFound(USER, userId);
+    }
+    return user;
   }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.bytecoders.pharmaid.util;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * BCrypt hashes, formatted {@code $2a$<cost>$<salt+hash>}. Hashes with the {@code $2b$} and
+ * {@code $2y$} revisions of other implementations verify too: for passwords shorter than 255
+ * bytes they compute the same hash as {@code $2a$}, which is the only revision jBCrypt reads.
+ */
+public class BcryptPasswordHasher implements PasswordHasher {
+
+  private final int cost;
+
+  /**
+   * Creates a BCrypt hasher.
+   *
+   * @param cost log2 work factor used for new hashes (4-31)
+   */
+  public BcryptPasswordHasher(int cost) {
+    if (cost < 4 || cost > 31) {
+      throw new IllegalArgumentException("BCrypt cost must be between 4 and 31: " + cost);
+    }
+    this.cost = cost;
+  }
+
+  @Override
+  public boolean supports(String hashedPassword) {
+    return hashedPassword.startsWith("$2a$") || hashedPassword.startsWith("$2b$")
+        || hashedPassword.startsWith("$2y$");
+  }
+
+  @Override
+  public String hash(String password) {
+    return BCrypt.hashpw(password, BCrypt.gensalt(cost));
+  }
+
+  @Override
+  public boolean verify(String password, String hashedPassword) {
+    return BCrypt.checkpw(password, "$2a$" + hashedPassword.substring(4));
+  }
+
+  @Override
+  public boolean isBelowTarget(String hashedPassword) {
+    // $2a$10$... the cost is the two digits after the version
+    return Integer.parseInt(hashedPassword.substring(4, 6)) < cost;
+  }
+}
@@ -0,0 +1,16 @@
+package com.bytecoders.pharmaid.util;
+
+import java.time.Instant;
+
+/**
+ * Immutable result of verifying a JSON Web Token (JWT).
+ *
+ * @param userId    the token subject
+ * @param expiresAt when the token stops being valid
+ */
+public record JwtPrincipal(String userId, Instant expiresAt) {
+
+  public boolean isExpired(Instant now) {
+    return !expiresAt.isAfter(now);
+  }
+}
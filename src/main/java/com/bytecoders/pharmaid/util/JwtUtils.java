@@ -1,6 +1,7 @@
 package com.bytecoders.pharmaid.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -17,11 +18,26 @@ import org.springframework.stereotype.Component;
 @Component
 public class JwtUtils {
 
-  @Value("${security.jwt.secret-key}")
-  private String secretKey;
+  private final long jwtExpiration;
 
-  @Value("${security.jwt.expiration-time}")
-  private long jwtExpiration;
+  private final Key signInKey;
+
+  private final JwtParser jwtParser;
+
+  /**
+   * Decodes the signing key and builds the token parser once; both are immutable and shared by
+   * every request.
+   *
+   * @param secretKey     base64 encoded HMAC-SHA secret
+   * @param jwtExpiration token lifetime in milliseconds
+   */
+  public JwtUtils(
+      @Value("${security.jwt.secret-key}") String secretKey,
+      @Value("${security.jwt.expiration-time}") long jwtExpiration) {
+    this.jwtExpiration = jwtExpiration;
+    this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+    this.jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+  }
 
   /**
    * Generate a JWT token with a specified user identifier.
@@ -32,48 +48,27 @@ public class JwtUtils {
   public String generateToken(String userId) {
     return Jwts.builder().setSubject(userId).setIssuedAt(new Date(System.currentTimeMillis()))
         .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-        .signWith(getSignInKey(), SignatureAlgorithm.HS256).compact();
-  }
-
-  public String extractUserId(String token) {
-    return getClaims(token).getSubject();
-  }
-
-  public boolean isTokenValid(String token, String userId) {
-    return extractUserId(token).equals(userId) && !isTokenExpired(token);
-  }
-
-  private Claims getClaims(String token) {
-    return Jwts.parserBuilder().setSigningKey(getSignInKey()).build().parseClaimsJws(token)
-        .getBody();
+        .signWith(signInKey, SignatureAlgorithm.HS256).compact();
   }
 
   /**
-   * Define public endpoints that do not require authentication.
+   * Verify a token's signature and expiry with a single parse.
    *
-   * @return an array of public endpoints
+   * @param token signed JWT
+   * @return the verified {@link JwtPrincipal}
+   * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
    */
-  public String[] getPublicEndpoints() {
-    return new String[]{"/hello",
-        "/login",
-        "/register",
-        "/pharmaid-api-docs",
-        "/pharmaid-api-docs/swagger-config",
-        "/pharmaid-api-docs-ui.html",
-        "/swagger-ui/index.html",
-        "/swagger-ui/swagger-ui.css",
-        "/swagger-ui/swagger-ui-bundle.js",
-        "/swagger-ui/swagger-ui-standalone-preset.js",
-        "/swagger-ui/swagger-initializer.js"};
+  public JwtPrincipal verifyToken(String token) {
+    Claims claims = jwtParser.parseClaimsJws(token).getBody();
+    return new JwtPrincipal(claims.getSubject(), claims.getExpiration().toInstant());
   }
 
-  private boolean isTokenExpired(String token) {
-    return getClaims(token).getExpiration().before(new Date());
+  public String extractUserId(String token) {
+    return verifyToken(token).userId();
   }
 
-  private Key getSignInKey() {
-    byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-    return Keys.hmacShaKeyFor(keyBytes);
+  public boolean isTokenValid(String token, String userId) {
+    return userId.equals(extractUserId(token));
   }
 
   /**
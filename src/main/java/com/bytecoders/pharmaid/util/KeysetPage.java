@@ -0,0 +1,112 @@
+package com.bytecoders.pharmaid.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * One page of a keyset (cursor) paginated listing.
+ *
+ * <p>The cursor is an opaque, URL-safe encoding of the sort key of the last item on the page;
+ * the next page starts strictly after it, so pages stay stable while rows are inserted.
+ *
+ * @param items      items on this page, in sort order
+ * @param nextCursor cursor of the following page, or null on the last page
+ * @param <T>        item type
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+
+  public static final int DEFAULT_LIMIT = 50;
+
+  public static final int MAX_LIMIT = 100;
+
+  private static final String SEPARATOR = "\u0000";
+
+  /**
+   * Builds a page from a query that fetched up to {@code limit + 1} rows, the extra row only
+   * signalling that another page exists.
+   *
+   * @param rows    rows returned by the keyset query
+   * @param limit   requested page size
+   * @param sortKey extracts the sort key values of an item, most significant first
+   * @param <T>     item type
+   * @return the page
+   */
+  public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, String[]> sortKey) {
+    if (rows.size() <= limit) {
+      return new KeysetPage<>(List.copyOf(rows), null);
+    }
+    final List<T> items = List.copyOf(rows.subList(0, limit));
+    return new KeysetPage<>(items, encodeCursor(sortKey.apply(items.get(limit - 1))));
+  }
+
+  /**
+   * Validates a requested page size.
+   *
+   * @param limit requested page size, or null for the default
+   * @return the page size to use
+   * @throws ResponseStatusException 400 if outside 1..{@value #MAX_LIMIT}
+   */
+  public static int checkLimit(Integer limit) {
+    if (limit == null) {
+      return DEFAULT_LIMIT;
+    }
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          String.format("limit must be between 1 and %d", MAX_LIMIT));
+    }
+    return limit;
+  }
+
+  /**
+   * Encodes sort key values into an opaque cursor.
+   *
+   * @param values sort key values, most significant first
+   * @return URL-safe cursor
+   */
+  public static String encodeCursor(String... values) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(String.join(SEPARATOR, values).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor produced by {@link #encodeCursor(String...)}.
+   *
+   * @param cursor     cursor received from a client
+   * @param keyColumns number of sort key values expected
+   * @return the sort key values
+   * @throws ResponseStatusException 400 if the cursor is malformed
+   */
+  public static String[] decodeCursor(String cursor, int keyColumns) {
+    final String[] values;
+    try {
+      values = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+          .split(SEPARATOR, -1);
+    } catch (IllegalArgumentException e) {
+      throw invalidCursor();
+    }
+    if (values.length != keyColumns) {
+      throw invalidCursor();
+    }
+    return values;
+  }
+
+  /**
+   * Parses an entity ID taken from a decoded cursor.
+   *
+   * @param value sort key value holding the ID
+   * @return the ID
+   * @throws ResponseStatusException 400 if the value is not a UUID
+   */
+  public static UUID parseId(String value) {
+    return ServiceUtils.toUuid(value).orElseThrow(KeysetPage::invalidCursor);
+  }
+
+  private static ResponseStatusException invalidCursor() {
+    return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+  }
+}
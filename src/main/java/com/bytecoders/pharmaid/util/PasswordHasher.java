@@ -0,0 +1,28 @@
+package com.bytecoders.pharmaid.util;
+
+/**
+ * One password hashing algorithm, recognised by the prefix of the hashes it produces.
+ */
+public interface PasswordHasher {
+
+  /**
+   * Whether a stored hash was produced by this algorithm.
+   *
+   * @param hashedPassword stored hash
+   * @return true if this hasher can verify it
+   */
+  boolean supports(String hashedPassword);
+
+  String hash(String password);
+
+  boolean verify(String password, String hashedPassword);
+
+  /**
+   * Whether a hash of this algorithm was produced with weaker parameters than this hasher's
+   * target, e.g. a lower BCrypt cost.
+   *
+   * @param hashedPassword stored hash, supported by this hasher
+   * @return true if the password should be rehashed with the current target
+   */
+  boolean isBelowTarget(String hashedPassword);
+}
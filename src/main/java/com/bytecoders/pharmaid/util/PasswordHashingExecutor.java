@@ -0,0 +1,198 @@
+package com.bytecoders.pharmaid.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Dedicated, bounded pool for CPU-heavy password hashing.
+ *
+ * <p>Request threads hand BCrypt work to a fixed number of hashing threads and wait for the
+ * result, so a login burst can occupy at most {@code threads} cores instead of every Tomcat
+ * thread. Once {@code queue-capacity} tasks are waiting, further requests are rejected immediately
+ * with 503 rather than queueing behind the burst.
+ *
+ * <p>Background work, rehashing outdated hashes after a login, has a lane of its own: one thread
+ * and {@code background-queue-capacity} waiting tasks, dropped when full. It never takes a slot
+ * a login is waiting for, and a backlog of upgrades can cost at most one more core.
+ *
+ * <p>A caller's wait is observed as {@value #OBSERVATION_NAME}, queueing included, and the
+ * hashing itself as {@value #TIMER_NAME}, its child span even though it runs on a hashing thread.
+ */
+@Slf4j
+@Component
+public class PasswordHashingExecutor {
+
+  static final String OBSERVATION_NAME = "pharmaid.password";
+
+  static final String TIMER_NAME = "pharmaid.password.hashing";
+
+  private static final String OPERATION = "operation";
+
+  private final ThreadPoolExecutor executor;
+
+  private final ThreadPoolExecutor background;
+
+  private final long timeoutMillis;
+
+  private final ObservationRegistry observations;
+
+  private final Counter rejected;
+
+  /**
+   * Creates the hashing pool.
+   *
+   * @param threads                 number of threads hashing concurrently
+   * @param queueCapacity           maximum number of hashing tasks waiting for a thread
+   * @param backgroundQueueCapacity maximum number of background tasks waiting for their thread
+   * @param timeoutMillis           maximum time in milliseconds a request waits for its result
+   * @param registry                registry for rejection counts
+   * @param observations            registry the hashing latency and spans are observed with
+   */
+  @Autowired
+  public PasswordHashingExecutor(
+      @Value("${pharmaid.password.hashing.threads:2}") int threads,
+      @Value("${pharmaid.password.hashing.queue-capacity:16}") int queueCapacity,
+      @Value("${pharmaid.password.hashing.background-queue-capacity:4}")
+      int backgroundQueueCapacity,
+      @Value("${pharmaid.password.hashing.timeout-ms:5000}") long timeoutMillis,
+      MeterRegistry registry, ObservationRegistry observations) {
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), daemonThreads("password-hashing-"),
+        new ThreadPoolExecutor.AbortPolicy());
+    this.background = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(backgroundQueueCapacity), daemonThreads("password-rehash-"),
+        new ThreadPoolExecutor.AbortPolicy());
+    this.timeoutMillis = timeoutMillis;
+    this.observations = observations;
+    this.rejected = Counter.builder(TIMER_NAME + ".rejected")
+        .description("Hashing requests rejected with 503 because the pool was saturated")
+        .register(registry);
+  }
+
+  /**
+   * Runs a hashing operation on the pool and waits for its result.
+   *
+   * @param operation name of the operation, used as the {@code operation} metric tag
+   * @param task      the hashing work
+   * @param <T>       result type
+   * @return the task's result
+   * @throws ResponseStatusException 503 if the pool is saturated or the result does not arrive in
+   *                                 time
+   */
+  public <T> T execute(String operation, Supplier<T> task) {
+    final Observation observation = Observation.createNotStarted(OBSERVATION_NAME, observations)
+        .lowCardinalityKeyValue(OPERATION, operation);
+    return observation.observe(() -> submitAndWait(operation, task, observation));
+  }
+
+  private <T> T submitAndWait(String operation, Supplier<T> task, Observation parent) {
+    final Future<T> future;
+    try {
+      future = executor.submit(() -> hashing(operation, parent).observe(task));
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      log.warn("Password hashing pool saturated, rejecting {} request", operation);
+      throw overloaded();
+    }
+
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      rejected.increment();
+      log.warn("Password {} did not complete within {} ms", operation, timeoutMillis);
+      throw overloaded();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      throw overloaded();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Runs a hashing operation on the background lane without waiting for it. Work that does not
+   * fit in the lane's queue is dropped, never blocking or failing the caller.
+   *
+   * <p>The returned future completes on the lane's thread; anything slow done with the result,
+   * such as storing it, belongs on another executor so the lane only ever hashes.
+   *
+   * @param operation name of the operation, used as the {@code operation} metric tag
+   * @param task      the hashing work
+   * @param <T>       result type
+   * @return the task's result, failed with a {@link RejectedExecutionException} if it was dropped
+   */
+  public <T> CompletableFuture<T> submitInBackground(String operation, Supplier<T> task) {
+    try {
+      return CompletableFuture
+          .supplyAsync(() -> hashing(operation, null).observe(task), background)
+          .whenComplete((result, e) -> {
+            if (e != null) {
+              log.error("Background password {} failed", operation, e);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      log.info("Password background lane full, skipping {}", operation);
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  // the hashing thread has no current observation, so the caller's is passed as the parent
+  private Observation hashing(String operation, Observation parent) {
+    return Observation.createNotStarted(TIMER_NAME, observations)
+        .parentObservation(parent)
+        .lowCardinalityKeyValue(OPERATION, operation);
+  }
+
+  private static ThreadFactory daemonThreads(String prefix) {
+    final AtomicInteger threadCount = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static ResponseStatusException overloaded() {
+    return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+        "Server is busy, please retry shortly");
+  }
+
+  int queuedTasks() {
+    return executor.getQueue().size();
+  }
+
+  int queuedBackgroundTasks() {
+    return background.getQueue().size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+    background.shutdownNow();
+  }
+}
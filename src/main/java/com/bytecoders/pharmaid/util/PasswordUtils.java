@@ -1,16 +1,93 @@
 package com.bytecoders.pharmaid.util;
 
-import org.mindrot.jbcrypt.BCrypt;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Utils to hash passwords with salt and verify hashed passwords.
+ *
+ * <p>New passwords are hashed with the target {@link PasswordHasher}; stored hashes of any known
+ * format are verified by the hasher matching their prefix, so the target algorithm or cost can be
+ * changed without forcing password resets. Hashing runs on the {@link PasswordHashingExecutor}
+ * when one is configured, otherwise on the calling thread.
  */
 public class PasswordUtils {
+
+  public static final int DEFAULT_COST = 10;
+
+  public static final int DEFAULT_PBKDF2_ITERATIONS = 310_000;
+
+  private final PasswordHasher target;
+
+  private final List<PasswordHasher> hashers;
+
+  private final PasswordHashingExecutor executor;
+
+  public PasswordUtils() {
+    this(DEFAULT_COST, null);
+  }
+
+  public PasswordUtils(int cost, PasswordHashingExecutor executor) {
+    this(new BcryptPasswordHasher(cost), executor);
+  }
+
+  /**
+   * Creates password utils hashing new passwords with the given target.
+   *
+   * @param target   hasher used for new hashes and to judge whether stored hashes are current
+   * @param executor pool the hashing runs on, or null to hash on the calling thread
+   */
+  public PasswordUtils(PasswordHasher target, PasswordHashingExecutor executor) {
+    this.target = target;
+    this.hashers = List.of(target, new BcryptPasswordHasher(DEFAULT_COST),
+        new Pbkdf2PasswordHasher(DEFAULT_PBKDF2_ITERATIONS));
+    this.executor = executor;
+  }
+
   public String hashPassword(String password) {
-    return BCrypt.hashpw(password, BCrypt.gensalt());
+    return run("hash", () -> target.hash(password));
   }
 
   public boolean verifyPassword(String password, String hashedPassword) {
-    return BCrypt.checkpw(password, hashedPassword);
+    return run("verify", () -> hasherFor(hashedPassword).verify(password, hashedPassword));
+  }
+
+  /**
+   * Whether a stored hash uses a different algorithm than the target, or weaker parameters.
+   *
+   * @param hashedPassword stored hash
+   * @return true if it should be replaced by a fresh {@link #hashPassword(String)}
+   */
+  public boolean needsRehash(String hashedPassword) {
+    return !target.supports(hashedPassword) || target.isBelowTarget(hashedPassword);
+  }
+
+  /**
+   * Hashes a password with the current target off the request path, on the hashing executor's
+   * background lane. Best effort: if the lane is full the rehash is skipped and retried on a later
+   * login.
+   *
+   * @param password plaintext password that was just verified
+   * @return the new hash, failed if the rehash was skipped
+   */
+  public CompletableFuture<String> rehashInBackground(String password) {
+    if (executor == null) {
+      return CompletableFuture.completedFuture(target.hash(password));
+    }
+    return executor.submitInBackground("rehash", () -> target.hash(password));
+  }
+
+  private PasswordHasher hasherFor(String hashedPassword) {
+    for (PasswordHasher hasher : hashers) {
+      if (hasher.supports(hashedPassword)) {
+        return hasher;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported password hash format");
+  }
+
+  private <T> T run(String operation, Supplier<T> task) {
+    return executor == null ? task.get() : executor.execute(operation, task);
   }
 }
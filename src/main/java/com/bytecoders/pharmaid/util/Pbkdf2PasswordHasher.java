@@ -0,0 +1,89 @@
+package com.bytecoders.pharmaid.util;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * PBKDF2-HMAC-SHA256 hashes, formatted {@code $pbkdf2-sha256$<iterations>$<salt>$<hash>} with
+ * base64 salt and hash.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+  static final String PREFIX = "$pbkdf2-sha256$";
+
+  private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+  private static final int SALT_BYTES = 16;
+
+  private static final int HASH_BITS = 256;
+
+  private static final int HASH_PARTS = 3;
+
+  private final SecureRandom random = new SecureRandom();
+
+  private final int iterations;
+
+  /**
+   * Creates a PBKDF2 hasher.
+   *
+   * @param iterations HMAC iterations used for new hashes
+   */
+  public Pbkdf2PasswordHasher(int iterations) {
+    if (iterations <= 0) {
+      throw new IllegalArgumentException("PBKDF2 iterations must be positive: " + iterations);
+    }
+    this.iterations = iterations;
+  }
+
+  @Override
+  public boolean supports(String hashedPassword) {
+    return hashedPassword.startsWith(PREFIX);
+  }
+
+  @Override
+  public String hash(String password) {
+    byte[] salt = new byte[SALT_BYTES];
+    random.nextBytes(salt);
+    Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+    return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+        + encoder.encodeToString(derive(password, salt, iterations));
+  }
+
+  @Override
+  public boolean verify(String password, String hashedPassword) {
+    String[] parts = parse(hashedPassword);
+    Base64.Decoder decoder = Base64.getDecoder();
+    byte[] expected = decoder.decode(parts[2]);
+    byte[] actual = derive(password, decoder.decode(parts[1]), Integer.parseInt(parts[0]));
+    return MessageDigest.isEqual(expected, actual);
+  }
+
+  @Override
+  public boolean isBelowTarget(String hashedPassword) {
+    return Integer.parseInt(parse(hashedPassword)[0]) < iterations;
+  }
+
+  private static String[] parse(String hashedPassword) {
+    String[] parts = hashedPassword.substring(PREFIX.length()).split("\\$");
+    if (parts.length != HASH_PARTS) {
+      throw new IllegalArgumentException("Malformed PBKDF2 hash");
+    }
+    return parts;
+  }
+
+  private static byte[] derive(String password, byte[] salt, int iterations) {
+    PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+    try {
+      return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+    } catch (GeneralSecurityException e) {
+      // every Java platform is required to support PBKDF2WithHmacSHA256
+      throw new IllegalStateException(e);
+    } finally {
+      spec.clearPassword();
+    }
+  }
+}
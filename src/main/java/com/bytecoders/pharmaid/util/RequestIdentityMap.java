@@ -0,0 +1,93 @@
+package com.bytecoders.pharmaid.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Entities already loaded while handling the current HTTP request, by entity name and ID, so a
+ * controller, a service and a validator asking for the same user are served one lookup.
+ *
+ * <p>Held as a request attribute and only used by the thread handling the request. Code that
+ * runs outside a request, e.g. background jobs or a streamed response, has no map and loads
+ * directly.
+ */
+public final class RequestIdentityMap {
+
+  private static final String ATTRIBUTE = RequestIdentityMap.class.getName();
+
+  private final Map<Key, Object> entities = new HashMap<>();
+
+  private int savedLookups;
+
+  private RequestIdentityMap() {
+  }
+
+  /**
+   * The identity map of the request handled by this thread, created on first use.
+   *
+   * @return the map, or empty outside a request
+   */
+  public static Optional<RequestIdentityMap> current() {
+    final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      return Optional.empty();
+    }
+    RequestIdentityMap map =
+        (RequestIdentityMap) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (map == null) {
+      map = new RequestIdentityMap();
+      attributes.setAttribute(ATTRIBUTE, map, RequestAttributes.SCOPE_REQUEST);
+    }
+    return Optional.of(map);
+  }
+
+  /**
+   * Returns the entity loaded earlier in this request, or loads and remembers it. Nothing is
+   * remembered when the loader throws, e.g. for an unknown ID.
+   *
+   * @param entityName the name of the entity (eg "user", "medication")
+   * @param id         the ID of the entity
+   * @param loader     loads the entity from its repository
+   * @param <T>        entity type
+   * @return the entity
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String entityName, UUID id, Supplier<T> loader) {
+    final Key key = new Key(entityName, id);
+    final Object entity = entities.get(key);
+    if (entity != null) {
+      savedLookups++;
+      return (T) entity;
+    }
+    final T loaded = loader.get();
+    entities.put(key, loaded);
+    return loaded;
+  }
+
+  /**
+   * Forgets an entity, so the next request for it loads it again, e.g. after it was deleted.
+   *
+   * @param entityName the name of the entity
+   * @param id         the ID of the entity
+   */
+  public void remove(String entityName, UUID id) {
+    entities.remove(new Key(entityName, id));
+  }
+
+  /**
+   * Lookups served from this map instead of the repository.
+   *
+   * @return number of saved lookups so far in this request
+   */
+  public int savedLookups() {
+    return savedLookups;
+  }
+
+  private record Key(String entityName, UUID id) {
+  }
+}
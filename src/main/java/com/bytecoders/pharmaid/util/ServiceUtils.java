@@ -1,9 +1,16 @@
 package com.bytecoders.pharmaid.util;
 
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.server.ResponseStatusException;
 
 /**
@@ -13,21 +20,102 @@ import org.springframework.web.server.ResponseStatusException;
 @Component
 public class ServiceUtils {
 
+  public static final String SAVED_LOOKUPS_HEADER = "X-Pharmaid-Lookups-Saved";
+
+  // canonical 8-4-4-4-12 form; UUID.fromString also accepts shortened groups such as "1-2-3-4-5"
+  private static final int UUID_LENGTH = 36;
+
+  @Value("${pharmaid.request-identity-map.debug-header:false}")
+  private boolean savedLookupsHeader;
+
   /**
-   * Finds an entityId or throws ResponseStatusException if not found.
+   * Finds an entityId or throws ResponseStatusException if not found. Within an HTTP request an
+   * entity is loaded once and served from the {@link RequestIdentityMap} afterwards.
    *
    * @param <T>        Entity type
-   * @param id         The ID of the entity
+   * @param id         The ID of the entity, as received through the API
    * @param entityName The name of the entity (eg "user", "medication")
    * @param repository The repository for the entity
    * @return The entity if found
    */
   public <T> T findEntityById(
-      String id, String entityName, JpaRepository<T, String> repository) {
-    return repository.findById(id).orElseThrow(() -> {
-      log.warn("Provided {}Id does not exist: {}", entityName, id);
-      return new ResponseStatusException(HttpStatus.NOT_FOUND,
-          String.format("Provided %sId does not exist: %s", entityName, id));
-    });
+      String id, String entityName, JpaRepository<T, UUID> repository) {
+    final UUID uuid = parseId(id, entityName);
+    final Supplier<T> load =
+        () -> repository.findById(uuid).orElseThrow(() -> entityNotFound(entityName, id));
+    final Optional<RequestIdentityMap> entities = RequestIdentityMap.current();
+    if (entities.isEmpty()) {
+      return load.get();
+    }
+    final int savedBefore = entities.get().savedLookups();
+    final T entity = entities.get().get(entityName, uuid, load);
+    if (savedLookupsHeader && entities.get().savedLookups() > savedBefore) {
+      reportSavedLookups(entities.get().savedLookups());
+    }
+    return entity;
+  }
+
+  /**
+   * Forgets an entity loaded earlier in the current request, e.g. once it was deleted, so a later
+   * lookup reads its current state.
+   *
+   * @param id         The ID of the entity
+   * @param entityName The name of the entity (eg "user", "medication")
+   */
+  public void forgetEntity(UUID id, String entityName) {
+    RequestIdentityMap.current().ifPresent(entities -> entities.remove(entityName, id));
+  }
+
+  // rewritten on every saved lookup; lookups happen before the response body is written
+  private static void reportSavedLookups(int savedLookups) {
+    if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes servlet) {
+      final HttpServletResponse response = servlet.getResponse();
+      if (response != null && !response.isCommitted()) {
+        response.setHeader(SAVED_LOOKUPS_HEADER, Integer.toString(savedLookups));
+      }
+    }
+  }
+
+  /**
+   * Converts an ID received through the API to its stored form. A string that is not a UUID
+   * cannot identify any entity, so it is reported the same way as an unknown ID.
+   *
+   * @param id         The ID of the entity
+   * @param entityName The name of the entity (eg "user", "medication")
+   * @return the ID as a UUID
+   * @throws ResponseStatusException 404 if the ID is not a UUID
+   */
+  public UUID parseId(String id, String entityName) {
+    return toUuid(id).orElseThrow(() -> entityNotFound(entityName, id));
+  }
+
+  /**
+   * Converts an ID received through the API to its stored form.
+   *
+   * @param id the ID, possibly null
+   * @return the ID as a UUID, or empty if it is not a canonical UUID string
+   */
+  public static Optional<UUID> toUuid(String id) {
+    if (id == null || id.length() != UUID_LENGTH) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(UUID.fromString(id));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Builds the NOT_FOUND exception raised when an entity ID does not exist.
+   *
+   * @param entityName The name of the entity (eg "user", "medication")
+   * @param id         The ID of the entity
+   * @return ResponseStatusException with a 404 status
+   */
+  public ResponseStatusException entityNotFound(String entityName, String id) {
+    log.warn("Provided {}Id does not exist: {}", entityName, id);
+    return new ResponseStatusException(HttpStatus.NOT_FOUND,
+        String.format("Provided %sId does not exist: %s", entityName, id));
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.bytecoders.pharmaid.util;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates time-ordered version 7 UUIDs (RFC 9562): a 48-bit Unix millisecond timestamp, then
+ * random bits. Consecutive IDs sort after one another both as uuid columns and as strings, so
+ * inserts append to the right edge of the primary key index instead of splitting random pages.
+ *
+ * <p>Within one millisecond the 12 {@code rand_a} bits count up from a random start (RFC 9562
+ * method 1), keeping the IDs of one generator strictly increasing; when they run out, or the
+ * clock steps back, the timestamp is advanced past the last one issued.
+ */
+public final class UuidV7 {
+
+  private static final UuidV7 SYSTEM = new UuidV7(System::currentTimeMillis, new SecureRandom());
+
+  private static final int COUNTER_BITS = 12;
+
+  private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+
+  private static final long VERSION = 0x7000L;
+
+  private static final long VARIANT = 0x8000_0000_0000_0000L;
+
+  private static final long RAND_B_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+  private final LongSupplier clock;
+  private final Random random;
+
+  private long lastMillis = -1;
+  private int counter;
+
+  /**
+   * Creates a generator; the shared one from {@link #next()} suits everything but tests.
+   *
+   * @param clock  current time in Unix milliseconds
+   * @param random source of the random bits
+   */
+  public UuidV7(LongSupplier clock, Random random) {
+    this.clock = clock;
+    this.random = random;
+  }
+
+  /**
+   * Generates a UUIDv7 from the system clock.
+   *
+   * @return a new ID, greater than every ID previously returned by this method
+   */
+  public static UUID next() {
+    return SYSTEM.generate();
+  }
+
+  /**
+   * Generates a UUIDv7 from this generator's clock.
+   *
+   * @return a new ID, greater than every ID previously generated by this generator
+   */
+  public UUID generate() {
+    final long millis;
+    final int sequence;
+    synchronized (this) {
+      final long now = clock.getAsLong();
+      if (now > lastMillis) {
+        lastMillis = now;
+        // start low enough in the range to leave room for a burst within the millisecond
+        counter = random.nextInt(MAX_COUNTER >> 1);
+      } else if (counter < MAX_COUNTER) {
+        counter++;
+      } else {
+        lastMillis++;
+        counter = 0;
+      }
+      millis = lastMillis;
+      sequence = counter;
+    }
+    final long mostSignificant = (millis << 16) | VERSION | sequence;
+    return new UUID(mostSignificant, VARIANT | (random.nextLong() & RAND_B_MASK));
+  }
+
+  /**
+   * The creation time encoded in a UUIDv7.
+   *
+   * @param id a version 7 UUID
+   * @return its timestamp in Unix milliseconds
+   */
+  public static long timestampMillis(UUID id) {
+    return id.getMostSignificantBits() >>> 16;
+  }
+}
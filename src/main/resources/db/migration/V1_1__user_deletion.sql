@@ -0,0 +1,19 @@
+-- Deferred user deletion: users are flagged at once and their records removed in the background,
+-- with the progress of each removal kept in user_purges. Runs before the V2 indexes on both.
+
+ALTER TABLE users ADD COLUMN deletion_requested_at TIMESTAMP(6);
+
+-- no foreign key to users, the user row is gone once the purge completes
+CREATE TABLE user_purges (
+    user_id VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    requested_at TIMESTAMP(6) NOT NULL,
+    next_attempt_at TIMESTAMP(6) NOT NULL,
+    attempts INTEGER NOT NULL,
+    prescriptions_deleted BIGINT NOT NULL,
+    shared_permissions_deleted BIGINT NOT NULL,
+    last_error VARCHAR(1000),
+    completed_at TIMESTAMP(6),
+    CONSTRAINT pk_user_purges PRIMARY KEY (user_id),
+    CONSTRAINT ck_user_purges_status CHECK (status IN ('PENDING', 'COMPLETED', 'FAILED'))
+);
@@ -0,0 +1,51 @@
+-- Schema of the released entities as created by Hibernate (ddl-auto=update). Databases created
+-- that way are baselined at this version (spring.flyway.baseline-on-migrate) and never run this
+-- script, so it must not gain anything the release did not have; changes go in later versions.
+-- Kept to portable SQL, it runs unchanged on PostgreSQL and H2.
+
+CREATE TABLE users (
+    user_id VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    hashed_password VARCHAR(255) NOT NULL,
+    user_type VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_users PRIMARY KEY (user_id),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT ck_users_user_type
+        CHECK (user_type IN ('PATIENT', 'HEALTHCARE_PROVIDER', 'FIRST_RESPONDER'))
+);
+
+CREATE TABLE medications (
+    medication_id VARCHAR(255) NOT NULL,
+    medication_name VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_medications PRIMARY KEY (medication_id)
+);
+
+CREATE TABLE prescriptions (
+    prescription_id VARCHAR(255) NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    medication_id VARCHAR(255) NOT NULL,
+    dosage INTEGER NOT NULL,
+    num_doses INTEGER,
+    start_date TIMESTAMP(6) NOT NULL,
+    end_date TIMESTAMP(6),
+    is_active BOOLEAN,
+    CONSTRAINT pk_prescriptions PRIMARY KEY (prescription_id),
+    CONSTRAINT fk_prescriptions_user FOREIGN KEY (user_id) REFERENCES users (user_id),
+    CONSTRAINT fk_prescriptions_medication
+        FOREIGN KEY (medication_id) REFERENCES medications (medication_id)
+);
+
+CREATE TABLE shared_permissions (
+    share_request_id VARCHAR(255) NOT NULL,
+    owner_id VARCHAR(255) NOT NULL,
+    requester_id VARCHAR(255) NOT NULL,
+    share_request_status VARCHAR(255) NOT NULL,
+    share_permission_type VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_shared_permissions PRIMARY KEY (share_request_id),
+    CONSTRAINT fk_shared_permissions_owner FOREIGN KEY (owner_id) REFERENCES users (user_id),
+    CONSTRAINT fk_shared_permissions_requester
+        FOREIGN KEY (requester_id) REFERENCES users (user_id),
+    CONSTRAINT ck_shared_permissions_status
+        CHECK (share_request_status IN ('PENDING', 'ACCEPT', 'DENY')),
+    CONSTRAINT ck_shared_permissions_type CHECK (share_permission_type IN ('VIEW', 'EDIT'))
+);
@@ -0,0 +1,32 @@
+-- Indexes designed for the repository queries. IF NOT EXISTS because databases baselined from
+-- ddl-auto=update may already hold some of them under the same names.
+
+-- PrescriptionRepository: listing and export order (user_id = ? ORDER BY start_date DESC,
+-- prescription_id DESC), keyset pages, the export stream and the purge's chunked deletes
+CREATE INDEX IF NOT EXISTS idx_prescriptions_user_start_id
+    ON prescriptions (user_id, start_date, prescription_id);
+
+-- PrescriptionRepository: listing filtered by medication
+CREATE INDEX IF NOT EXISTS idx_prescriptions_user_medication_start
+    ON prescriptions (user_id, medication_id, start_date);
+
+-- SharedPermissionRepository: equality on owner, requester, status and type in
+-- resolveEffectivePermission and findByOwnerAndRequester..., and owner_id in the purge
+CREATE INDEX IF NOT EXISTS idx_shared_permissions_owner_requester
+    ON shared_permissions (owner_id, requester_id, share_request_status, share_permission_type);
+
+-- SharedPermissionRepository: the requester side of deleteChunkInvolvingUser
+CREATE INDEX IF NOT EXISTS idx_shared_permissions_requester
+    ON shared_permissions (requester_id);
+
+-- UserRepository: findByEmail is served by the unique constraint; findIdsPendingDeletion
+CREATE INDEX IF NOT EXISTS idx_users_deletion_requested_at
+    ON users (deletion_requested_at);
+
+-- MedicationRepository: pages in (medication_name, medication_id) order
+CREATE INDEX IF NOT EXISTS idx_medications_name_id
+    ON medications (medication_name, medication_id);
+
+-- UserPurgeRepository: due purges by status and next attempt
+CREATE INDEX IF NOT EXISTS idx_user_purges_status_next_attempt
+    ON user_purges (status, next_attempt_at);
@@ -0,0 +1,5 @@
+-- Adds the RUNNING status of a purge claimed by one instance. user_purges is always created by
+-- V1.1, so the check is known by name.
+ALTER TABLE user_purges DROP CONSTRAINT ck_user_purges_status;
+ALTER TABLE user_purges ADD CONSTRAINT ck_user_purges_status
+    CHECK (status IN ('PENDING', 'RUNNING', 'COMPLETED', 'FAILED'));
@@ -1,42 +1,66 @@
 package com.bytecoders.pharmaid;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.bytecoders.pharmaid.openapi.model.BulkPrescriptionResult;
 import com.bytecoders.pharmaid.openapi.model.CreatePrescriptionRequest;
 import com.bytecoders.pharmaid.openapi.model.LoginUserRequest;
 import com.bytecoders.pharmaid.openapi.model.LoginUserResponse;
 import com.bytecoders.pharmaid.openapi.model.RegisterUserRequest;
 import com.bytecoders.pharmaid.openapi.model.UpdatePrescriptionRequest;
 import com.bytecoders.pharmaid.openapi.model.UserType;
+import com.bytecoders.pharmaid.repository.PrescriptionFilter;
 import com.bytecoders.pharmaid.repository.model.Medication;
 import com.bytecoders.pharmaid.repository.model.Prescription;
 import com.bytecoders.pharmaid.repository.model.User;
+import com.bytecoders.pharmaid.security.PublicEndpointMatcher;
+import com.bytecoders.pharmaid.security.VerifiedTokenCache;
+import com.bytecoders.pharmaid.service.ExportFormat;
+import com.bytecoders.pharmaid.service.MedicationCatalog;
 import com.bytecoders.pharmaid.service.MedicationService;
+import com.bytecoders.pharmaid.service.PrescriptionExport;
 import com.bytecoders.pharmaid.service.PrescriptionService;
+import com.bytecoders.pharmaid.service.UserPurger;
 import com.bytecoders.pharmaid.service.UserService;
 import com.bytecoders.pharmaid.util.JwtUtils;
+import com.bytecoders.pharmaid.util.KeysetPage;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Future;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 /**
@@ -54,7 +78,7 @@ public class PharmaidControllerTests {
     request.setUserType(UserType.PATIENT);
 
     final User mockUser = new User();
-    mockUser.setId("someid");
+    mockUser.setId(id("someid"));
     mockUser.setEmail("ol2260@columbia.edu");
     mockUser.setUserType(UserType.PATIENT);
 
@@ -130,31 +154,37 @@ public class PharmaidControllerTests {
     assertEquals("Invalid email or password", response.getBody());
   }
 
+  /**
+   * Test that a saturated password hashing pool surfaces as 503 rather than 500.
+   */
+  @Test
+  void testLoginHashingPoolSaturated() {
+    LoginUserRequest request = new LoginUserRequest();
+    request.setEmail("test@example.com");
+    request.setPassword("password");
+
+    when(userService.loginUser(request)).thenThrow(
+        new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server is busy"));
+
+    ResponseStatusException e =
+        assertThrows(ResponseStatusException.class, () -> testController.login(request));
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+  }
+
   /**
    * Test for successfully deleting a user.
    */
   @Test
   public void deleteUserSuccess() {
-    User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
-
-    Prescription mockPrescription = new Prescription();
-    String prescriptionId = "prescriptionId";
-    mockPrescription.setUser(mockUser);
-    mockPrescription.setId(prescriptionId);
-    List<Prescription> mockUsersPrescriptions = new ArrayList<>();
-    mockUsersPrescriptions.add(mockPrescription);
-
-    when(userService.getUser(userId)).thenReturn(mockUser);
-    when(prescriptionService.getPrescriptionsForUser(userId)).thenReturn(mockUsersPrescriptions);
 
     final ResponseEntity<?> deletedUser = testController.deleteUser(userId);
-    assertEquals(deletedUser.getStatusCode(), HttpStatus.OK);
-    assertEquals(deletedUser.getBody(), "User deleted successfully");
+    assertEquals(deletedUser.getStatusCode(), HttpStatus.ACCEPTED);
+    assertEquals(deletedUser.getBody(), "User scheduled for deletion");
 
-    verify(prescriptionService).deletePrescription(prescriptionId);
+    // prescriptions are purged in the background, not one by one
     verify(userService).deleteUser(userId);
+    verify(prescriptionService, never()).deletePrescription(anyString());
   }
 
   /**
@@ -164,8 +194,9 @@ public class PharmaidControllerTests {
   public void deleteUserInvalidUser() {
     String userId = "userId";
 
-    when(userService.getUser(userId)).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND,
-        String.format("Provided userId does not exist: %s", userId)));
+    doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND,
+        String.format("Provided userId does not exist: %s", userId)))
+        .when(userService).deleteUser(userId);
 
     ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
       testController.deleteUser(userId);
@@ -174,26 +205,110 @@ public class PharmaidControllerTests {
     assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
     assertEquals(String.format("Provided userId does not exist: %s", userId),
         exception.getReason());
-
-    verify(prescriptionService, never()).getPrescriptionsForUser(anyString());
-    verify(prescriptionService, never()).deletePrescription(anyString());
   }
 
   /**
    * Test for getting all medications.
    */
   @Test
-  void testGetAllMedications() {
+  void testGetAllMedications() throws Exception {
     Medication med1 = new Medication();
-    med1.setId("med1");
+    med1.setId(id("med1"));
     Medication med2 = new Medication();
-    med2.setId("med2");
+    med2.setId(id("med2"));
 
-    when(medicationService.getAllMedications()).thenReturn(Arrays.asList(med1, med2));
+    MedicationCatalog catalog = MedicationCatalog.of(Arrays.asList(med1, med2), objectMapper);
+    when(medicationService.getCatalog()).thenReturn(catalog);
 
-    ResponseEntity<?> response = testController.getAllMedications();
+    ResponseEntity<?> response = testController.getAllMedications(null, null, null);
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertEquals(Arrays.asList(med1, med2), response.getBody());
+    assertEquals(catalog.etag(), response.getHeaders().getETag());
+    assertEquals(Arrays.asList(med1, med2), Arrays.asList(
+        objectMapper.readValue((byte[]) response.getBody(), Medication[].class)));
+  }
+
+  /**
+   * Test that a client holding the current catalog gets 304 without a body.
+   */
+  @Test
+  void testGetAllMedicationsNotModified() throws Exception {
+    Medication med1 = new Medication();
+    med1.setId(id("med1"));
+    MedicationCatalog catalog = MedicationCatalog.of(List.of(med1), objectMapper);
+    when(medicationService.getCatalog()).thenReturn(catalog);
+
+    ResponseEntity<?> response = testController.getAllMedications(null, null, catalog.etag());
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    assertEquals(catalog.etag(), response.getHeaders().getETag());
+    assertNull(response.getBody());
+
+    response = testController.getAllMedications(null, null, "\"stale\"");
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+  }
+
+  /**
+   * Test for keyset paging of medications with a next link.
+   */
+  @Test
+  void testGetMedicationsPage() {
+    Medication med1 = new Medication();
+    med1.setId(id("med1"));
+    KeysetPage<Medication> page = new KeysetPage<>(List.of(med1), "nextCursor");
+    when(medicationService.getMedicationsPage("cursor", 1)).thenReturn(page);
+
+    ResponseEntity<?> response = testController.getAllMedications(1, "cursor", null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(med1), response.getBody());
+    assertEquals("</medications?limit=1&cursor=nextCursor>; rel=\"next\"",
+        response.getHeaders().getFirst(HttpHeaders.LINK));
+
+    // a cursor alone uses the default page size; the last page has no next link
+    when(medicationService.getMedicationsPage("lastCursor", KeysetPage.DEFAULT_LIMIT))
+        .thenReturn(new KeysetPage<>(List.of(med1), null));
+    response = testController.getAllMedications(null, "lastCursor", null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  /**
+   * Test that an out-of-range page size is rejected.
+   */
+  @Test
+  void testGetMedicationsPageInvalidLimit() {
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> testController.getAllMedications(KeysetPage.MAX_LIMIT + 1, null, null));
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+  }
+
+  /**
+   * Test for medication name search.
+   */
+  @Test
+  void testSearchMedications() {
+    Medication med1 = new Medication();
+    med1.setId(id("med1"));
+    med1.setMedicationName("Ibuprofen");
+    when(medicationService.searchMedications("ibu", MedicationService.SEARCH_DEFAULT_LIMIT))
+        .thenReturn(List.of(med1));
+
+    ResponseEntity<?> response = testController.searchMedications("ibu", null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(med1), response.getBody());
+  }
+
+  /**
+   * Test that blank queries and out-of-range limits are rejected.
+   */
+  @Test
+  void testSearchMedicationsInvalidRequest() {
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> testController.searchMedications(" ", null));
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+
+    e = assertThrows(ResponseStatusException.class,
+        () -> testController.searchMedications("ibu", MedicationService.SEARCH_MAX_LIMIT + 1));
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    verify(medicationService, never()).searchMedications(anyString(), any(Integer.class));
   }
 
   /**
@@ -212,13 +327,13 @@ public class PharmaidControllerTests {
 
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
 
     Medication mockMed = new Medication();
-    mockMed.setId("medId");
+    mockMed.setId(id("medId"));
 
     Prescription mockPrescription = new Prescription();
-    mockPrescription.setId("prescriptionId");
+    mockPrescription.setId(id("prescriptionId"));
 
     when(userService.getUser(userId)).thenReturn(mockUser);
     when(medicationService.getMedication("medId")).thenReturn(mockMed);
@@ -262,7 +377,7 @@ public class PharmaidControllerTests {
 
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
 
     doThrow(new ResponseStatusException(HttpStatus.FORBIDDEN,
         String.format("User %s is not authorized to add prescriptions for user: %s",
@@ -289,19 +404,19 @@ public class PharmaidControllerTests {
 
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
     when(userService.getUser(userId)).thenReturn(mockUser);
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
     mockPrescription.setStartDate(new Date(request.getEndDate().getTime() - 24 * 60 * 60 * 1000));
     mockPrescription.setUser(mockUser);
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
     when(prescriptionService.getPrescription(prescriptionId)).thenReturn(mockPrescription);
 
     Prescription updatedPrescription = new Prescription();
     updatedPrescription.setUser(mockUser);
-    updatedPrescription.setId(prescriptionId);
+    updatedPrescription.setId(id(prescriptionId));
     updatedPrescription.setStartDate(
         new Date(request.getEndDate().getTime() - 24 * 60 * 60 * 1000));
     updatedPrescription.setEndDate(request.getEndDate());
@@ -325,19 +440,19 @@ public class PharmaidControllerTests {
 
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
     when(userService.getUser(userId)).thenReturn(mockUser);
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
     mockPrescription.setStartDate(new Date(request.getEndDate().getTime() - 24 * 60 * 60 * 1000));
     mockPrescription.setUser(mockUser);
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
     when(prescriptionService.getPrescription(prescriptionId)).thenReturn(mockPrescription);
 
     Prescription updatedPrescription = new Prescription();
     updatedPrescription.setUser(mockUser);
-    updatedPrescription.setId(prescriptionId);
+    updatedPrescription.setId(id(prescriptionId));
     updatedPrescription.setStartDate(
             new Date(request.getEndDate().getTime() - 24 * 60 * 60 * 1000));
     updatedPrescription.setEndDate(request.getEndDate());
@@ -361,19 +476,19 @@ public class PharmaidControllerTests {
 
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
     when(userService.getUser(userId)).thenReturn(mockUser);
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
     mockPrescription.setStartDate(new Date());
     mockPrescription.setUser(mockUser);
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
     when(prescriptionService.getPrescription(prescriptionId)).thenReturn(mockPrescription);
 
     Prescription updatedPrescription = new Prescription();
     updatedPrescription.setUser(mockUser);
-    updatedPrescription.setId(prescriptionId);
+    updatedPrescription.setId(id(prescriptionId));
     updatedPrescription.setStartDate(new Date());
     updatedPrescription.setIsActive(true);
     when(prescriptionService.updatePrescription(any(Prescription.class))).thenReturn(
@@ -402,13 +517,13 @@ public class PharmaidControllerTests {
 
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
     when(userService.getUser(userId)).thenReturn(mockUser);
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
     mockPrescription.setUser(mockUser);
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
     mockPrescription.setStartDate(new Date(request.getEndDate().getTime() - 24 * 60 * 60 * 1000));
     when(prescriptionService.getPrescription(prescriptionId)).thenReturn(mockPrescription);
 
@@ -433,16 +548,16 @@ public class PharmaidControllerTests {
   public void updatePrescriptionInvalidPrescriptionUserCombo() {
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
     when(userService.getUser(userId)).thenReturn(mockUser);
 
     User someOtherUser = new User();
-    mockUser.setId("someOtherUserId");
+    mockUser.setId(id("someOtherUserId"));
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
     mockPrescription.setUser(someOtherUser);
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
     when(prescriptionService.getPrescription(prescriptionId)).thenReturn(mockPrescription);
 
     UpdatePrescriptionRequest request = new UpdatePrescriptionRequest();
@@ -478,12 +593,12 @@ public class PharmaidControllerTests {
   public void removePrescriptionSuccess() {
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
     mockPrescription.setUser(mockUser);
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
     mockPrescription.setEndDate(new Date());
     mockPrescription.setIsActive(true);
 
@@ -504,11 +619,11 @@ public class PharmaidControllerTests {
   public void removePrescriptionInvalidUser() {
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
 
     when(userService.getUser(userId)).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND,
         String.format("Provided user does not exist: %s", userId)));
@@ -530,11 +645,11 @@ public class PharmaidControllerTests {
   public void removePrescriptionInvalidPrescription() {
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
 
     when(prescriptionService.getPrescription(prescriptionId)).thenThrow(
         new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -557,15 +672,15 @@ public class PharmaidControllerTests {
   public void removePrescriptionInvalidUserPrescriptionCombo() {
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
 
     User someOtherUser = new User();
     String someOtherUserId = "someOtherUserId";
-    mockUser.setId(someOtherUserId);
+    mockUser.setId(id(someOtherUserId));
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
     mockPrescription.setUser(someOtherUser);
 
     when(prescriptionService.getPrescription(prescriptionId)).thenReturn(mockPrescription);
@@ -585,11 +700,11 @@ public class PharmaidControllerTests {
   void removePrescriptionWithoutPermission() {
     User mockUser = new User();
     String userId = "userId";
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
 
     Prescription mockPrescription = new Prescription();
     String prescriptionId = "prescriptionId";
-    mockPrescription.setId(prescriptionId);
+    mockPrescription.setId(id(prescriptionId));
     mockPrescription.setUser(mockUser);
 
     when(userService.getUser(userId)).thenReturn(mockUser);
@@ -616,20 +731,65 @@ public class PharmaidControllerTests {
   void testGetPrescriptionsForUser() {
     String userId = "userId";
     User mockUser = new User();
-    mockUser.setId(userId);
+    mockUser.setId(id(userId));
 
     Prescription prescription1 = new Prescription();
-    prescription1.setId("prescription1");
+    prescription1.setId(id("prescription1"));
     Prescription prescription2 = new Prescription();
-    prescription2.setId("prescription2");
+    prescription2.setId(id("prescription2"));
 
     when(userService.getUser(userId)).thenReturn(mockUser);
-    when(prescriptionService.getPrescriptionsForUser(userId)).thenReturn(
-        Arrays.asList(prescription1, prescription2));
+    when(prescriptionService.getPrescriptionsPage(userId, PrescriptionFilter.NONE, null,
+        KeysetPage.DEFAULT_LIMIT))
+        .thenReturn(new KeysetPage<>(Arrays.asList(prescription1, prescription2), null));
 
-    ResponseEntity<?> response = testController.getPrescriptionsForUser(userId);
+    ResponseEntity<?> response =
+        testController.getPrescriptionsForUser(userId, null, null, null, null, null, null);
     assertEquals(HttpStatus.OK, response.getStatusCode());
     assertEquals(Arrays.asList(prescription1, prescription2), response.getBody());
+    assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  /**
+   * Test for a filtered page of prescriptions whose next link keeps the filters.
+   */
+  @Test
+  void testGetPrescriptionsForUserFilteredPage() {
+    String userId = "userId";
+    when(userService.getUser(userId)).thenReturn(new User());
+    Prescription prescription = new Prescription();
+    prescription.setId(id("prescription1"));
+    LocalDate from = LocalDate.of(2024, 1, 1);
+    LocalDate to = LocalDate.of(2024, 6, 30);
+    PrescriptionFilter filter = new PrescriptionFilter(true, from, to, "med1");
+    when(prescriptionService.getPrescriptionsPage(userId, filter, "cursor", 1))
+        .thenReturn(new KeysetPage<>(List.of(prescription), "nextCursor"));
+
+    ResponseEntity<?> response =
+        testController.getPrescriptionsForUser(userId, true, from, to, "med1", 1, "cursor");
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(prescription), response.getBody());
+    assertEquals("</users/userId/prescriptions?isActive=true&from=2024-01-01&to=2024-06-30"
+            + "&medicationId=med1&limit=1&cursor=nextCursor>; rel=\"next\"",
+        response.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  /**
+   * Test for invalid prescription listing parameters.
+   */
+  @Test
+  void testGetPrescriptionsForUserInvalidRequest() {
+    String userId = "userId";
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+        () -> testController.getPrescriptionsForUser(userId, null, LocalDate.of(2024, 2, 1),
+            LocalDate.of(2024, 1, 1), null, null, null));
+    assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+
+    exception = assertThrows(ResponseStatusException.class,
+        () -> testController.getPrescriptionsForUser(userId, null, null, null, null, 0, null));
+    assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    verify(userService, never()).getUser(userId);
   }
 
   @Test
@@ -639,10 +799,10 @@ public class PharmaidControllerTests {
     doThrow(new ResponseStatusException(HttpStatus.FORBIDDEN,
         String.format("User %s is not authorized to view prescriptions of user: %s",
             jwtUtils.getLoggedInUserId(), userId))).when(prescriptionService)
-        .getPrescriptionsForUser(userId);
+        .getPrescriptionsPage(userId, PrescriptionFilter.NONE, null, KeysetPage.DEFAULT_LIMIT);
 
     ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-      testController.getPrescriptionsForUser(userId);
+      testController.getPrescriptionsForUser(userId, null, null, null, null, null, null);
     });
 
     assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
@@ -661,7 +821,7 @@ public class PharmaidControllerTests {
         String.format("Provided userId does not exist: %s", userId)));
 
     ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-      testController.getPrescriptionsForUser(userId);
+      testController.getPrescriptionsForUser(userId, null, null, null, null, null, null);
     });
 
     assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
@@ -669,6 +829,133 @@ public class PharmaidControllerTests {
         exception.getReason());
   }
 
+  /**
+   * Test for exporting a user's prescriptions as CSV.
+   */
+  @Test
+  void testExportPrescriptions() {
+    String userId = "userId";
+    PrescriptionExport body = mock(PrescriptionExport.class);
+    when(userService.getUser(userId)).thenReturn(new User());
+    when(prescriptionService.exportPrescriptions(userId, ExportFormat.CSV)).thenReturn(body);
+
+    ResponseEntity<?> response = testController.exportPrescriptions(userId, "CSV",
+        new ServletWebRequest(new MockHttpServletRequest()));
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(body, response.getBody());
+    assertEquals("text/csv", response.getHeaders().getContentType().toString());
+    assertEquals("attachment; filename=\"prescriptions-userId.csv\"",
+        response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+  }
+
+  /**
+   * Test for exporting prescriptions in an unsupported format.
+   */
+  @Test
+  void testExportPrescriptionsUnsupportedFormat() {
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+        () -> testController.exportPrescriptions("userId", "xml",
+            new ServletWebRequest(new MockHttpServletRequest())));
+
+    assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    verify(prescriptionService, never()).exportPrescriptions(anyString(), any());
+  }
+
+  /**
+   * Test for an export whose body never runs, as the async executor rejects it: its slot is
+   * still released once the request completes.
+   */
+  @Test
+  void testExportPrescriptionsReleasedWhenBodyNeverRuns() throws Exception {
+    String userId = "userId";
+    PrescriptionExport body = mock(PrescriptionExport.class);
+    when(userService.getUser(userId)).thenReturn(new User());
+    when(prescriptionService.exportPrescriptions(userId, ExportFormat.CSV)).thenReturn(body);
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setAsyncSupported(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    testController.exportPrescriptions(userId, "CSV", new ServletWebRequest(request, response));
+    // what Spring MVC does with the returned body, on an executor that has no room for it
+    WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+    asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+    asyncManager.setTaskExecutor(new SimpleAsyncTaskExecutor() {
+      @Override
+      public Future<?> submit(Runnable task) {
+        throw new TaskRejectedException("executor busy");
+      }
+    });
+    asyncManager.startCallableProcessing(() -> {
+      body.writeTo(response.getOutputStream());
+      return null;
+    });
+    request.getAsyncContext().complete();
+
+    verify(body, never()).writeTo(any());
+    verify(body).release();
+  }
+
+  /**
+   * Test for bulk creation where every item is created.
+   */
+  @Test
+  void testAddPrescriptionsAllCreated() {
+    String userId = "userId";
+    User mockUser = new User();
+    mockUser.setId(id(userId));
+    final List<CreatePrescriptionRequest> requests = List.of(new CreatePrescriptionRequest());
+    BulkPrescriptionResult created = new BulkPrescriptionResult();
+    created.setIndex(0);
+    created.setStatus(HttpStatus.CREATED.value());
+    created.setPrescriptionId("prescriptionId");
+    when(userService.getUser(userId)).thenReturn(mockUser);
+    when(prescriptionService.createPrescriptions(mockUser, requests)).thenReturn(List.of(created));
+
+    ResponseEntity<?> response = testController.addPrescriptions(userId, requests);
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    assertEquals(List.of(created), response.getBody());
+  }
+
+  /**
+   * Test for bulk creation where some items are rejected.
+   */
+  @Test
+  void testAddPrescriptionsPartiallyRejected() {
+    String userId = "userId";
+    User mockUser = new User();
+    final List<CreatePrescriptionRequest> requests =
+        List.of(new CreatePrescriptionRequest(), new CreatePrescriptionRequest());
+    BulkPrescriptionResult created = new BulkPrescriptionResult();
+    created.setStatus(HttpStatus.CREATED.value());
+    BulkPrescriptionResult rejected = new BulkPrescriptionResult();
+    rejected.setStatus(HttpStatus.NOT_FOUND.value());
+    when(userService.getUser(userId)).thenReturn(mockUser);
+    when(prescriptionService.createPrescriptions(mockUser, requests))
+        .thenReturn(List.of(created, rejected));
+
+    ResponseEntity<?> response = testController.addPrescriptions(userId, requests);
+    assertEquals(HttpStatus.MULTI_STATUS, response.getStatusCode());
+  }
+
+  /**
+   * Test for bulk creation with an empty or oversized request.
+   */
+  @Test
+  void testAddPrescriptionsInvalidSize() {
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+        () -> testController.addPrescriptions("userId", List.of()));
+    assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+
+    List<CreatePrescriptionRequest> tooMany = new ArrayList<>();
+    for (int i = 0; i <= PrescriptionService.MAX_BULK_ITEMS; i++) {
+      tooMany.add(new CreatePrescriptionRequest());
+    }
+    exception = assertThrows(ResponseStatusException.class,
+        () -> testController.addPrescriptions("userId", tooMany));
+    assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    verify(prescriptionService, never()).createPrescriptions(any(), any());
+  }
+
   @Test
   void testControllerActiveProfile() {
     log.info("PharmaidControllerTests active Spring profile: {}", activeProfile);
@@ -693,6 +980,20 @@ public class PharmaidControllerTests {
   @MockBean
   private JwtUtils jwtUtils;
 
+  @MockBean
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @MockBean
+  private PublicEndpointMatcher publicEndpointMatcher;
+
+  @MockBean
+  private UserPurger userPurger;
+
   @Autowired
   private ObjectMapper objectMapper;
+
+  /** Stable entity ID for a readable name; the controller only passes IDs through as strings. */
+  private static UUID id(String name) {
+    return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+  }
 }
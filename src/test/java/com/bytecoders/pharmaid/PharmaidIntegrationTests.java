@@ -450,8 +450,8 @@ class PharmaidIntegrationTests {
       String responseBody = (String) response.getBody();
 
       // asserts
-      assertEquals("User deleted successfully", responseBody);
-      assertEquals(HttpStatus.OK, response.getStatusCode(),
+      assertEquals("User scheduled for deletion", responseBody);
+      assertEquals(HttpStatus.ACCEPTED, response.getStatusCode(),
           "Client deletion failed for " + user.get("email"));
       log.info("(14) Deleted client: {}", user.get("email"));
     }
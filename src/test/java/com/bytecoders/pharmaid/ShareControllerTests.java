@@ -12,9 +12,13 @@ import com.bytecoders.pharmaid.openapi.model.ShareRequestStatus;
 import com.bytecoders.pharmaid.openapi.model.UserType;
 import com.bytecoders.pharmaid.repository.model.SharedPermission;
 import com.bytecoders.pharmaid.repository.model.User;
+import com.bytecoders.pharmaid.security.PublicEndpointMatcher;
+import com.bytecoders.pharmaid.security.VerifiedTokenCache;
 import com.bytecoders.pharmaid.service.SharedPermissionService;
+import com.bytecoders.pharmaid.service.UserPurger;
 import com.bytecoders.pharmaid.util.JwtUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +37,15 @@ class ShareControllerTests {
   @MockBean
   private JwtUtils jwtUtils;
 
+  @MockBean
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @MockBean
+  private PublicEndpointMatcher publicEndpointMatcher;
+
+  @MockBean
+  private UserPurger userPurger;
+
   @MockBean
   private SharedPermissionService sharedPermissionService;
 
@@ -46,21 +59,24 @@ class ShareControllerTests {
   private User requester;
   private SharedPermission permission;
   private ShareRequest request;
+  private final String ownerId = "0b9e8c4a-5f0e-4a39-9d5e-7c6f2b1a3e44";
+  private final String requesterId = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
+  private final String permissionId = "3d6f0b17-1c4b-4b62-928e-d0b1e6e62b97";
 
   @BeforeEach
   void setUp() {
     // owner user of the health records
     owner = new User();
-    owner.setId("owner123");
+    owner.setId(UUID.fromString(ownerId));
 
     // user making a request to interact with another user's health records
     requester = new User();
-    requester.setId("requester456");
+    requester.setId(UUID.fromString(requesterId));
     requester.setUserType(UserType.HEALTHCARE_PROVIDER);
 
     // create a share permission
     permission = new SharedPermission();
-    permission.setId("permission789");
+    permission.setId(UUID.fromString(permissionId));
     permission.setOwner(owner);
     permission.setRequester(requester);
     permission.setSharePermissionType(SharePermissionType.EDIT);
@@ -74,12 +90,12 @@ class ShareControllerTests {
   @Test
   void requestAccess_Success() {
     // Mock log in and createSharingRequest()
-    when(jwtUtils.getLoggedInUserId()).thenReturn(requester.getId());
-    when(sharedPermissionService.createSharingRequest(requester.getId(), owner.getId(),
+    when(jwtUtils.getLoggedInUserId()).thenReturn(requesterId);
+    when(sharedPermissionService.createSharingRequest(requesterId, ownerId,
         SharePermissionType.EDIT)).thenReturn(permission);
 
     // Generate requestAccess() request
-    ResponseEntity<?> response = shareController.requestAccess(owner.getId(), request);
+    ResponseEntity<?> response = shareController.requestAccess(ownerId, request);
 
     // Assertions
     assertEquals(response.getStatusCode(), HttpStatus.CREATED);
@@ -90,13 +106,13 @@ class ShareControllerTests {
   @Test
   void acceptRequest_Success() {
     // Mock login and shareRequestAction()
-    when(jwtUtils.getLoggedInUserId()).thenReturn(owner.getId());
-    when(sharedPermissionService.shareRequestAction(owner.getId(), permission.getId(),
+    when(jwtUtils.getLoggedInUserId()).thenReturn(ownerId);
+    when(sharedPermissionService.shareRequestAction(ownerId, permissionId,
         ShareRequestStatus.ACCEPT)).thenReturn(permission);
 
     // Generate acceptShareRequest() request
     ResponseEntity<?> response =
-        shareController.acceptShareRequest(owner.getId(), permission.getId());
+        shareController.acceptShareRequest(ownerId, permissionId);
 
     // Assertions
     assertEquals(response.getStatusCode(), HttpStatus.OK);
@@ -107,13 +123,13 @@ class ShareControllerTests {
   @Test
   void denyRequest_Success() {
     // Mock login and shareRequestAction()
-    when(jwtUtils.getLoggedInUserId()).thenReturn(owner.getId());
-    when(sharedPermissionService.shareRequestAction(owner.getId(), permission.getId(),
+    when(jwtUtils.getLoggedInUserId()).thenReturn(ownerId);
+    when(sharedPermissionService.shareRequestAction(ownerId, permissionId,
         ShareRequestStatus.DENY)).thenReturn(permission);
 
     // Generate denyShareRequest() request
     ResponseEntity<?> response =
-        shareController.denyShareRequest(owner.getId(), permission.getId());
+        shareController.denyShareRequest(ownerId, permissionId);
 
     // Assertions
     assertEquals(response.getStatusCode(), HttpStatus.OK);
@@ -125,13 +141,13 @@ class ShareControllerTests {
   @Test
   void revokeAccess_Success() {
     // Mock login and shareRequestAction()
-    when(jwtUtils.getLoggedInUserId()).thenReturn(owner.getId());
+    when(jwtUtils.getLoggedInUserId()).thenReturn(ownerId);
     doNothing().when(sharedPermissionService)
-        .revokeSharingPermission(owner.getId(), permission.getId());
+        .revokeSharingPermission(ownerId, permissionId);
 
     // Generate denyShareRequest() request
     ResponseEntity<?> response =
-        shareController.revokeShareAccess(owner.getId(), permission.getId());
+        shareController.revokeShareAccess(ownerId, permissionId);
 
     // Assertions
     assertEquals(response.getStatusCode(), HttpStatus.OK);
@@ -144,14 +160,14 @@ class ShareControllerTests {
     final String unauthorizedMessage = "Not authorized to revoke this request";
 
     // Mock login and revokeSharingPermission() to throw unauthorized access error
-    when(jwtUtils.getLoggedInUserId()).thenReturn(owner.getId());
+    when(jwtUtils.getLoggedInUserId()).thenReturn(ownerId);
     doThrow(new ResponseStatusException(HttpStatus.FORBIDDEN, unauthorizedMessage)).when(
             sharedPermissionService)
-        .revokeSharingPermission(eq(owner.getId()), eq(permission.getId()));
+        .revokeSharingPermission(eq(ownerId), eq(permissionId));
 
     // Generate revokeShareAccess() request
     ResponseEntity<?> response =
-        shareController.revokeShareAccess(owner.getId(), permission.getId());
+        shareController.revokeShareAccess(ownerId, permissionId);
 
     // Assertions
     assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
@@ -0,0 +1,203 @@
+package com.bytecoders.pharmaid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.bytecoders.pharmaid.repository.MedicationRepository;
+import com.bytecoders.pharmaid.repository.StatementMetrics;
+import com.bytecoders.pharmaid.repository.StatementTimingDataSource;
+import com.bytecoders.pharmaid.security.JwtRequestFilter;
+import com.bytecoders.pharmaid.security.PublicEndpointMatcher;
+import com.bytecoders.pharmaid.security.VerifiedTokenCache;
+import com.bytecoders.pharmaid.service.MedicationService;
+import com.bytecoders.pharmaid.service.UserPurger;
+import com.bytecoders.pharmaid.util.JwtPrincipal;
+import com.bytecoders.pharmaid.util.JwtUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelBaggageManager;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests the trace tree of an authenticated request: JWT filter, controller, service and JDBC
+ * spans, collected by an in-memory exporter instead of an external collector.
+ */
+public class TracingTests {
+
+  private static final String TOKEN = "test.jwt.token";
+
+  private static final String USER_ID = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
+
+  private static final String PAGE_SQL =
+      "SELECT id, medication_name FROM medications ORDER BY medication_name, id LIMIT ?";
+
+  private final InMemorySpanExporter spans = InMemorySpanExporter.create();
+
+  private final ObservationRegistry observations = ObservationRegistry.create();
+
+  private StatementTimingDataSource dataSource;
+
+  private JwtRequestFilter filter;
+
+  private PharmaidController controller;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    final SdkTracerProvider provider = SdkTracerProvider.builder()
+        .addSpanProcessor(SimpleSpanProcessor.create(spans))
+        .build();
+    final OtelCurrentTraceContext context = new OtelCurrentTraceContext();
+    final Tracer tracer = new OtelTracer(provider.get("pharmaid-test"), context, event -> { },
+        new OtelBaggageManager(context, List.of(), List.of()));
+    observations.observationConfig()
+        .observationHandler(new DefaultTracingObservationHandler(tracer));
+
+    final JdbcDataSource h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:tracing;DB_CLOSE_DELAY=-1");
+    try (Connection connection = h2.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS medications (id UUID, medication_name TEXT)");
+    }
+    final StatementMetrics metrics =
+        new StatementMetrics(new SimpleMeterRegistry(), tracer, 500, 500);
+    dataSource = new StatementTimingDataSource(h2, () -> metrics);
+
+    // stands in for the JPA query, issuing its SQL through the timed DataSource
+    final MedicationRepository repository = mock(MedicationRepository.class);
+    when(repository.findFirstPage(any(Pageable.class))).thenAnswer(invocation -> {
+      try (Connection connection = dataSource.getConnection();
+           PreparedStatement select = connection.prepareStatement(PAGE_SQL)) {
+        select.setInt(1, invocation.<Pageable>getArgument(0).getPageSize());
+        try (ResultSet rows = select.executeQuery()) {
+          assertFalse(rows.next());
+        }
+      }
+      return List.of();
+    });
+    final MedicationService service = new MedicationService();
+    ReflectionTestUtils.setField(service, "medicationRepository", repository);
+    controller = new PharmaidController();
+    ReflectionTestUtils.setField(controller, "medicationService", observed(service));
+    controller = observed(controller);
+
+    final JwtUtils jwtUtils = mock(JwtUtils.class);
+    when(jwtUtils.verifyToken(TOKEN))
+        .thenReturn(new JwtPrincipal(USER_ID, Instant.now().plusSeconds(60)));
+    filter = new JwtRequestFilter();
+    ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+    ReflectionTestUtils.setField(filter, "verifiedTokenCache",
+        new VerifiedTokenCache(false, 100, Duration.ofMinutes(1).toMillis()));
+    ReflectionTestUtils.setField(filter, "publicEndpointMatcher", new PublicEndpointMatcher());
+    ReflectionTestUtils.setField(filter, "userPurger", mock(UserPurger.class));
+    ReflectionTestUtils.setField(filter, "observationRegistry", observations);
+  }
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private <T> T observed(T target) {
+    final AspectJProxyFactory factory = new AspectJProxyFactory(target);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new ObservedAspect(observations));
+    return factory.getProxy();
+  }
+
+  private SpanData span(String name) {
+    return spans.getFinishedSpanItems().stream()
+        .filter(span -> span.getName().equals(name))
+        .findFirst()
+        .orElseThrow(() -> new AssertionError(
+            "No span " + name + " in " + spans.getFinishedSpanItems()));
+  }
+
+  @Test
+  void authenticatedRequest_Success_SpansNestFromControllerToJdbc() throws Exception {
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/medications");
+    request.addHeader("Authorization", "Bearer " + TOKEN);
+    final AtomicReference<ResponseEntity<?>> result = new AtomicReference<>();
+
+    // what the server observation around the filter chain does
+    final Observation server = Observation.start("http.server.requests", observations);
+    try (Observation.Scope scope = server.openScope()) {
+      filter.doFilter(request, new MockHttpServletResponse(),
+          (req, res) -> result.set(controller.getAllMedications(10, null, null)));
+    } finally {
+      server.stop();
+    }
+
+    assertEquals(HttpStatus.OK, result.get().getStatusCode());
+    final SpanData root = span("http.server.requests");
+    final SpanData jwt = span("pharmaid.jwt");
+    final SpanData controllerSpan = span("pharmaid-controller#get-all-medications");
+    final SpanData serviceSpan = span("medication-service#get-medications-page");
+    final SpanData jdbc = span("select medications");
+
+    assertEquals(5, spans.getFinishedSpanItems().size());
+    spans.getFinishedSpanItems()
+        .forEach(span -> assertEquals(root.getTraceId(), span.getTraceId()));
+    assertEquals(root.getSpanId(), jwt.getParentSpanId());
+    assertEquals(root.getSpanId(), controllerSpan.getParentSpanId());
+    assertEquals(controllerSpan.getSpanId(), serviceSpan.getParentSpanId());
+    assertEquals(serviceSpan.getSpanId(), jdbc.getParentSpanId());
+    // the token check ends before the handler starts, so its span is not inflated by it
+    assertTrue(jwt.getEndEpochNanos() <= controllerSpan.getStartEpochNanos());
+    assertEquals(PAGE_SQL, jdbc.getAttributes().get(AttributeKey.stringKey("db.statement")));
+  }
+
+  @Test
+  void jdbcSpan_Failure_RecordsError() throws SQLException {
+    final Observation parent = Observation.start("test", observations);
+    try (Observation.Scope scope = parent.openScope();
+         Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      assertThrows(SQLException.class, () -> statement.executeQuery("SELECT * FROM missing"));
+    } finally {
+      parent.stop();
+    }
+
+    final SpanData jdbc = span("select missing");
+    assertEquals(span("test").getSpanId(), jdbc.getParentSpanId());
+    assertEquals(StatusCode.ERROR, jdbc.getStatus().getStatusCode());
+    assertEquals("SELECT * FROM missing",
+        jdbc.getAttributes().get(AttributeKey.stringKey("db.statement")));
+  }
+}
@@ -0,0 +1,90 @@
+package com.bytecoders.pharmaid.benchmark;
+
+import com.bytecoders.pharmaid.util.JwtPrincipal;
+import com.bytecoders.pharmaid.util.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Cost of authenticating one request in {@code JwtRequestFilter}.
+ *
+ * <p>{@code legacyFilterPath} reproduces the previous flow, which decoded the key, built a parser
+ * and parsed the token three times (subject, subject again, expiry). {@code verifyOnce} is the
+ * current single parse with the cached key and parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+  private static final String USER_ID = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
+
+  private String secretKey;
+  private JwtUtils jwtUtils;
+  private String token;
+
+  /**
+   * Generates a signing key and a token valid for the whole run.
+   */
+  @Setup
+  public void setUp() {
+    secretKey = Base64.getEncoder()
+        .encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+    jwtUtils = new JwtUtils(secretKey, TimeUnit.HOURS.toMillis(1));
+    token = jwtUtils.generateToken(USER_ID);
+  }
+
+  private Claims legacyParse() {
+    return Jwts.parserBuilder()
+        .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey)))
+        .build()
+        .parseClaimsJws(token)
+        .getBody();
+  }
+
+  /**
+   * Previous filter flow: extractUserId, then isTokenValid re-extracting the subject and expiry.
+   */
+  @Benchmark
+  public boolean legacyFilterPath() {
+    String userId = legacyParse().getSubject();
+    return userId.equals(legacyParse().getSubject())
+        && !legacyParse().getExpiration().before(new Date());
+  }
+
+  @Benchmark
+  public JwtPrincipal verifyOnce() {
+    return jwtUtils.verifyToken(token);
+  }
+
+  /**
+   * Runs this benchmark from an IDE without the {@code benchmark} Maven profile.
+   */
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(JwtVerificationBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
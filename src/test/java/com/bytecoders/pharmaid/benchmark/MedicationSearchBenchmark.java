@@ -0,0 +1,87 @@
+package com.bytecoders.pharmaid.benchmark;
+
+import com.bytecoders.pharmaid.repository.model.Medication;
+import com.bytecoders.pharmaid.service.MedicationSearchIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Top-10 autocomplete latency of {@link MedicationSearchIndex} over a synthetic 100k-drug
+ * formulary, for a short prefix, a long prefix and a misspelling that needs the fuzzy path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class MedicationSearchBenchmark {
+
+  private static final String[] STEMS = {"ibupro", "aceta", "amoxi", "amlo", "atorva", "metfor",
+      "metopro", "lisino", "losar", "sertra", "omepra", "panto", "gaba", "predni", "cephal",
+      "cipro", "doxy", "fluox", "hydro", "levo", "clopi", "warfa", "simva", "rosuva", "azithro"};
+
+  private static final String[] SUFFIXES = {"fen", "statin", "pril", "sartan", "olol", "cillin",
+      "prazole", "mycin", "line", "pine", "mide", "done", "zole", "vir", "mab"};
+
+  private static final String[] FORMS = {"", " Sodium", " Hydrochloride", " ER", " XR",
+      " Oral Suspension", " Injection", " Topical"};
+
+  @Param({"100000"})
+  private int catalogSize;
+
+  @Param({"am", "metoprolol", "atrovastatin"})
+  private String query;
+
+  private MedicationSearchIndex index;
+
+  /**
+   * Generates the synthetic catalog and builds the index once.
+   */
+  @Setup
+  public void setUp() {
+    final Random random = new Random(4156);
+    final List<Medication> catalog = new ArrayList<>(catalogSize);
+    for (int i = 0; i < catalogSize; i++) {
+      Medication medication = new Medication();
+      medication.setId(UUID.randomUUID());
+      medication.setMedicationName(STEMS[random.nextInt(STEMS.length)]
+          + SUFFIXES[random.nextInt(SUFFIXES.length)]
+          + FORMS[random.nextInt(FORMS.length)]
+          + " " + (random.nextInt(990) + 10) + " mg");
+      catalog.add(medication);
+    }
+    index = MedicationSearchIndex.build(catalog);
+  }
+
+  @Benchmark
+  public List<Medication> search() {
+    return index.search(query, 10);
+  }
+
+  /**
+   * Runs this benchmark from an IDE without the {@code benchmark} Maven profile.
+   */
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(MedicationSearchBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,77 @@
+package com.bytecoders.pharmaid.benchmark;
+
+import com.bytecoders.pharmaid.util.BcryptPasswordHasher;
+import com.bytecoders.pharmaid.util.PasswordHasher;
+import com.bytecoders.pharmaid.util.Pbkdf2PasswordHasher;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Single-thread latency distribution (p50/p90/p99...) of hashing and verifying a password per
+ * algorithm and cost, to pick {@code pharmaid.password.algorithm} and its cost so that p99 login
+ * stays within budget on a given instance class.
+ *
+ * <p>{@code hasher} is {@code <algorithm>:<cost>}, the cost being the BCrypt log2 work factor or
+ * the PBKDF2 iteration count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+  private static final String PASSWORD = "correct horse battery staple";
+
+  @Param({"bcrypt:8", "bcrypt:10", "bcrypt:12", "pbkdf2:210000", "pbkdf2:310000",
+      "pbkdf2:600000"})
+  private String hasher;
+
+  private PasswordHasher passwordHasher;
+  private String hashedPassword;
+
+  /**
+   * Builds the hasher under test and one hash to verify against.
+   */
+  @Setup
+  public void setUp() {
+    String[] spec = hasher.split(":");
+    int cost = Integer.parseInt(spec[1]);
+    passwordHasher = "bcrypt".equals(spec[0])
+        ? new BcryptPasswordHasher(cost) : new Pbkdf2PasswordHasher(cost);
+    hashedPassword = passwordHasher.hash(PASSWORD);
+  }
+
+  @Benchmark
+  public String hash() {
+    return passwordHasher.hash(PASSWORD);
+  }
+
+  @Benchmark
+  public boolean verify() {
+    return passwordHasher.verify(PASSWORD, hashedPassword);
+  }
+
+  /**
+   * Runs this benchmark from an IDE without the {@code benchmark} Maven profile.
+   */
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(PasswordHashingBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,273 @@
+package com.bytecoders.pharmaid.benchmark;
+
+import com.bytecoders.pharmaid.PharmaidApplication;
+import com.bytecoders.pharmaid.util.JwtUtils;
+import com.bytecoders.pharmaid.util.UuidV7;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Statistics;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Load test of {@code GET /users/{userId}/prescriptions} on the running application, for sizing
+ * the connection pool. Each trial starts the application on a random port with a pool of
+ * {@code poolSize} connections, loads {@code users} patients with
+ * {@value #PRESCRIPTIONS_PER_USER} prescriptions each into the Flyway schema, and each operation
+ * is one authenticated HTTP request for a patient's first page. A request so holds a connection
+ * exactly as in production: while the user lookup and the page query run, but not while the
+ * token is checked or the response written, as open-in-view is off.
+ *
+ * <p>{@link #main} runs every pool size at 1 to 32 concurrent requests, then prints throughput and
+ * latency percentiles and the knee for each pool: the lowest concurrency reaching 90% of the
+ * pool's peak throughput. Past the knee extra requests only queue, for a connection or a CPU, and
+ * p99 climbs. The smallest pool whose knee is at or above the requests an instance runs at once
+ * is large enough.
+ *
+ * <p>The application runs with its own application.properties, minus the Secret Manager lookups,
+ * on an in-memory H2 database by default, where the database competes with the requests for the
+ * benchmark's CPUs. To size the production pool pass a PostgreSQL URL as the first argument to
+ * {@code main}, e.g. {@code jdbc:postgresql://localhost/bench?user=bench&password=bench}; the
+ * database is migrated and emptied first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class PrescriptionReadLoadBenchmark {
+
+  private static final int[] CONCURRENT_REQUESTS = {1, 2, 4, 6, 8, 10, 12, 16, 24, 32};
+
+  private static final double KNEE_SHARE = 0.90;
+
+  private static final int MEDICATIONS = 500;
+
+  private static final int PRESCRIPTIONS_PER_USER = 20;
+
+  private static final int PAGE_SIZE = 20;
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Param({"3", "6", "10"})
+  private int poolSize;
+
+  @Param({"2000"})
+  private int users;
+
+  @Param({"jdbc:h2:mem:prescription-load;DB_CLOSE_DELAY=-1"})
+  private String jdbcUrl;
+
+  private ConfigurableApplicationContext application;
+
+  private HttpClient client;
+
+  private HttpRequest[] requests;
+
+  /**
+   * Starts the application, loads the patients and prepares one signed request per patient.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    application = new SpringApplicationBuilder(PharmaidApplication.class)
+        .properties(applicationProperties())
+        .run();
+    final int port = application.getEnvironment()
+        .getRequiredProperty("local.server.port", Integer.class);
+    final UUID[] userIds = load(application.getBean(JdbcTemplate.class));
+
+    final JwtUtils jwtUtils = application.getBean(JwtUtils.class);
+    requests = new HttpRequest[userIds.length];
+    for (int i = 0; i < userIds.length; i++) {
+      requests[i] = HttpRequest.newBuilder(URI.create(String.format(
+              "http://localhost:%d/users/%s/prescriptions?limit=%d", port, userIds[i], PAGE_SIZE)))
+          .header("Authorization", "Bearer " + jwtUtils.generateToken(userIds[i].toString()))
+          .build();
+    }
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  private Map<String, Object> applicationProperties() throws IOException {
+    final Properties file = new Properties();
+    try (InputStream input =
+             PharmaidApplication.class.getResourceAsStream("/application.properties")) {
+      file.load(input);
+    }
+    final Map<String, Object> properties = new HashMap<>();
+    file.forEach((key, value) -> {
+      if (!value.toString().contains("sm://")) {
+        properties.put(key.toString(), value);
+      }
+    });
+    // the file is passed in here instead, as loading it would import from Secret Manager
+    properties.put("spring.config.name", "prescription-load-benchmark");
+    properties.put("spring.cloud.gcp.secretmanager.enabled", "false");
+    properties.put("spring.cloud.gcp.sql.enabled", "false");
+    properties.put("spring.cloud.gcp.core.enabled", "false");
+    // driver and dialect follow from the URL
+    properties.remove("spring.datasource.driver-class-name");
+    properties.remove("spring.jpa.properties.hibernate.dialect");
+    properties.put("spring.datasource.url", jdbcUrl);
+    properties.put("spring.datasource.hikari.maximum-pool-size", poolSize);
+    properties.put("spring.datasource.hikari.minimum-idle", poolSize);
+    properties.put("security.jwt.secret-key", Base64.getEncoder()
+        .encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded()));
+    properties.put("server.port", 0);
+    properties.put("spring.main.banner-mode", "off");
+    properties.put("logging.level.root", "WARN");
+    properties.put("logging.level.com.bytecoders.pharmaid", "WARN");
+    return properties;
+  }
+
+  private UUID[] load(JdbcTemplate jdbc) {
+    for (String table : List.of("prescriptions", "shared_permissions", "user_purges", "users",
+        "medications")) {
+      jdbc.update("DELETE FROM " + table);
+    }
+    final Random random = new Random(4156);
+
+    final UUID[] medicationIds = new UUID[MEDICATIONS];
+    final List<Object[]> medications = new ArrayList<>();
+    for (int i = 0; i < medicationIds.length; i++) {
+      medicationIds[i] = UuidV7.next();
+      medications.add(new Object[]{medicationIds[i], "medication" + i});
+    }
+    jdbc.batchUpdate("INSERT INTO medications (medication_id, medication_name) VALUES (?, ?)",
+        medications);
+
+    final UUID[] userIds = new UUID[users];
+    final List<Object[]> patients = new ArrayList<>();
+    for (int i = 0; i < userIds.length; i++) {
+      userIds[i] = UuidV7.next();
+      patients.add(new Object[]{userIds[i], "patient" + i + "@example.com"});
+    }
+    jdbc.batchUpdate("INSERT INTO users (user_id, email, hashed_password, user_type) "
+        + "VALUES (?, ?, 'unused', 'PATIENT')", patients);
+
+    final List<Object[]> prescriptions = new ArrayList<>();
+    for (int row = 0; row < users * PRESCRIPTIONS_PER_USER; row++) {
+      prescriptions.add(new Object[]{UuidV7.next(), userIds[row / PRESCRIPTIONS_PER_USER],
+          medicationIds[random.nextInt(MEDICATIONS)], 1 + random.nextInt(4),
+          new Timestamp(1_600_000_000_000L + row * 60_000L)});
+      if (prescriptions.size() == BATCH_SIZE) {
+        insertPrescriptions(jdbc, prescriptions);
+      }
+    }
+    insertPrescriptions(jdbc, prescriptions);
+    return userIds;
+  }
+
+  private static void insertPrescriptions(JdbcTemplate jdbc, List<Object[]> rows) {
+    jdbc.batchUpdate("INSERT INTO prescriptions (prescription_id, user_id, medication_id, "
+        + "dosage, num_doses, start_date, is_active) VALUES (?, ?, ?, ?, 1, ?, TRUE)", rows);
+    rows.clear();
+  }
+
+  /**
+   * Stops the application; an in-memory database goes with it at the end of the fork.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    application.close();
+  }
+
+  @Benchmark
+  public int readPrescriptions() throws IOException, InterruptedException {
+    final HttpResponse<byte[]> response = client.send(
+        requests[ThreadLocalRandom.current().nextInt(requests.length)],
+        HttpResponse.BodyHandlers.ofByteArray());
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException("Request failed with status " + response.statusCode());
+    }
+    return response.body().length;
+  }
+
+  /**
+   * Runs the load test at each concurrency and prints the knee of each pool size.
+   *
+   * @param args optionally, the JDBC URL of the database to run against
+   */
+  public static void main(String[] args) throws RunnerException {
+    final List<RunResult> results = new ArrayList<>();
+    for (int threads : CONCURRENT_REQUESTS) {
+      final ChainedOptionsBuilder options = new OptionsBuilder()
+          .include(PrescriptionReadLoadBenchmark.class.getSimpleName())
+          .threads(threads);
+      if (args.length > 0) {
+        options.param("jdbcUrl", args[0]);
+      }
+      results.addAll(new Runner(options.build()).run());
+    }
+    printKnees(results);
+  }
+
+  private static void printKnees(List<RunResult> results) {
+    final Map<Integer, List<RunResult>> byPool = new TreeMap<>();
+    for (RunResult result : results) {
+      final int poolSize = Integer.parseInt(result.getParams().getParam("poolSize"));
+      byPool.computeIfAbsent(poolSize, key -> new ArrayList<>()).add(result);
+    }
+
+    System.out.printf("%n%5s %8s %10s %9s %9s%n", "pool", "requests", "req/s", "p50 ms", "p99 ms");
+    byPool.forEach((poolSize, runs) -> {
+      runs.sort(Comparator.comparingInt(run -> run.getParams().getThreads()));
+      final double[] throughputs = new double[runs.size()];
+      for (int i = 0; i < runs.size(); i++) {
+        final BenchmarkParams params = runs.get(i).getParams();
+        final Statistics latency = runs.get(i).getPrimaryResult().getStatistics();
+        // each thread issues one request after the other, so throughput = threads / mean latency
+        throughputs[i] = params.getThreads() * 1000 / latency.getMean();
+        System.out.printf("%5d %8d %10.0f %9.2f %9.2f%n", poolSize, params.getThreads(),
+            throughputs[i], latency.getPercentile(50), latency.getPercentile(99));
+      }
+      final double peak = Arrays.stream(throughputs).max().orElse(0);
+      int knee = 0;
+      while (throughputs[knee] < peak * KNEE_SHARE) {
+        knee++;
+      }
+      System.out.printf("pool of %d: knee at %d concurrent requests%n", poolSize,
+          runs.get(knee).getParams().getThreads());
+    });
+  }
+}
@@ -0,0 +1,136 @@
+package com.bytecoders.pharmaid.benchmark;
+
+import com.bytecoders.pharmaid.security.JwtRequestFilter;
+import com.bytecoders.pharmaid.security.PublicEndpointMatcher;
+import com.bytecoders.pharmaid.security.VerifiedTokenCache;
+import com.bytecoders.pharmaid.service.UserPurger;
+import com.bytecoders.pharmaid.util.JwtUtils;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Per-request overhead of deciding whether a path is public, and of the whole
+ * {@link JwtRequestFilter} for public and authenticated paths.
+ *
+ * <p>{@code legacyScan} reproduces the previous check: a freshly allocated endpoint array scanned
+ * with {@code equals}. {@code precompiledMatcher} is the shared {@link PublicEndpointMatcher}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublicEndpointFilterBenchmark {
+
+  private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+  @Param({"/login", "/swagger-ui/swagger-ui-bundle.js", "/users/123/prescriptions"})
+  private String path;
+
+  private PublicEndpointMatcher matcher;
+  private JwtRequestFilter filter;
+  private String authorization;
+
+  /**
+   * Wires the filter by hand with a real signing key and the verified-token cache enabled, as in
+   * the default configuration. The purger is real, so the pending-deletion check is the set lookup
+   * every authenticated request pays; it never purges, so it needs no working transactions.
+   */
+  @Setup
+  public void setUp() {
+    String secretKey = Base64.getEncoder()
+        .encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+    JwtUtils jwtUtils = new JwtUtils(secretKey, TimeUnit.HOURS.toMillis(1));
+    authorization = "Bearer " + jwtUtils.generateToken("9101d183-26e6-45b7-a8c4-25f24fdb36fa");
+
+    matcher = new PublicEndpointMatcher();
+    filter = new JwtRequestFilter();
+    ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+    ReflectionTestUtils.setField(filter, "publicEndpointMatcher", matcher);
+    ReflectionTestUtils.setField(filter, "verifiedTokenCache",
+        new VerifiedTokenCache(true, 1000, TimeUnit.MINUTES.toMillis(10)));
+    ReflectionTestUtils.setField(filter, "userPurger",
+        new UserPurger(1000, 5, 60_000, 600_000, Mockito.mock(PlatformTransactionManager.class)));
+    ReflectionTestUtils.setField(filter, "observationRegistry", ObservationRegistry.NOOP);
+  }
+
+  private static String[] legacyPublicEndpoints() {
+    return new String[]{"/hello",
+        "/login",
+        "/register",
+        "/pharmaid-api-docs",
+        "/pharmaid-api-docs/swagger-config",
+        "/pharmaid-api-docs-ui.html",
+        "/swagger-ui/index.html",
+        "/swagger-ui/swagger-ui.css",
+        "/swagger-ui/swagger-ui-bundle.js",
+        "/swagger-ui/swagger-ui-standalone-preset.js",
+        "/swagger-ui/swagger-initializer.js"};
+  }
+
+  /**
+   * Previous check: allocate the endpoint array and scan it linearly.
+   */
+  @Benchmark
+  public boolean legacyScan() {
+    for (String endpoint : legacyPublicEndpoints()) {
+      if (path.equals(endpoint)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Benchmark
+  public boolean precompiledMatcher() {
+    return matcher.matches(path);
+  }
+
+  /**
+   * Whole filter invocation; protected paths carry a valid bearer token.
+   */
+  @Benchmark
+  public MockHttpServletRequest filter() throws ServletException, IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+    request.addHeader("Authorization", authorization);
+    filter.doFilter(request, new MockHttpServletResponse(), NO_OP_CHAIN);
+    SecurityContextHolder.clearContext();
+    return request;
+  }
+
+  /**
+   * Runs this benchmark from an IDE without the {@code benchmark} Maven profile.
+   */
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(PublicEndpointFilterBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,123 @@
+package com.bytecoders.pharmaid.benchmark;
+
+import com.bytecoders.pharmaid.util.UuidV7;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Batched prescription inserts keyed by random version 4 UUIDs ({@code @UuidGenerator}) against
+ * time-ordered {@link UuidV7} keys. The table is preloaded and keeps growing through the run, so
+ * random keys land all over a primary key index larger than the hot pages, while ordered keys
+ * only touch its right edge. Reported per inserted row.
+ *
+ * <p>Runs on an in-memory H2 database by default. Pass a PostgreSQL URL to measure the production
+ * engine, e.g. {@code -p jdbcUrl=jdbc:postgresql://localhost/bench?user=bench&password=bench}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class UuidInsertBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  @Param({"v4", "v7"})
+  private String idVersion;
+
+  @Param({"500000"})
+  private int preloaded;
+
+  @Param({"jdbc:h2:mem:uuid-inserts;DB_CLOSE_DELAY=-1"})
+  private String jdbcUrl;
+
+  private Connection connection;
+  private PreparedStatement insert;
+  private Supplier<UUID> ids;
+  private String table;
+  private long row;
+
+  /**
+   * Creates this ID version's table and preloads it.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    ids = "v7".equals(idVersion) ? UuidV7::next : UUID::randomUUID;
+    table = "prescriptions_" + idVersion;
+    connection = DriverManager.getConnection(jdbcUrl);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE IF EXISTS " + table);
+      statement.execute("CREATE TABLE " + table + " (prescription_id UUID PRIMARY KEY, "
+          + "user_id UUID NOT NULL, start_date TIMESTAMP NOT NULL, dosage INT NOT NULL)");
+    }
+    connection.setAutoCommit(false);
+    insert = connection.prepareStatement("INSERT INTO " + table
+        + " (prescription_id, user_id, start_date, dosage) VALUES (?, ?, ?, ?)");
+    for (int i = 0; i < preloaded / BATCH_SIZE; i++) {
+      insertBatch();
+    }
+  }
+
+  /**
+   * Drops the table so a PostgreSQL database does not keep it between trials.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    insert.close();
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE " + table);
+    }
+    connection.commit();
+    connection.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public int[] insertBatch() throws SQLException {
+    final UUID userId = ids.get();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      insert.setObject(1, ids.get());
+      insert.setObject(2, userId);
+      insert.setTimestamp(3, new Timestamp(1_600_000_000_000L + row++ * 60_000L));
+      insert.setInt(4, 1);
+      insert.addBatch();
+    }
+    final int[] counts = insert.executeBatch();
+    connection.commit();
+    return counts;
+  }
+
+  /**
+   * Runs this benchmark from an IDE without the {@code benchmark} Maven profile.
+   */
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(UuidInsertBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,187 @@
+package com.bytecoders.pharmaid.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Key storage before and after migration V3: the same users and prescriptions keyed by
+ * {@code VARCHAR(255)} holding the UUID text (before) or by native {@code uuid} (after). Measures a
+ * primary key lookup and the prescriptions-to-users join of the listing path, and prints the size
+ * of the tables' indexes once loaded.
+ *
+ * <p>Runs on an in-memory H2 database by default. Pass a PostgreSQL URL to measure the production
+ * engine, e.g. {@code -p jdbcUrl=jdbc:postgresql://localhost/bench?user=bench&password=bench};
+ * on H2 the printed size covers the tables' data as well, H2 not reporting index size alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class UuidKeyBenchmark {
+
+  private static final int PRESCRIPTIONS_PER_USER = 50;
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Param({"varchar", "uuid"})
+  private String keyType;
+
+  @Param({"200000"})
+  private int prescriptions;
+
+  @Param({"jdbc:h2:mem:uuid-keys;DB_CLOSE_DELAY=-1"})
+  private String jdbcUrl;
+
+  private Connection connection;
+  private PreparedStatement lookup;
+  private PreparedStatement join;
+  private UUID[] userIds;
+  private UUID[] prescriptionIds;
+  private final Random random = new Random(4156);
+
+  /**
+   * Creates and loads this key type's tables, then prints their index size.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    connection = DriverManager.getConnection(jdbcUrl);
+    final String users = "users_" + keyType;
+    final String prescriptionsTable = "prescriptions_" + keyType;
+    final String type = "uuid".equals(keyType) ? "UUID" : "VARCHAR(255)";
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE IF EXISTS " + prescriptionsTable);
+      statement.execute("DROP TABLE IF EXISTS " + users);
+      statement.execute("CREATE TABLE " + users + " (user_id " + type + " PRIMARY KEY, "
+          + "email VARCHAR(255) NOT NULL)");
+      statement.execute("CREATE TABLE " + prescriptionsTable + " (prescription_id " + type
+          + " PRIMARY KEY, user_id " + type + " NOT NULL REFERENCES " + users + " (user_id), "
+          + "start_date TIMESTAMP NOT NULL)");
+      statement.execute("CREATE INDEX idx_" + prescriptionsTable + "_user ON "
+          + prescriptionsTable + " (user_id, start_date, prescription_id)");
+    }
+
+    userIds = new UUID[Math.max(1, prescriptions / PRESCRIPTIONS_PER_USER)];
+    try (PreparedStatement insert = connection.prepareStatement(
+        "INSERT INTO " + users + " (user_id, email) VALUES (?, ?)")) {
+      for (int i = 0; i < userIds.length; i++) {
+        userIds[i] = UUID.randomUUID();
+        bindId(insert, 1, userIds[i]);
+        insert.setString(2, "user" + i + "@example.com");
+        addToBatch(insert, i);
+      }
+      insert.executeBatch();
+    }
+    prescriptionIds = new UUID[prescriptions];
+    try (PreparedStatement insert = connection.prepareStatement("INSERT INTO "
+        + prescriptionsTable + " (prescription_id, user_id, start_date) VALUES (?, ?, ?)")) {
+      for (int i = 0; i < prescriptions; i++) {
+        prescriptionIds[i] = UUID.randomUUID();
+        bindId(insert, 1, prescriptionIds[i]);
+        bindId(insert, 2, userIds[random.nextInt(userIds.length)]);
+        insert.setTimestamp(3, new java.sql.Timestamp(1_600_000_000_000L + i * 60_000L));
+        addToBatch(insert, i);
+      }
+      insert.executeBatch();
+    }
+
+    System.out.printf("%n%s keys: %d users, %d prescriptions, indexes %,d bytes%n", keyType,
+        userIds.length, prescriptions, indexBytes(users, prescriptionsTable));
+
+    lookup = connection.prepareStatement(
+        "SELECT start_date FROM " + prescriptionsTable + " WHERE prescription_id = ?");
+    join = connection.prepareStatement("SELECT p.prescription_id, u.email FROM "
+        + prescriptionsTable + " p JOIN " + users + " u ON u.user_id = p.user_id "
+        + "WHERE p.user_id = ? ORDER BY p.start_date DESC, p.prescription_id DESC");
+  }
+
+  private void bindId(PreparedStatement statement, int index, UUID id) throws SQLException {
+    if ("uuid".equals(keyType)) {
+      statement.setObject(index, id);
+    } else {
+      statement.setString(index, id.toString());
+    }
+  }
+
+  private static void addToBatch(PreparedStatement statement, int row) throws SQLException {
+    statement.addBatch();
+    if ((row + 1) % BATCH_SIZE == 0) {
+      statement.executeBatch();
+    }
+  }
+
+  private long indexBytes(String users, String prescriptionsTable) throws SQLException {
+    final boolean postgres = connection.getMetaData().getDatabaseProductName()
+        .toLowerCase().contains("postgres");
+    final String sql = postgres
+        ? "SELECT pg_indexes_size('" + users + "') + pg_indexes_size('" + prescriptionsTable + "')"
+        : "SELECT DISK_SPACE_USED('" + users.toUpperCase() + "') + DISK_SPACE_USED('"
+            + prescriptionsTable.toUpperCase() + "')";
+    try (Statement statement = connection.createStatement();
+         ResultSet result = statement.executeQuery(sql)) {
+      result.next();
+      return result.getLong(1);
+    }
+  }
+
+  /**
+   * Drops the connection; an in-memory database goes with it at the end of the fork.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    connection.close();
+  }
+
+  @Benchmark
+  public boolean lookupByPrimaryKey() throws SQLException {
+    bindId(lookup, 1, prescriptionIds[random.nextInt(prescriptionIds.length)]);
+    try (ResultSet result = lookup.executeQuery()) {
+      return result.next();
+    }
+  }
+
+  @Benchmark
+  public int joinUserPrescriptions() throws SQLException {
+    bindId(join, 1, userIds[random.nextInt(userIds.length)]);
+    int rows = 0;
+    try (ResultSet result = join.executeQuery()) {
+      while (result.next()) {
+        rows++;
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Runs this benchmark from an IDE without the {@code benchmark} Maven profile.
+   */
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(UuidKeyBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,113 @@
+package com.bytecoders.pharmaid.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+/** Tests for {@link ConnectionPoolMonitor} on a single-connection Hikari pool. */
+public class ConnectionPoolMonitorTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private final ListAppender<ILoggingEvent> log = new ListAppender<>();
+
+  private HikariDataSource pool;
+
+  private ConnectionPoolMonitor monitor;
+
+  @BeforeEach
+  void setUp() {
+    ((Logger) LoggerFactory.getLogger(ConnectionPoolMonitor.class)).addAppender(log);
+    log.start();
+  }
+
+  private void startPool(long connectionTimeoutMs) {
+    final HikariConfig config = new HikariConfig();
+    config.setJdbcUrl("jdbc:h2:mem:pool-monitor;DB_CLOSE_DELAY=-1");
+    config.setPoolName("test-pool");
+    config.setMaximumPoolSize(1);
+    config.setConnectionTimeout(connectionTimeoutMs);
+    config.setMetricRegistry(registry);
+    pool = new HikariDataSource(config);
+    // wrapped as in the application, where the pool sits behind the statement timing
+    monitor = new ConnectionPoolMonitor(new StatementTimingDataSource(pool, () -> null), registry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    ((Logger) LoggerFactory.getLogger(ConnectionPoolMonitor.class)).detachAppender(log);
+    pool.close();
+  }
+
+  @Test
+  void check_Success_QuietWhileConnectionsAreFree() throws SQLException {
+    startPool(250);
+    try (Connection connection = pool.getConnection()) {
+      monitor.check();
+    }
+    monitor.check();
+
+    assertTrue(log.list.isEmpty());
+  }
+
+  @Test
+  void check_Failure_LogsWaitingRequestsUntilRecovered() throws Exception {
+    startPool(10_000);
+    final CompletableFuture<Void> waiter;
+    try (Connection held = pool.getConnection()) {
+      waiter = CompletableFuture.runAsync(() -> {
+        try (Connection connection = pool.getConnection()) {
+          // served once the held connection is returned
+        } catch (SQLException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      final long deadline = System.currentTimeMillis() + 5_000;
+      while (pool.getHikariPoolMXBean().getThreadsAwaitingConnection() == 0
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      monitor.check();
+    }
+    waiter.get();
+    monitor.check();
+    monitor.check();
+
+    assertEquals(2, log.list.size());
+    assertEquals(Level.WARN, log.list.get(0).getLevel());
+    assertEquals("pool_exhausted pool=test-pool active=1 idle=0 max=1 waiting=1 timeouts=0",
+        log.list.get(0).getFormattedMessage());
+    assertEquals(Level.INFO, log.list.get(1).getLevel());
+    assertTrue(log.list.get(1).getFormattedMessage().startsWith("pool_recovered pool=test-pool"));
+  }
+
+  @Test
+  void check_Failure_LogsTimeoutsSincePreviousCheck() throws SQLException {
+    startPool(250);
+    try (Connection held = pool.getConnection()) {
+      assertThrows(SQLException.class, pool::getConnection);
+    }
+    monitor.check();
+    monitor.check();
+
+    assertEquals(2, log.list.size());
+    assertTrue(log.list.get(0).getFormattedMessage().endsWith("waiting=0 timeouts=1"),
+        log.list.get(0).getFormattedMessage());
+    assertTrue(log.list.get(1).getFormattedMessage().startsWith("pool_recovered"));
+  }
+}
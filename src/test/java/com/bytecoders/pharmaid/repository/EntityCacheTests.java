@@ -0,0 +1,150 @@
+package com.bytecoders.pharmaid.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.bytecoders.pharmaid.EntityCacheConfig;
+import com.bytecoders.pharmaid.openapi.model.UserType;
+import com.bytecoders.pharmaid.repository.model.Medication;
+import com.bytecoders.pharmaid.repository.model.Prescription;
+import com.bytecoders.pharmaid.repository.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Date;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tests for the second-level cache of {@link User} and {@link Medication} configured by
+ * {@link EntityCacheConfig}, against an embedded database.
+ *
+ * <p>Tests run outside a test transaction: a read-write region only serves an entity to sessions
+ * started after it was cached, so each load needs its own transaction, as separate requests have.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Import(EntityCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EntityCacheTests {
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private MedicationRepository medicationRepository;
+
+  @Autowired
+  private PrescriptionRepository prescriptionRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate transactions;
+
+  private User user;
+  private Medication medication;
+
+  @BeforeEach
+  void setUp() {
+    transactions = new TransactionTemplate(transactionManager);
+    user = new User();
+    user.setEmail("cached@example.com");
+    user.setHashedPassword("oldHash");
+    user.setUserType(UserType.PATIENT);
+    medication = new Medication();
+    medication.setMedicationName("Ibuprofen");
+    transactions.executeWithoutResult(status -> {
+      entityManager.persist(user);
+      entityManager.persist(medication);
+    });
+    // inserts are cached on commit; start cold, as after a restart
+    entityManagerFactory.getCache().evictAll();
+    statistics().clear();
+  }
+
+  @AfterEach
+  void tearDown() {
+    transactions.executeWithoutResult(status -> {
+      prescriptionRepository.deleteAllInBatch();
+      userRepository.deleteAllInBatch();
+      medicationRepository.deleteAllInBatch();
+    });
+    entityManagerFactory.getCache().evictAll();
+  }
+
+  private Statistics statistics() {
+    return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  private CacheRegionStatistics region(String name) {
+    return statistics().getDomainDataRegionStatistics(name);
+  }
+
+  /** Loads the user in a transaction of its own, so only the second-level cache can help. */
+  private User loadUser() {
+    return userRepository.findById(user.getId()).orElseThrow();
+  }
+
+  @Test
+  void findById_Success_ServedFromCacheAfterFirstLoad() {
+    loadUser();
+    loadUser();
+    medicationRepository.findById(medication.getId()).orElseThrow();
+    medicationRepository.findById(medication.getId()).orElseThrow();
+
+    assertEquals(1, region(User.CACHE_REGION).getHitCount());
+    assertEquals(1, region(Medication.CACHE_REGION).getHitCount());
+    assertEquals(2, statistics().getPrepareStatementCount());
+  }
+
+  @Test
+  void bulkUpdate_Success_EvictsStaleUser() {
+    loadUser();
+
+    assertEquals(1, userRepository.replaceHashedPassword(user.getId(), "oldHash", "newHash"));
+    assertEquals("newHash", loadUser().getHashedPassword());
+
+    transactions.executeWithoutResult(
+        status -> userRepository.markPendingDeletion(user.getId(), new Date()));
+    assertTrue(loadUser().isPendingDeletion());
+  }
+
+  @Test
+  void nativeDelete_Success_KeepsUnrelatedRegions() {
+    transactions.executeWithoutResult(status -> {
+      final Prescription prescription = new Prescription();
+      prescription.setUser(entityManager.find(User.class, user.getId()));
+      prescription.setMedication(entityManager.find(Medication.class, medication.getId()));
+      prescription.setDosage(1);
+      prescription.setNumOfDoses(1);
+      prescription.setStartDate(new Date());
+      prescription.setIsActive(true);
+      entityManager.persist(prescription);
+    });
+    loadUser();
+
+    assertEquals(1, (int) transactions.execute(
+        status -> prescriptionRepository.deleteChunkByUserId(user.getId(), 10)));
+    statistics().clear();
+    loadUser();
+    assertEquals(1, region(User.CACHE_REGION).getHitCount());
+  }
+}
@@ -0,0 +1,84 @@
+package com.bytecoders.pharmaid.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.bytecoders.pharmaid.repository.model.Medication;
+import com.bytecoders.pharmaid.service.MedicationService;
+import com.bytecoders.pharmaid.util.KeysetPage;
+import com.bytecoders.pharmaid.util.ServiceUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for {@link MedicationRepository} keyset queries against an embedded database.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({MedicationService.class, ServiceUtils.class, ObjectMapper.class})
+public class MedicationRepositoryTests {
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private MedicationRepository medicationRepository;
+
+  @Autowired
+  private MedicationService medicationService;
+
+  @BeforeEach
+  void setUp() {
+    // duplicate names exercise the id tie-breaker
+    for (String name : List.of("Ibuprofen", "Aspirin", "Zoloft", "Aspirin", "Metformin")) {
+      Medication medication = new Medication();
+      medication.setMedicationName(name);
+      entityManager.persist(medication);
+    }
+    entityManager.flush();
+  }
+
+  @Test
+  void findPageAfter_Success_WalksWholeCatalogInOrder() {
+    final List<Medication> expected = medicationRepository.findFirstPage(PageRequest.of(0, 10));
+    final List<Medication> walked = new ArrayList<>();
+
+    KeysetPage<Medication> page = medicationService.getMedicationsPage(null, 2);
+    walked.addAll(page.items());
+    while (page.nextCursor() != null) {
+      page = medicationService.getMedicationsPage(page.nextCursor(), 2);
+      walked.addAll(page.items());
+    }
+
+    assertEquals(5, expected.size());
+    assertEquals(expected, walked);
+    assertEquals(List.of("Aspirin", "Aspirin", "Ibuprofen", "Metformin", "Zoloft"),
+        walked.stream().map(Medication::getMedicationName).toList());
+  }
+
+  @Test
+  void getMedicationsPage_Success_LastPageHasNoCursor() {
+    KeysetPage<Medication> page = medicationService.getMedicationsPage(null, 5);
+    assertEquals(5, page.items().size());
+    assertNull(page.nextCursor());
+  }
+
+  @Test
+  void getMedicationsPage_Fail_InvalidCursor() {
+    assertThrows(ResponseStatusException.class,
+        () -> medicationService.getMedicationsPage("not a cursor", 2));
+    assertThrows(ResponseStatusException.class, () -> medicationService.getMedicationsPage(
+        KeysetPage.encodeCursor("only-one-key"), 2));
+    assertThrows(ResponseStatusException.class, () -> medicationService.getMedicationsPage(
+        KeysetPage.encodeCursor("Aspirin", "not-a-uuid"), 2));
+  }
+}
@@ -0,0 +1,228 @@
+package com.bytecoders.pharmaid.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.bytecoders.pharmaid.openapi.model.UserType;
+import com.bytecoders.pharmaid.repository.model.Medication;
+import com.bytecoders.pharmaid.repository.model.Prescription;
+import com.bytecoders.pharmaid.repository.model.User;
+import com.bytecoders.pharmaid.service.PrescriptionExporter;
+import com.bytecoders.pharmaid.service.PrescriptionService;
+import com.bytecoders.pharmaid.service.SharedPermissionValidator;
+import com.bytecoders.pharmaid.util.JwtUtils;
+import com.bytecoders.pharmaid.util.KeysetPage;
+import com.bytecoders.pharmaid.util.ServiceUtils;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for {@link PrescriptionRepository} filtered keyset queries against an embedded database.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Import({PrescriptionService.class, ServiceUtils.class})
+public class PrescriptionRepositoryTests {
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private PrescriptionRepository prescriptionRepository;
+
+  @Autowired
+  private PrescriptionService prescriptionService;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @MockBean
+  private SharedPermissionValidator permissionValidator;
+
+  @MockBean
+  private JwtUtils jwtUtils;
+
+  @MockBean
+  private PrescriptionExporter prescriptionExporter;
+
+  private User patient;
+  private Medication ibuprofen;
+  private Medication aspirin;
+
+  @BeforeEach
+  void setUp() {
+    patient = persistUser("patient@example.com");
+    final User other = persistUser("other@example.com");
+    ibuprofen = persistMedication("Ibuprofen");
+    aspirin = persistMedication("Aspirin");
+
+    persistPrescription(patient, ibuprofen, "2024-01-01", "2024-01-31", false);
+    persistPrescription(patient, aspirin, "2024-03-01", null, true);
+    // same start date exercises the id tie-breaker
+    persistPrescription(patient, ibuprofen, "2024-03-01", "2024-04-01", true);
+    persistPrescription(patient, aspirin, "2024-06-15", "2024-07-15", false);
+    persistPrescription(other, aspirin, "2024-03-01", null, true);
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  private User persistUser(String email) {
+    User user = new User();
+    user.setEmail(email);
+    user.setHashedPassword("hashedPassword");
+    user.setUserType(UserType.PATIENT);
+    return entityManager.persist(user);
+  }
+
+  private Medication persistMedication(String name) {
+    Medication medication = new Medication();
+    medication.setMedicationName(name);
+    return entityManager.persist(medication);
+  }
+
+  private Statistics statistics() {
+    return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  private Prescription persistPrescription(User user, Medication medication, String start,
+      String end, boolean isActive) {
+    Prescription prescription = new Prescription();
+    prescription.setUser(user);
+    prescription.setMedication(medication);
+    prescription.setDosage(1);
+    prescription.setNumOfDoses(1);
+    prescription.setStartDate(day(start));
+    prescription.setEndDate(end == null ? null : day(end));
+    prescription.setIsActive(isActive);
+    return entityManager.persist(prescription);
+  }
+
+  private static Date day(String isoDate) {
+    return Date.from(LocalDate.parse(isoDate).atStartOfDay(ZoneOffset.UTC).toInstant());
+  }
+
+  private List<Prescription> walk(PrescriptionFilter filter, int limit) {
+    final List<Prescription> walked = new ArrayList<>();
+    final String patientId = patient.getId().toString();
+    KeysetPage<Prescription> page =
+        prescriptionService.getPrescriptionsPage(patientId, filter, null, limit);
+    walked.addAll(page.items());
+    while (page.nextCursor() != null) {
+      page = prescriptionService.getPrescriptionsPage(patientId, filter,
+          page.nextCursor(), limit);
+      walked.addAll(page.items());
+    }
+    return walked;
+  }
+
+  @Test
+  void getPrescriptionsPage_Success_WalksNewestFirst() {
+    final List<Prescription> walked = walk(PrescriptionFilter.NONE, 1);
+
+    assertEquals(4, walked.size());
+    assertEquals(List.of(day("2024-06-15"), day("2024-03-01"), day("2024-03-01"),
+        day("2024-01-01")), walked.stream().map(p -> new Date(p.getStartDate().getTime()))
+        .toList());
+    assertEquals(walked, prescriptionRepository.findPage(patient.getId(),
+        PrescriptionFilter.NONE, null, null, 10));
+  }
+
+  @Test
+  void getPrescriptionsPage_Success_LastPageHasNoCursor() {
+    KeysetPage<Prescription> page = prescriptionService.getPrescriptionsPage(
+        patient.getId().toString(), PrescriptionFilter.NONE, null, 4);
+    assertEquals(4, page.items().size());
+    assertNull(page.nextCursor());
+  }
+
+  @Test
+  void findPage_Success_FiltersByActiveAndMedication() {
+    assertEquals(2, walk(new PrescriptionFilter(true, null, null, null), 1).size());
+
+    final List<Prescription> activeIbuprofen =
+        walk(new PrescriptionFilter(true, null, null, ibuprofen.getId().toString()), 1);
+    assertEquals(1, activeIbuprofen.size());
+    assertEquals(ibuprofen.getId(), activeIbuprofen.get(0).getMedication().getId());
+    // a medicationId that is not a UUID cannot match
+    assertEquals(0, walk(new PrescriptionFilter(null, null, null, "ibuprofen"), 10).size());
+  }
+
+  @Test
+  void findPage_Success_FiltersByOverlappingDateRange() {
+    // the open-ended March prescription overlaps any later range
+    assertEquals(2, walk(new PrescriptionFilter(null, LocalDate.of(2024, 5, 1), null, null),
+        10).size());
+    // ranges are inclusive on both ends
+    assertEquals(3, walk(new PrescriptionFilter(null, LocalDate.of(2024, 1, 31),
+        LocalDate.of(2024, 3, 1), null), 10).size());
+    assertEquals(1, walk(new PrescriptionFilter(null, null, LocalDate.of(2024, 2, 1), null),
+        10).size());
+  }
+
+  @Test
+  void getPrescriptionsPage_Fail_InvalidCursor() {
+    final String patientId = patient.getId().toString();
+    assertThrows(ResponseStatusException.class, () -> prescriptionService.getPrescriptionsPage(
+        patientId, PrescriptionFilter.NONE, "not a cursor", 2));
+    assertThrows(ResponseStatusException.class, () -> prescriptionService.getPrescriptionsPage(
+        patientId, PrescriptionFilter.NONE, KeysetPage.encodeCursor("day", "id"), 2));
+    assertThrows(ResponseStatusException.class, () -> prescriptionService.getPrescriptionsPage(
+        patientId, PrescriptionFilter.NONE, KeysetPage.encodeCursor("0", "id"), 2));
+  }
+
+  @Test
+  void persist_Success_AssignsTimeOrderedIds() {
+    final Prescription first = persistPrescription(patient, aspirin, "2025-01-01", null, true);
+    final Prescription second = persistPrescription(patient, aspirin, "2025-01-01", null, true);
+
+    assertEquals(7, first.getId().version());
+    assertTrue(first.getId().toString().compareTo(second.getId().toString()) < 0);
+  }
+
+  @Test
+  void readPaths_Success_LoadMedicationsInOneStatement() {
+    final User longTermPatient = persistUser("long-term@example.com");
+    final List<Medication> medications = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      medications.add(persistMedication("Medication " + i));
+    }
+    for (int i = 0; i < 500; i++) {
+      persistPrescription(longTermPatient, medications.get(i % medications.size()),
+          LocalDate.of(2020, 1, 1).plusDays(i).toString(), null, true);
+    }
+    entityManager.flush();
+    entityManager.clear();
+    statistics().clear();
+
+    final List<Prescription> page = prescriptionRepository.findPage(longTermPatient.getId(),
+        PrescriptionFilter.NONE, null, null, 500);
+    assertEquals(500, page.stream().map(p -> p.getMedication().getMedicationName()).count());
+    assertEquals(1, statistics().getPrepareStatementCount());
+
+    entityManager.clear();
+    statistics().clear();
+    try (Stream<Prescription> all =
+             prescriptionRepository.streamAllByUserId(longTermPatient.getId())) {
+      assertEquals(50, all.map(p -> p.getMedication().getMedicationName()).distinct().count());
+    }
+    assertEquals(1, statistics().getPrepareStatementCount());
+  }
+}
@@ -0,0 +1,130 @@
+package com.bytecoders.pharmaid.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Tests that the Flyway migrations build the schema the entities expect. The context only starts
+ * if Hibernate's validation of the migrated schema passes. A database of the released version,
+ * created by Hibernate and baselined at V1, must end up with the same schema.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=validate"})
+public class SchemaMigrationTests {
+
+  // tables of the released entities, under the constraint names the H2 V3 script drops
+  private static final List<String> RELEASE_SCHEMA = List.of(
+      "CREATE TABLE users (user_id VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL, "
+          + "hashed_password VARCHAR(255) NOT NULL, user_type VARCHAR(255) NOT NULL, "
+          + "PRIMARY KEY (user_id), UNIQUE (email))",
+      "CREATE TABLE medications (medication_id VARCHAR(255) NOT NULL, "
+          + "medication_name VARCHAR(255) NOT NULL, PRIMARY KEY (medication_id))",
+      "CREATE TABLE prescriptions (prescription_id VARCHAR(255) NOT NULL, "
+          + "user_id VARCHAR(255) NOT NULL, medication_id VARCHAR(255) NOT NULL, "
+          + "dosage INTEGER NOT NULL, num_doses INTEGER, start_date TIMESTAMP(6) NOT NULL, "
+          + "end_date TIMESTAMP(6), is_active BOOLEAN, PRIMARY KEY (prescription_id), "
+          + "CONSTRAINT fk_prescriptions_user FOREIGN KEY (user_id) REFERENCES users, "
+          + "CONSTRAINT fk_prescriptions_medication "
+          + "FOREIGN KEY (medication_id) REFERENCES medications)",
+      "CREATE TABLE shared_permissions (share_request_id VARCHAR(255) NOT NULL, "
+          + "owner_id VARCHAR(255) NOT NULL, requester_id VARCHAR(255) NOT NULL, "
+          + "share_request_status VARCHAR(255) NOT NULL, "
+          + "share_permission_type VARCHAR(255) NOT NULL, PRIMARY KEY (share_request_id), "
+          + "CONSTRAINT fk_shared_permissions_owner FOREIGN KEY (owner_id) REFERENCES users, "
+          + "CONSTRAINT fk_shared_permissions_requester "
+          + "FOREIGN KEY (requester_id) REFERENCES users)");
+
+  private static final String COLUMNS = "SELECT LOWER(TABLE_NAME) || '.' || LOWER(COLUMN_NAME) "
+      + "|| ' ' || DATA_TYPE || ' ' || IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS "
+      + "WHERE TABLE_SCHEMA = 'PUBLIC' AND LOWER(TABLE_NAME) <> 'flyway_schema_history' "
+      + "ORDER BY 1";
+
+  private static final String USER_ID = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private static List<String> versions(JdbcTemplate jdbc) {
+    return jdbc.queryForList(
+        "SELECT \"version\" FROM \"flyway_schema_history\" "
+            + "WHERE \"success\" AND \"version\" IS NOT NULL ORDER BY \"installed_rank\"",
+        String.class);
+  }
+
+  @Test
+  void migrate_Success_AppliesAllVersions() {
+    assertEquals(List.of("1", "1.1", "2", "3", "4"), versions(jdbcTemplate));
+  }
+
+  @Test
+  void migrate_Success_UpgradesBaselinedReleaseSchema() {
+    final JdbcDataSource release = new JdbcDataSource();
+    release.setURL("jdbc:h2:mem:release-schema;DB_CLOSE_DELAY=-1");
+    final JdbcTemplate releaseJdbc = new JdbcTemplate(release);
+    RELEASE_SCHEMA.forEach(releaseJdbc::execute);
+    releaseJdbc.update(
+        "INSERT INTO users VALUES (?, 'released@example.com', 'hash', 'PATIENT')", USER_ID);
+
+    // as the application configures Flyway for H2
+    Flyway.configure()
+        .dataSource(release)
+        .locations("classpath:db/migration", "classpath:db/vendor/h2")
+        .baselineOnMigrate(true)
+        .baselineVersion("1")
+        .load()
+        .migrate();
+
+    assertEquals(List.of("1", "1.1", "2", "3", "4"), versions(releaseJdbc));
+    assertEquals(jdbcTemplate.queryForList(COLUMNS, String.class),
+        releaseJdbc.queryForList(COLUMNS, String.class));
+    assertEquals(UUID.fromString(USER_ID), releaseJdbc.queryForObject(
+        "SELECT user_id FROM users WHERE deletion_requested_at IS NULL", UUID.class));
+  }
+
+  @Test
+  void migrate_Success_CreatesQueryIndexes() {
+    final List<String> indexes = jdbcTemplate.queryForList(
+        "SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES", String.class);
+    for (String index : List.of("idx_prescriptions_user_start_id",
+        "idx_prescriptions_user_medication_start", "idx_shared_permissions_owner_requester",
+        "idx_shared_permissions_requester", "idx_users_deletion_requested_at",
+        "idx_medications_name_id", "idx_user_purges_status_next_attempt")) {
+      assertTrue(indexes.contains(index), "missing index " + index);
+    }
+  }
+
+  @Test
+  void migrate_Success_IndexColumnsMatchQueries() {
+    final List<String> columns = jdbcTemplate.queryForList(
+        "SELECT LOWER(COLUMN_NAME) FROM INFORMATION_SCHEMA.INDEX_COLUMNS "
+            + "WHERE LOWER(INDEX_NAME) = 'idx_shared_permissions_owner_requester' "
+            + "ORDER BY ORDINAL_POSITION", String.class);
+    assertEquals(List.of("owner_id", "requester_id", "share_request_status",
+        "share_permission_type"), columns);
+  }
+
+  @Test
+  void migrate_Success_StoresIdsAsUuid() {
+    for (String column : List.of("users.user_id", "medications.medication_id",
+        "prescriptions.prescription_id", "prescriptions.user_id", "prescriptions.medication_id",
+        "shared_permissions.share_request_id", "shared_permissions.owner_id",
+        "shared_permissions.requester_id", "user_purges.user_id")) {
+      final String[] name = column.split("\\.");
+      final String type = jdbcTemplate.queryForObject(
+          "SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
+              + "WHERE LOWER(TABLE_NAME) = ? AND LOWER(COLUMN_NAME) = ?",
+          String.class, name[0], name[1]);
+      assertEquals("UUID", type, column);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.bytecoders.pharmaid.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.bytecoders.pharmaid.openapi.model.SharePermissionType;
+import com.bytecoders.pharmaid.openapi.model.ShareRequestStatus;
+import com.bytecoders.pharmaid.openapi.model.UserType;
+import com.bytecoders.pharmaid.repository.SharedPermissionRepository.EffectivePermission;
+import com.bytecoders.pharmaid.repository.model.SharedPermission;
+import com.bytecoders.pharmaid.repository.model.User;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+/**
+ * Tests for {@link SharedPermissionRepository} queries against an embedded database.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+public class SharedPermissionRepositoryTests {
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private SharedPermissionRepository sharedPermissionRepository;
+
+  private User owner;
+  private User requester;
+
+  @BeforeEach
+  void setUp() {
+    owner = persistUser("owner@example.com", UserType.PATIENT);
+    requester = persistUser("provider@example.com", UserType.HEALTHCARE_PROVIDER);
+  }
+
+  private User persistUser(String email, UserType userType) {
+    User user = new User();
+    user.setEmail(email);
+    user.setHashedPassword("hashedPassword");
+    user.setUserType(userType);
+    return entityManager.persist(user);
+  }
+
+  private void persistPermission(SharePermissionType type, ShareRequestStatus status) {
+    SharedPermission permission = new SharedPermission();
+    permission.setOwner(owner);
+    permission.setRequester(requester);
+    permission.setSharePermissionType(type);
+    permission.setStatus(status);
+    entityManager.persistAndFlush(permission);
+  }
+
+  @Test
+  void resolveEffectivePermission_NoPermission() {
+    EffectivePermission result =
+        sharedPermissionRepository.resolveEffectivePermission(owner.getId(), requester.getId());
+
+    assertTrue(result.getOwnerExists());
+    assertTrue(result.getRequesterExists());
+    assertNull(result.getPermissionType());
+  }
+
+  @Test
+  void resolveEffectivePermission_IgnoresPendingAndDenied() {
+    persistPermission(SharePermissionType.EDIT, ShareRequestStatus.PENDING);
+    persistPermission(SharePermissionType.VIEW, ShareRequestStatus.DENY);
+
+    EffectivePermission result =
+        sharedPermissionRepository.resolveEffectivePermission(owner.getId(), requester.getId());
+
+    assertNull(result.getPermissionType());
+  }
+
+  @Test
+  void resolveEffectivePermission_ReturnsHighestAccepted() {
+    persistPermission(SharePermissionType.VIEW, ShareRequestStatus.ACCEPT);
+    assertEquals(SharePermissionType.VIEW, sharedPermissionRepository
+        .resolveEffectivePermission(owner.getId(), requester.getId()).getPermissionType());
+
+    persistPermission(SharePermissionType.EDIT, ShareRequestStatus.ACCEPT);
+    assertEquals(SharePermissionType.EDIT, sharedPermissionRepository
+        .resolveEffectivePermission(owner.getId(), requester.getId()).getPermissionType());
+  }
+
+  @Test
+  void resolveEffectivePermission_IsDirectional() {
+    persistPermission(SharePermissionType.EDIT, ShareRequestStatus.ACCEPT);
+
+    assertNull(sharedPermissionRepository
+        .resolveEffectivePermission(requester.getId(), owner.getId()).getPermissionType());
+  }
+
+  @Test
+  void resolveEffectivePermission_MissingUsers() {
+    EffectivePermission result =
+        sharedPermissionRepository.resolveEffectivePermission(UUID.randomUUID(), requester.getId());
+
+    assertFalse(result.getOwnerExists());
+    assertTrue(result.getRequesterExists());
+
+    result =
+        sharedPermissionRepository.resolveEffectivePermission(owner.getId(), UUID.randomUUID());
+    assertTrue(result.getOwnerExists());
+    assertFalse(result.getRequesterExists());
+  }
+
+  @Test
+  void resolveEffectivePermission_UsersPendingDeletion() {
+    owner.setDeletionRequestedAt(new Date());
+    entityManager.persistAndFlush(owner);
+
+    EffectivePermission result =
+        sharedPermissionRepository.resolveEffectivePermission(owner.getId(), requester.getId());
+    assertFalse(result.getOwnerExists());
+    assertTrue(result.getRequesterExists());
+
+    result =
+        sharedPermissionRepository.resolveEffectivePermission(requester.getId(), owner.getId());
+    assertTrue(result.getOwnerExists());
+    assertFalse(result.getRequesterExists());
+  }
+}
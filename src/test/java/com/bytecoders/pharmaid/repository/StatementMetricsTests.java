@@ -0,0 +1,130 @@
+package com.bytecoders.pharmaid.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+/** Tests for {@link SqlSignature}, {@link StatementMetrics} and the timing DataSource. */
+public class StatementMetricsTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private final ListAppender<ILoggingEvent> log = new ListAppender<>();
+
+  private StatementTimingDataSource dataSource;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    ((Logger) LoggerFactory.getLogger(StatementMetrics.class)).addAppender(log);
+    log.start();
+    final JdbcDataSource h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:statement-metrics;DB_CLOSE_DELAY=-1");
+    try (Connection connection = h2.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS patients (id INT, name VARCHAR(255))");
+      statement.execute("DELETE FROM patients");
+    }
+    // every execution counts as slow
+    final StatementMetrics metrics = new StatementMetrics(registry, Tracer.NOOP, 0, 3);
+    dataSource = new StatementTimingDataSource(h2, () -> metrics);
+  }
+
+  @AfterEach
+  void tearDown() {
+    ((Logger) LoggerFactory.getLogger(StatementMetrics.class)).detachAppender(log);
+  }
+
+  private long count(String operation) {
+    return registry.get(StatementMetrics.METRIC_NAME).tag("operation", operation).timer().count();
+  }
+
+  @Test
+  void signature_Success_StripsValuesAndCollapsesInLists() {
+    final SqlSignature first = SqlSignature.of(
+        "select p.name from patients p where p.name = 'Jane Doe' and p.id in (?, ?, ?)");
+    final SqlSignature second = SqlSignature.of(
+        "select p.name   from patients p\n where p.name = 'John' and p.id in (?,?)");
+
+    assertEquals("select p.name from patients p where p.name = ? and p.id in (?)", first.sql());
+    assertEquals(first, second);
+    assertEquals("select", first.operation());
+    assertEquals("patients", first.table());
+    assertEquals("select p1_0.id from users p1_0 limit ?",
+        SqlSignature.of("select p1_0.id from users p1_0 limit 10").sql());
+  }
+
+  @Test
+  void preparedStatement_Success_RecordedBySignature() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      try (PreparedStatement insert =
+          connection.prepareStatement("INSERT INTO patients (id, name) VALUES (?, ?)")) {
+        insert.setInt(1, 1);
+        insert.setString(2, "Jane Doe");
+        insert.executeUpdate();
+        insert.setInt(1, 2);
+        insert.setString(2, "John Roe");
+        insert.executeUpdate();
+      }
+      try (PreparedStatement select =
+          connection.prepareStatement("SELECT name FROM patients WHERE id = ?")) {
+        select.setInt(1, 1);
+        try (ResultSet rows = select.executeQuery()) {
+          assertTrue(rows.next());
+        }
+      }
+    }
+
+    assertEquals(2, count("insert"));
+    assertEquals(1, count("select"));
+    assertEquals("patients", registry.get(StatementMetrics.METRIC_NAME)
+        .tag("operation", "select").timer().getId().getTag("table"));
+  }
+
+  @Test
+  void slowQueryLog_Success_RedactsValues() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.executeUpdate("INSERT INTO patients (id, name) VALUES (42, 'Jane Doe')");
+      assertThrows(SQLException.class, () -> statement.executeQuery("SELECT * FROM missing"));
+    }
+
+    assertEquals(2, log.list.size());
+    final String message = log.list.get(0).getFormattedMessage();
+    assertTrue(message.startsWith("slow_query signature="), message);
+    assertTrue(message.endsWith("sql=\"INSERT INTO patients (id, name) VALUES (?)\""), message);
+    assertFalse(message.contains("Jane"), message);
+    assertTrue(log.list.get(1).getFormattedMessage().contains("failed=true"));
+  }
+
+  @Test
+  void signatures_Success_BoundedByMaxSignatures() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.executeQuery("SELECT id FROM patients");
+      statement.executeQuery("SELECT name FROM patients");
+      statement.executeQuery("SELECT id, name FROM patients");
+      statement.executeQuery("SELECT name, id FROM patients");
+    }
+
+    assertEquals(4, registry.find(StatementMetrics.METRIC_NAME).timers().size());
+    assertEquals(1, registry.get(StatementMetrics.METRIC_NAME).tag("signature", "other")
+        .timer().count());
+  }
+}
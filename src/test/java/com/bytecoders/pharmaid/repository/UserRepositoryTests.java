@@ -0,0 +1,190 @@
+package com.bytecoders.pharmaid.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.bytecoders.pharmaid.openapi.model.SharePermissionType;
+import com.bytecoders.pharmaid.openapi.model.ShareRequestStatus;
+import com.bytecoders.pharmaid.openapi.model.UserType;
+import com.bytecoders.pharmaid.repository.model.Medication;
+import com.bytecoders.pharmaid.repository.model.Prescription;
+import com.bytecoders.pharmaid.repository.model.SharedPermission;
+import com.bytecoders.pharmaid.repository.model.User;
+import com.bytecoders.pharmaid.repository.model.UserPurge;
+import com.bytecoders.pharmaid.security.VerifiedTokenCache;
+import com.bytecoders.pharmaid.service.SharedPermissionCache;
+import com.bytecoders.pharmaid.service.SharedPermissionValidator;
+import com.bytecoders.pharmaid.service.UserPurger;
+import com.bytecoders.pharmaid.service.UserService;
+import com.bytecoders.pharmaid.util.JwtUtils;
+import com.bytecoders.pharmaid.util.PasswordUtils;
+import com.bytecoders.pharmaid.util.ServiceUtils;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Date;
+import java.util.concurrent.Executor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for {@link UserRepository} queries against an embedded database.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "pharmaid.user-purge.chunk-size=500"})
+@Import({UserService.class, UserPurger.class, ServiceUtils.class})
+public class UserRepositoryTests {
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private UserPurger userPurger;
+
+  @Autowired
+  private UserPurgeRepository userPurgeRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @MockBean
+  private PasswordUtils passwordUtils;
+
+  @MockBean
+  private JwtUtils jwtUtils;
+
+  @MockBean
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @MockBean
+  private SharedPermissionCache permissionCache;
+
+  @MockBean
+  private SharedPermissionValidator permissionValidator;
+
+  @MockBean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  private Executor taskExecutor;
+
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    user = new User();
+    user.setEmail("patient@example.com");
+    user.setHashedPassword("outdatedHash");
+    user.setUserType(UserType.PATIENT);
+    user = entityManager.persistAndFlush(user);
+    entityManager.clear();
+  }
+
+  @Test
+  void replaceHashedPassword_Success() {
+    assertEquals(1,
+        userRepository.replaceHashedPassword(user.getId(), "outdatedHash", "currentHash"));
+    assertEquals("currentHash", entityManager.find(User.class, user.getId()).getHashedPassword());
+  }
+
+  @Test
+  void replaceHashedPassword_Fail_PasswordChangedMeanwhile() {
+    assertEquals(0,
+        userRepository.replaceHashedPassword(user.getId(), "someOtherHash", "currentHash"));
+    assertEquals("outdatedHash", entityManager.find(User.class, user.getId()).getHashedPassword());
+  }
+
+  @Test
+  void deleteUser_Success_PurgedInChunks() {
+    final User provider = new User();
+    provider.setEmail("provider@example.com");
+    provider.setHashedPassword("hash");
+    provider.setUserType(UserType.HEALTHCARE_PROVIDER);
+    entityManager.persist(provider);
+    final Medication medication = new Medication();
+    medication.setMedicationName("Ibuprofen");
+    entityManager.persist(medication);
+
+    final User owner = entityManager.find(User.class, user.getId());
+    for (int i = 0; i < 3000; i++) {
+      Prescription prescription = new Prescription();
+      prescription.setUser(owner);
+      prescription.setMedication(medication);
+      prescription.setStartDate(new Date());
+      entityManager.persist(prescription);
+    }
+    for (int i = 0; i < 1000; i++) {
+      // share requests in both directions must go
+      SharedPermission permission = new SharedPermission();
+      permission.setOwner(i % 2 == 0 ? owner : provider);
+      permission.setRequester(i % 2 == 0 ? provider : owner);
+      permission.setSharePermissionType(SharePermissionType.VIEW);
+      permission.setStatus(ShareRequestStatus.ACCEPT);
+      entityManager.persist(permission);
+    }
+    entityManager.flush();
+    entityManager.clear();
+
+    userService.deleteUser(user.getId().toString());
+
+    // gone from the API at once, records still there until the purge runs
+    assertThrows(ResponseStatusException.class, () -> userService.getUser(user.getId().toString()));
+    assertEquals(3000L, count("SELECT COUNT(p) FROM Prescription p"));
+    final Statistics statistics =
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    userPurger.purgePending();
+
+    // per chunk of up to 500 rows, the last one short, a delete and a progress update; plus a
+    // constant few for polling, claiming, removing the user and the backlog count
+    assertTrue(statistics.getPrepareStatementCount() <= 2 * (3000 / 500 + 1000 / 500 + 2) + 7,
+        "statements: " + statistics.getPrepareStatementCount());
+    entityManager.clear();
+    assertNull(entityManager.find(User.class, user.getId()));
+    assertEquals(0L, count("SELECT COUNT(p) FROM Prescription p"));
+    assertEquals(0L, count("SELECT COUNT(sp) FROM SharedPermission sp"));
+    assertNotNull(entityManager.find(User.class, provider.getId()));
+    final UserPurge purge = userPurgeRepository.findById(user.getId()).orElseThrow();
+    assertEquals(UserPurge.Status.COMPLETED, purge.getStatus());
+    assertEquals(3000, purge.getPrescriptionsDeleted());
+    assertEquals(1000, purge.getSharedPermissionsDeleted());
+    assertNotNull(purge.getCompletedAt());
+  }
+
+  @Test
+  void claimPurge_Success_WonOnceUntilLeaseExpires() {
+    final Date now = new Date();
+    final Date leaseUntil = new Date(now.getTime() + 60_000);
+    userPurgeRepository.save(UserPurge.pending(user.getId(), now));
+
+    assertEquals(1, userPurgeRepository.claim(user.getId(), now, leaseUntil));
+    // another instance polling before the lease runs out
+    assertEquals(0, userPurgeRepository.claim(user.getId(), now, leaseUntil));
+    // and after it, when this instance is presumed dead
+    assertEquals(1, userPurgeRepository.claim(user.getId(), leaseUntil,
+        new Date(leaseUntil.getTime() + 60_000)));
+    entityManager.clear();
+    assertEquals(UserPurge.Status.RUNNING,
+        userPurgeRepository.findById(user.getId()).orElseThrow().getStatus());
+  }
+
+  private long count(String query) {
+    return entityManager.getEntityManager().createQuery(query, Long.class).getSingleResult();
+  }
+}
@@ -14,20 +14,30 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import com.bytecoders.pharmaid.service.UserPurger;
+import com.bytecoders.pharmaid.util.JwtPrincipal;
 import com.bytecoders.pharmaid.util.JwtUtils;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 /** JwtRequestFiler tests. */
 public class JwtRequestFilterTests {
@@ -38,6 +48,17 @@ public class JwtRequestFilterTests {
   @Mock
   private JwtUtils jwtUtils;
 
+  @Spy
+  private PublicEndpointMatcher publicEndpointMatcher =
+      new PublicEndpointMatcher(Set.of(PUBLIC_ENDPOINT), List.of());
+
+  @Spy
+  private VerifiedTokenCache verifiedTokenCache =
+      new VerifiedTokenCache(false, 100, Duration.ofMinutes(1), Clock.systemUTC());
+
+  @Mock
+  private UserPurger userPurger;
+
   @Mock
   private HttpServletRequest request;
 
@@ -51,43 +72,41 @@ public class JwtRequestFilterTests {
   private static final String PUBLIC_ENDPOINT = "/public-endpoint";
   private static final String PROTECTED_ENDPOINT = "/protected-endpoint";
   private static final String MOCK_USER_ID = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
+  private static final Instant EXPIRES_AT = Instant.now().plusSeconds(60);
 
   @BeforeEach
   void setup() {
     MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jwtRequestFilter, "observationRegistry",
+        ObservationRegistry.NOOP);
     SecurityContextHolder.clearContext();
   }
 
   @Test
   void doFilterInternal_Success_UsePublicEndpoints() throws ServletException, IOException {
     when(request.getRequestURI()).thenReturn(PUBLIC_ENDPOINT);
-    when(jwtUtils.getPublicEndpoints()).thenReturn(new String[]{PUBLIC_ENDPOINT});
     jwtRequestFilter.doFilterInternal(request, response, filterChain);
 
     verify(filterChain, times(1)).doFilter(request, response);
-    verify(jwtUtils, times(1)).getPublicEndpoints();
     verifyNoMoreInteractions(jwtUtils);
   }
 
   @Test
   void doFilterInternal_Fail_MissingAuthorizationHeader() throws ServletException, IOException {
     when(request.getRequestURI()).thenReturn(PROTECTED_ENDPOINT);
-    when(jwtUtils.getPublicEndpoints()).thenReturn(new String[]{PROTECTED_ENDPOINT});
     when(request.getHeader("Authorization")).thenReturn(null); // No header
     jwtRequestFilter.doFilterInternal(request, response, filterChain);
 
     verify(filterChain, times(1)).doFilter(request, response);
-    verify(jwtUtils, times(1)).getPublicEndpoints();
     verifyNoMoreInteractions(jwtUtils);
   }
 
   @Test
   void doFilterInternal_Fail_InvalidJwt() throws ServletException, IOException {
     when(request.getRequestURI()).thenReturn(PROTECTED_ENDPOINT);
-    when(jwtUtils.getPublicEndpoints()).thenReturn(new String[]{PUBLIC_ENDPOINT});
     when(request.getHeader("Authorization")).thenReturn("Bearer " + JWT_TOKEN);
 
-    doThrow(new RuntimeException("Invalid JWT")).when(jwtUtils).extractUserId(JWT_TOKEN);
+    doThrow(new RuntimeException("Invalid JWT")).when(jwtUtils).verifyToken(JWT_TOKEN);
 
     assertThrows(RuntimeException.class,
         () -> jwtRequestFilter.doFilterInternal(request, response, filterChain),
@@ -99,39 +118,66 @@ public class JwtRequestFilterTests {
   @Test
   void doFilterInternal_ValidJwtButNullUserId() throws ServletException, IOException {
     when(request.getRequestURI()).thenReturn(PROTECTED_ENDPOINT);
-    when(jwtUtils.getPublicEndpoints()).thenReturn(new String[]{PUBLIC_ENDPOINT});
     when(request.getHeader("Authorization")).thenReturn("Bearer " + JWT_TOKEN);
-    when(jwtUtils.extractUserId(JWT_TOKEN)).thenReturn(null);
+    when(jwtUtils.verifyToken(JWT_TOKEN)).thenReturn(new JwtPrincipal(null, EXPIRES_AT));
 
     jwtRequestFilter.doFilterInternal(request, response, filterChain);
     verify(filterChain, times(1)).doFilter(request, response);
-    verify(jwtUtils, times(1)).extractUserId(JWT_TOKEN);
-    verify(jwtUtils, never()).isTokenValid(anyString(), anyString());
+    verify(jwtUtils, times(1)).verifyToken(JWT_TOKEN);
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
   }
 
   @Test
   void doFilterInternal_Success_ValidJwtAndUserId() throws ServletException, IOException {
     when(request.getRequestURI()).thenReturn(PROTECTED_ENDPOINT);
-    when(jwtUtils.getPublicEndpoints()).thenReturn(new String[]{PUBLIC_ENDPOINT});
     when(request.getHeader("Authorization")).thenReturn("Bearer " + JWT_TOKEN);
-    when(jwtUtils.extractUserId(JWT_TOKEN)).thenReturn(MOCK_USER_ID);
-    when(jwtUtils.isTokenValid(JWT_TOKEN, MOCK_USER_ID)).thenReturn(true);
+    when(jwtUtils.verifyToken(JWT_TOKEN)).thenReturn(new JwtPrincipal(MOCK_USER_ID, EXPIRES_AT));
 
     jwtRequestFilter.doFilterInternal(request, response, filterChain);
     verify(filterChain, times(1)).doFilter(request, response);
-    verify(jwtUtils, times(1)).extractUserId(JWT_TOKEN);
-    verify(jwtUtils, times(1)).isTokenValid(JWT_TOKEN, MOCK_USER_ID);
+
+    // the token is parsed exactly once per request
+    verify(jwtUtils, times(1)).verifyToken(JWT_TOKEN);
+    verify(jwtUtils, never()).extractUserId(anyString());
+    verify(jwtUtils, never()).isTokenValid(anyString(), anyString());
     assertEquals(MOCK_USER_ID,
         SecurityContextHolder.getContext().getAuthentication().getPrincipal());
   }
 
   @Test
-  void doFilterInternal_Fail_AuthenticationAlreadyExists() throws ServletException, IOException {
+  void doFilterInternal_Fail_UserPendingDeletion() throws ServletException, IOException {
+    when(request.getRequestURI()).thenReturn(PROTECTED_ENDPOINT);
+    when(request.getHeader("Authorization")).thenReturn("Bearer " + JWT_TOKEN);
+    when(jwtUtils.verifyToken(JWT_TOKEN)).thenReturn(new JwtPrincipal(MOCK_USER_ID, EXPIRES_AT));
+    when(userPurger.isPending(MOCK_USER_ID)).thenReturn(true);
+
+    jwtRequestFilter.doFilterInternal(request, response, filterChain);
+    verify(filterChain, times(1)).doFilter(request, response);
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  @Test
+  void doFilterInternal_Success_CachedJwtVerifiedOnce() throws ServletException, IOException {
+    ReflectionTestUtils.setField(jwtRequestFilter, "verifiedTokenCache",
+        new VerifiedTokenCache(true, 100, Duration.ofMinutes(1), Clock.systemUTC()));
     when(request.getRequestURI()).thenReturn(PROTECTED_ENDPOINT);
-    when(jwtUtils.getPublicEndpoints()).thenReturn(new String[]{PUBLIC_ENDPOINT});
     when(request.getHeader("Authorization")).thenReturn("Bearer " + JWT_TOKEN);
-    when(jwtUtils.extractUserId(JWT_TOKEN)).thenReturn(MOCK_USER_ID);
+    when(jwtUtils.verifyToken(JWT_TOKEN)).thenReturn(new JwtPrincipal(MOCK_USER_ID, EXPIRES_AT));
 
+    jwtRequestFilter.doFilterInternal(request, response, filterChain);
+    SecurityContextHolder.clearContext();
+    jwtRequestFilter.doFilterInternal(request, response, filterChain);
+
+    verify(jwtUtils, times(1)).verifyToken(JWT_TOKEN);
+    verify(filterChain, times(2)).doFilter(request, response);
+    assertEquals(MOCK_USER_ID,
+        SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+  }
+
+  @Test
+  void doFilterInternal_Fail_AuthenticationAlreadyExists() throws ServletException, IOException {
+    when(request.getRequestURI()).thenReturn(PROTECTED_ENDPOINT);
+    when(request.getHeader("Authorization")).thenReturn("Bearer " + JWT_TOKEN);
     Authentication authentication = mock(Authentication.class);
     SecurityContext securityContext = mock(SecurityContext.class);
     when(securityContext.getAuthentication()).thenReturn(authentication);
@@ -139,7 +185,7 @@ public class JwtRequestFilterTests {
 
     jwtRequestFilter.doFilterInternal(request, response, filterChain);
 
-    verify(jwtUtils, never()).isTokenValid(anyString(), anyString());
+    verify(jwtUtils, never()).verifyToken(anyString());
     verify(filterChain, times(1)).doFilter(request, response);
   }
 
@@ -168,19 +214,6 @@ public class JwtRequestFilterTests {
         "JWT should be null when Authorization header does not start with 'Bearer '.");
   }
 
-  @Test
-  void extractUserIdFromJwt_Success() {
-    when(jwtUtils.extractUserId(JWT_TOKEN)).thenReturn(MOCK_USER_ID);
-    String userId = jwtRequestFilter.extractUserIdFromJwt(JWT_TOKEN);
-    assertEquals(MOCK_USER_ID, userId, "Extracted userId should match the expected value.");
-  }
-
-  @Test
-  void extractUserIdFromJwt_Fail_NullJwt() {
-    String userId = jwtRequestFilter.extractUserIdFromJwt(null);
-    assertNull(userId, "userId should be null when JWT is null.");
-  }
-
   @Test
   void isAuthenticationNull_True() {
     boolean result = jwtRequestFilter.isAuthenticationNull();
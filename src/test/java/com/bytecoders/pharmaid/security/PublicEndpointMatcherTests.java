@@ -0,0 +1,69 @@
+package com.bytecoders.pharmaid.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PublicEndpointMatcher}.
+ */
+public class PublicEndpointMatcherTests {
+
+  private final PublicEndpointMatcher matcher = new PublicEndpointMatcher();
+
+  @Test
+  void matches_Success_ExactPaths() {
+    assertTrue(matcher.matches("/hello"));
+    assertTrue(matcher.matches("/login"));
+    assertTrue(matcher.matches("/register"));
+    assertTrue(matcher.matches("/pharmaid-api-docs"));
+    assertTrue(matcher.matches("/pharmaid-api-docs/swagger-config"));
+    assertTrue(matcher.matches("/pharmaid-api-docs-ui.html"));
+  }
+
+  @Test
+  void matches_Success_SwaggerAssets() {
+    assertTrue(matcher.matches("/swagger-ui/index.html"));
+    assertTrue(matcher.matches("/swagger-ui/swagger-ui-bundle.js"));
+    assertTrue(matcher.matches("/swagger-ui/swagger-initializer.js"));
+  }
+
+  @Test
+  void matches_Fail_ProtectedPaths() {
+    assertFalse(matcher.matches("/users/123"));
+    assertFalse(matcher.matches("/medications"));
+    assertFalse(matcher.matches("/hello/world"));
+    assertFalse(matcher.matches("/login/"));
+    assertFalse(matcher.matches("/swagger-ui"));
+    assertFalse(matcher.matches("/swagger"));
+    assertFalse(matcher.matches(""));
+    assertFalse(matcher.matches((String) null));
+  }
+
+  @Test
+  void matches_Success_SharedPrefixes() {
+    PublicEndpointMatcher custom =
+        new PublicEndpointMatcher(Set.of(), List.of("/assets/css/", "/assets/js/"));
+
+    assertTrue(custom.matches("/assets/css/app.css"));
+    assertTrue(custom.matches("/assets/js/app.js"));
+    assertFalse(custom.matches("/assets/img/logo.png"));
+    assertFalse(custom.matches("/assets/"));
+  }
+
+  @Test
+  void matches_Success_UsesRequestUri() {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getRequestURI()).thenReturn("/login");
+    assertTrue(matcher.matches(request));
+
+    when(request.getRequestURI()).thenReturn("/users/123/prescriptions");
+    assertFalse(matcher.matches(request));
+  }
+}
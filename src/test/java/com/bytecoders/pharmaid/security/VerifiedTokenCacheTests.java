@@ -0,0 +1,142 @@
+package com.bytecoders.pharmaid.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.bytecoders.pharmaid.util.JwtPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link VerifiedTokenCache}.
+ */
+public class VerifiedTokenCacheTests {
+
+  private static final String TOKEN = "header.payload.signature";
+  private static final String USER_ID = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
+
+  private final MutableClock clock = new MutableClock(Instant.parse("2024-12-01T00:00:00Z"));
+  private final AtomicInteger verifications = new AtomicInteger();
+  private VerifiedTokenCache tokenCache;
+
+  @BeforeEach
+  void setUp() {
+    tokenCache = new VerifiedTokenCache(true, 2, Duration.ofMinutes(10), clock);
+  }
+
+  private Function<String, JwtPrincipal> verifier(String userId, Duration lifetime) {
+    return token -> {
+      verifications.incrementAndGet();
+      return new JwtPrincipal(userId, clock.instant().plus(lifetime));
+    };
+  }
+
+  @Test
+  void verify_Success_VerifiesOnceThenHits() {
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+    JwtPrincipal principal = tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+
+    assertEquals(USER_ID, principal.userId());
+    assertEquals(1, verifications.get());
+    assertEquals(0.5, tokenCache.stats().hitRate());
+  }
+
+  @Test
+  void verify_Success_Disabled() {
+    tokenCache = new VerifiedTokenCache(false, 2, Duration.ofMinutes(10), clock);
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+
+    assertEquals(2, verifications.get());
+    assertEquals(0, tokenCache.size());
+  }
+
+  @Test
+  void verify_Success_HonoursTokenExpiry() {
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofSeconds(30)));
+    clock.advance(Duration.ofSeconds(31));
+
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofSeconds(30)));
+    assertEquals(2, verifications.get());
+  }
+
+  @Test
+  void verify_Success_BoundedByMaxTtl() {
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+    clock.advance(Duration.ofMinutes(11));
+
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+    assertEquals(2, verifications.get());
+  }
+
+  @Test
+  void verify_Fail_VerifierErrorNotCached() {
+    assertThrows(IllegalArgumentException.class, () -> tokenCache.verify(TOKEN, token -> {
+      throw new IllegalArgumentException("bad signature");
+    }));
+    assertEquals(0, tokenCache.size());
+  }
+
+  @Test
+  void invalidateUser_Success_DropsOnlyThatUsersTokens() {
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+    tokenCache.verify("other.token", verifier("otherUser", Duration.ofDays(90)));
+
+    tokenCache.invalidateUser(USER_ID);
+
+    assertEquals(1, tokenCache.size());
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+    assertEquals(3, verifications.get());
+  }
+
+  @Test
+  void bindTo_Success_PublishesHitRatio() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    tokenCache.bindTo(registry);
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+    tokenCache.verify(TOKEN, verifier(USER_ID, Duration.ofDays(90)));
+
+    assertEquals(0.5, registry.get("cache.hit.ratio")
+        .tag("cache", VerifiedTokenCache.CACHE_NAME).gauge().value());
+    assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+  }
+
+  /**
+   * Clock that only moves when told to.
+   */
+  private static final class MutableClock extends Clock {
+
+    private Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
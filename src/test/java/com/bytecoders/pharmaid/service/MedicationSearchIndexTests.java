@@ -0,0 +1,88 @@
+package com.bytecoders.pharmaid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.bytecoders.pharmaid.repository.model.Medication;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link MedicationSearchIndex}.
+ */
+public class MedicationSearchIndexTests {
+
+  private final MedicationSearchIndex index = MedicationSearchIndex.build(Stream.of(
+      "Ibuprofen", "Aspirin", "Acetaminophen", "Amoxicillin", "Amlodipine", "Atorvastatin",
+      "Metformin", "Metoprolol", "Lisinopril", "Losartan", "Ibuprofen Lysine")
+      .map(MedicationSearchIndexTests::medication)
+      .toList());
+
+  private static Medication medication(String name) {
+    Medication medication = new Medication();
+    medication.setId(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)));
+    medication.setMedicationName(name);
+    return medication;
+  }
+
+  private List<String> names(String query, int limit) {
+    return index.search(query, limit).stream().map(Medication::getMedicationName).toList();
+  }
+
+  @Test
+  void search_Success_PrefixMatchesInNameOrder() {
+    assertEquals(List.of("Amlodipine", "Amoxicillin"), names("am", 10));
+    assertEquals(List.of("Metformin", "Metoprolol"), names("MET", 10));
+    assertEquals(List.of("Ibuprofen", "Ibuprofen Lysine"), names("  ibuprofen ", 10));
+  }
+
+  @Test
+  void search_Success_RespectsLimit() {
+    assertEquals(List.of("Acetaminophen", "Amlodipine"), names("a", 2));
+  }
+
+  @Test
+  void search_Success_FuzzyMatchesMisspellings() {
+    assertEquals("Ibuprofen", names("ibuprfen", 1).get(0));
+    assertEquals("Atorvastatin", names("atrovastatin", 1).get(0));
+    assertEquals("Lisinopril", names("lisnop", 1).get(0));
+  }
+
+  @Test
+  void search_Success_PrefixBeforeFuzzy() {
+    // "los" is a prefix of Losartan and one edit away from the start of Lisinopril
+    assertEquals(List.of("Losartan", "Lisinopril"), names("los", 10));
+  }
+
+  @Test
+  void search_Success_NoMatches() {
+    assertTrue(names("zzz", 10).isEmpty());
+    assertTrue(names("", 10).isEmpty());
+    assertTrue(names("ibu", 0).isEmpty());
+    assertEquals(11, index.size());
+  }
+
+  @Test
+  void search_Success_LongQueryCutForBothPasses() {
+    final String name =
+        "Sodium Chloride 0.9% Intravenous Infusion Solution For Injection Bag 1000 ml";
+    final MedicationSearchIndex longNames =
+        MedicationSearchIndex.build(List.of(medication(name), medication("Sodium Bicarbonate")));
+
+    // differs from the name only after the characters searched on
+    assertEquals(List.of(name), longNames.search(name.substring(0, 70) + " 500 ml", 10).stream()
+        .map(Medication::getMedicationName).toList());
+  }
+
+  @Test
+  void prefixEditDistance_Success() {
+    assertEquals(0, MedicationSearchIndex.prefixEditDistance("ibu", "ibuprofen", 1));
+    assertEquals(1, MedicationSearchIndex.prefixEditDistance("ibp", "ibuprofen", 1));
+    // a transposition is two edits from the full name, but one from the prefix "ibuprofe"
+    assertEquals(1, MedicationSearchIndex.prefixEditDistance("ibuprofne", "ibuprofen", 2));
+    assertTrue(MedicationSearchIndex.prefixEditDistance("xyz", "ibuprofen", 1) > 1);
+  }
+}
@@ -1,15 +1,25 @@
 package com.bytecoders.pharmaid.service;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.bytecoders.pharmaid.repository.MedicationRepository;
 import com.bytecoders.pharmaid.repository.model.Medication;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.List;
+import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 /**
@@ -21,13 +31,16 @@ public class MedicationServiceTests {
   @Mock
   private MedicationRepository medicationRepository;
 
+  @Spy
+  private ObjectMapper objectMapper = new ObjectMapper();
+
   @InjectMocks
   private MedicationService medicationService = new MedicationService();
 
   @Test
   public void testGetAllMedications() {
     final Medication mockMedication = new Medication();
-    mockMedication.setId("someMedicationId");
+    mockMedication.setId(UUID.randomUUID());
     mockMedication.setMedicationName("Ibuprofen");
 
     when(medicationRepository.findAll()).thenReturn(List.of(mockMedication));
@@ -35,4 +48,52 @@ public class MedicationServiceTests {
     final List<Medication> medications = medicationService.getAllMedications();
     assertEquals(medications, List.of(mockMedication));
   }
+
+  @Test
+  public void testCatalogLoadedOnceAndServedFromMemory() throws Exception {
+    final Medication mockMedication = new Medication();
+    mockMedication.setId(UUID.randomUUID());
+    mockMedication.setMedicationName("Ibuprofen");
+
+    when(medicationRepository.findAll()).thenReturn(List.of(mockMedication));
+
+    final MedicationCatalog catalog = medicationService.getCatalog();
+    assertSame(catalog, medicationService.getCatalog());
+    medicationService.getAllMedications();
+    verify(medicationRepository, times(1)).findAll();
+
+    assertArrayEquals(objectMapper.writeValueAsBytes(List.of(mockMedication)), catalog.body());
+    assertTrue(catalog.etag().startsWith("\"") && catalog.etag().endsWith("\""));
+    assertTrue(catalog.isMatchedBy(catalog.etag()));
+    assertTrue(catalog.isMatchedBy("\"other\", W/" + catalog.etag()));
+    assertTrue(catalog.isMatchedBy("*"));
+    assertFalse(catalog.isMatchedBy("\"other\""));
+    assertFalse(catalog.isMatchedBy(null));
+  }
+
+  @Test
+  public void testRefreshCatalog() {
+    final Medication ibuprofen = new Medication();
+    ibuprofen.setId(UUID.randomUUID());
+    ibuprofen.setMedicationName("Ibuprofen");
+    final Medication aspirin = new Medication();
+    aspirin.setId(UUID.randomUUID());
+    aspirin.setMedicationName("Aspirin");
+
+    when(medicationRepository.findAll())
+        .thenReturn(List.of(ibuprofen))
+        .thenReturn(List.of(ibuprofen, aspirin))
+        .thenThrow(new IllegalStateException("database unavailable"));
+
+    final MedicationCatalog before = medicationService.getCatalog();
+    medicationService.refreshCatalog();
+    final MedicationCatalog after = medicationService.getCatalog();
+
+    assertEquals(List.of(ibuprofen, aspirin), after.medications());
+    assertNotEquals(before.etag(), after.etag());
+
+    // a failed refresh keeps serving the last good snapshot
+    medicationService.refreshCatalog();
+    assertSame(after, medicationService.getCatalog());
+  }
 }
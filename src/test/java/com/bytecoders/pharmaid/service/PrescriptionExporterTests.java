@@ -0,0 +1,138 @@
+package com.bytecoders.pharmaid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.bytecoders.pharmaid.openapi.model.UserType;
+import com.bytecoders.pharmaid.repository.model.Medication;
+import com.bytecoders.pharmaid.repository.model.Prescription;
+import com.bytecoders.pharmaid.repository.model.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for {@link PrescriptionExporter} against an embedded database.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "pharmaid.export.max-concurrent=2"})
+@Import({PrescriptionExporter.class, ObjectMapper.class})
+public class PrescriptionExporterTests {
+
+  private static final int HISTORY_SIZE = 1200;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private PrescriptionExporter prescriptionExporter;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  private User patient;
+
+  @BeforeEach
+  void setUp() {
+    patient = new User();
+    patient.setEmail("patient@example.com");
+    patient.setHashedPassword("hashedPassword");
+    patient.setUserType(UserType.PATIENT);
+    entityManager.persist(patient);
+
+    Medication medication = new Medication();
+    medication.setMedicationName("Amoxicillin, \"Amoxil\" 500mg");
+    entityManager.persist(medication);
+
+    for (int i = 0; i < HISTORY_SIZE; i++) {
+      Prescription prescription = new Prescription();
+      prescription.setUser(patient);
+      prescription.setMedication(medication);
+      prescription.setDosage(2);
+      prescription.setNumOfDoses(3);
+      prescription.setStartDate(Date.from(LocalDate.of(2020, 1, 1).plusDays(i)
+          .atStartOfDay(ZoneOffset.UTC).toInstant()));
+      prescription.setIsActive(i % 2 == 0);
+      entityManager.persist(prescription);
+    }
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  private List<String> export(ExportFormat format) throws IOException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    final long rows = prescriptionExporter.write(patient.getId(), format, output);
+    assertEquals(HISTORY_SIZE, rows);
+    return output.toString(StandardCharsets.UTF_8).lines().toList();
+  }
+
+  @Test
+  void write_Success_Ndjson() throws IOException {
+    final List<String> lines = export(ExportFormat.NDJSON);
+
+    assertEquals(HISTORY_SIZE, lines.size());
+    final JsonNode newest = objectMapper.readTree(lines.get(0));
+    assertEquals("Amoxicillin, \"Amoxil\" 500mg",
+        newest.get("medication").get("medicationName").asText());
+    assertEquals(2, newest.get("dosage").asInt());
+    // the owning user is never serialized
+    assertFalse(newest.has("user"));
+    // written prescriptions are detached, only the shared medication stays managed
+    assertEquals(1, entityManager.getEntityManager().unwrap(Session.class).getStatistics()
+        .getEntityCount());
+  }
+
+  @Test
+  void write_Success_Csv() throws IOException {
+    final List<String> lines = export(ExportFormat.CSV);
+
+    assertEquals(HISTORY_SIZE + 1, lines.size());
+    assertEquals(PrescriptionExporter.CSV_HEADER, lines.get(0));
+    // newest first, quoted medication name, UTC dates
+    final String newest = lines.get(1);
+    assertEquals(",\"Amoxicillin, \"\"Amoxil\"\" 500mg\",2,3,2023-04-14,,false",
+        newest.substring(newest.indexOf(',', newest.indexOf(',') + 1)));
+  }
+
+  @Test
+  void csvField_Success_QuotesOnlyWhenNeeded() {
+    assertEquals("plain", PrescriptionExporter.csvField("plain"));
+    assertEquals("", PrescriptionExporter.csvField(null));
+    assertEquals("\"a,b\"", PrescriptionExporter.csvField("a,b"));
+    assertEquals("\"line\nbreak\"", PrescriptionExporter.csvField("line\nbreak"));
+  }
+
+  @Test
+  void acquire_Fail_AllSlotsTaken() {
+    prescriptionExporter.acquire();
+    prescriptionExporter.acquire();
+    try {
+      ResponseStatusException exception =
+          assertThrows(ResponseStatusException.class, () -> prescriptionExporter.acquire());
+      assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+
+      prescriptionExporter.release();
+      prescriptionExporter.acquire();
+    } finally {
+      prescriptionExporter.release();
+      prescriptionExporter.release();
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package com.bytecoders.pharmaid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bytecoders.pharmaid.openapi.model.BulkPrescriptionResult;
+import com.bytecoders.pharmaid.openapi.model.CreatePrescriptionRequest;
+import com.bytecoders.pharmaid.openapi.model.UserType;
+import com.bytecoders.pharmaid.repository.PrescriptionRepository;
+import com.bytecoders.pharmaid.repository.model.Medication;
+import com.bytecoders.pharmaid.repository.model.User;
+import com.bytecoders.pharmaid.util.JwtUtils;
+import com.bytecoders.pharmaid.util.ServiceUtils;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for bulk creation and export in {@link PrescriptionService} against an embedded database.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.order_inserts=true"})
+@Import({PrescriptionService.class, ServiceUtils.class})
+public class PrescriptionServiceTests {
+
+  private static final String LOGGED_IN_USER_ID = "provider";
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private PrescriptionService prescriptionService;
+
+  @Autowired
+  private PrescriptionRepository prescriptionRepository;
+
+  @MockBean
+  private SharedPermissionValidator permissionValidator;
+
+  @MockBean
+  private JwtUtils jwtUtils;
+
+  @MockBean
+  private PrescriptionExporter prescriptionExporter;
+
+  private User patient;
+  private String medicationId;
+
+  @BeforeEach
+  void setUp() {
+    patient = new User();
+    patient.setEmail("patient@example.com");
+    patient.setHashedPassword("hashedPassword");
+    patient.setUserType(UserType.PATIENT);
+    entityManager.persist(patient);
+
+    final Medication medication = new Medication();
+    medication.setMedicationName("Ibuprofen");
+    entityManager.persist(medication);
+    entityManager.flush();
+    medicationId = medication.getId().toString();
+
+    when(jwtUtils.getLoggedInUserId()).thenReturn(LOGGED_IN_USER_ID);
+  }
+
+  private CreatePrescriptionRequest request(String medicationId) {
+    CreatePrescriptionRequest request = new CreatePrescriptionRequest();
+    request.setMedicationId(medicationId);
+    request.setDosage(1);
+    request.setNumOfDoses(2);
+    request.setStartDate(new Date());
+    request.setIsActive(true);
+    return request;
+  }
+
+  private Statistics statistics() {
+    return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @Test
+  void createPrescriptions_Success_BatchesInserts() {
+    final List<CreatePrescriptionRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      requests.add(request(medicationId));
+    }
+    statistics().clear();
+
+    final List<BulkPrescriptionResult> results =
+        prescriptionService.createPrescriptions(patient, requests);
+
+    assertEquals(200, results.size());
+    assertTrue(results.stream().allMatch(r -> r.getStatus() == HttpStatus.CREATED.value()));
+    assertEquals(199, results.get(199).getIndex());
+    assertNotNull(results.get(0).getPrescriptionId());
+    assertEquals(200, prescriptionRepository.count());
+    // one medication lookup and 200 inserts sent as 4 batches of 50
+    assertEquals(200, statistics().getEntityInsertCount());
+    assertTrue(statistics().getPrepareStatementCount() <= 1 + 200 / 50,
+        "statements: " + statistics().getPrepareStatementCount());
+    verify(permissionValidator)
+        .validateEditPermission(LOGGED_IN_USER_ID, patient.getId().toString());
+  }
+
+  @Test
+  void createPrescriptions_Success_ReportsRejectedItems() {
+    final CreatePrescriptionRequest invalid = request(medicationId);
+    invalid.setDosage(null);
+
+    final List<BulkPrescriptionResult> results = prescriptionService.createPrescriptions(patient,
+        Arrays.asList(request(medicationId), request("missing"), invalid, null));
+
+    assertEquals(HttpStatus.CREATED.value(), results.get(0).getStatus());
+    assertEquals(HttpStatus.NOT_FOUND.value(), results.get(1).getStatus());
+    assertEquals("Provided medicationId does not exist: missing", results.get(1).getError());
+    assertNull(results.get(1).getPrescriptionId());
+    assertEquals(HttpStatus.BAD_REQUEST.value(), results.get(2).getStatus());
+    assertEquals("Missing required fields: dosage", results.get(2).getError());
+    assertEquals(HttpStatus.BAD_REQUEST.value(), results.get(3).getStatus());
+    assertEquals(1, prescriptionRepository.count());
+  }
+
+  @Test
+  void createPrescriptions_Fail_NoEditPermission() {
+    doThrow(new ResponseStatusException(HttpStatus.FORBIDDEN)).when(permissionValidator)
+        .validateEditPermission(LOGGED_IN_USER_ID, patient.getId().toString());
+
+    assertThrows(ResponseStatusException.class, () -> prescriptionService.createPrescriptions(
+        patient, List.of(request(medicationId))));
+    assertEquals(0, prescriptionRepository.count());
+  }
+
+  @Test
+  void exportPrescriptions_Success_ReleasesSlotWhenWriteFails() throws IOException {
+    final PrescriptionExport body =
+        prescriptionService.exportPrescriptions(patient.getId().toString(), ExportFormat.CSV);
+    verify(prescriptionExporter).acquire();
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    doThrow(new IOException("client gone")).when(prescriptionExporter)
+        .write(patient.getId(), ExportFormat.CSV, output);
+
+    assertThrows(IOException.class, () -> body.writeTo(output));
+    // the request completing afterwards must not give the slot back a second time
+    body.release();
+    verify(prescriptionExporter).release();
+  }
+
+  @Test
+  void exportPrescriptions_Success_ReleasesSlotWhenNeverWritten() throws IOException {
+    final PrescriptionExport body =
+        prescriptionService.exportPrescriptions(patient.getId().toString(), ExportFormat.CSV);
+    verify(prescriptionExporter).acquire();
+
+    body.release();
+    body.release();
+    verify(prescriptionExporter).release();
+    verify(prescriptionExporter, never()).write(any(), any(), any());
+  }
+}
@@ -0,0 +1,60 @@
+package com.bytecoders.pharmaid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.web.server.ResponseStatusException;
+
+/** Tests that {@code @Observed} services record a pharmaid.service timer per method. */
+public class ServiceTimerTests {
+
+  private SimpleMeterRegistry registry;
+
+  private SharedPermissionValidator validator;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    final AspectJProxyFactory factory = new AspectJProxyFactory(new SharedPermissionValidator());
+    factory.setProxyTargetClass(true);
+    final ObservationRegistry observations = ObservationRegistry.create();
+    observations.observationConfig()
+        .observationHandler(new DefaultMeterObservationHandler(registry));
+    factory.addAspect(new ObservedAspect(observations));
+    validator = factory.getProxy();
+  }
+
+  @Test
+  void observedService_Success_RecordsEachCallByMethod() {
+    validator.validateViewPermission("user", "user");
+    validator.validateViewPermission("user", "user");
+    validator.validateLoggedInUser("user", "user");
+
+    assertEquals(2, registry.get("pharmaid.service")
+        .tag("class", SharedPermissionValidator.class.getName())
+        .tag("method", "validateViewPermission")
+        .tag("error", "none")
+        .timer().count());
+    assertEquals(1, registry.get("pharmaid.service")
+        .tag("method", "validateLoggedInUser")
+        .timer().count());
+  }
+
+  @Test
+  void observedService_Failure_TagsError() {
+    assertThrows(ResponseStatusException.class,
+        () -> validator.validateLoggedInUser("user", "other"));
+
+    assertEquals(1, registry.get("pharmaid.service")
+        .tag("method", "validateLoggedInUser")
+        .tag("error", ResponseStatusException.class.getSimpleName())
+        .timer().count());
+  }
+}
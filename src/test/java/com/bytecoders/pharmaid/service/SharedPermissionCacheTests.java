@@ -0,0 +1,108 @@
+package com.bytecoders.pharmaid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link SharedPermissionCache}.
+ */
+public class SharedPermissionCacheTests {
+
+  private static final String REQUESTER_ID = "requester456";
+  private static final String OWNER_ID = "owner123";
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+  private SharedPermissionCache permissionCache;
+
+  @BeforeEach
+  void setUp() {
+    permissionCache = new SharedPermissionCache(2, 1000, nanos::get);
+  }
+
+  private PermissionLevel load(PermissionLevel level) {
+    loads.incrementAndGet();
+    return level;
+  }
+
+  @Test
+  void get_Success_LoadsOnceThenHits() {
+    assertEquals(PermissionLevel.VIEW,
+        permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.VIEW)));
+    assertEquals(PermissionLevel.VIEW,
+        permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.EDIT)));
+
+    assertEquals(1, loads.get());
+    assertEquals(1, permissionCache.stats().hitCount());
+    assertEquals(1, permissionCache.stats().missCount());
+  }
+
+  @Test
+  void get_Success_KeyIsDirectional() {
+    permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.EDIT));
+
+    // the owner has no access to the requester's records
+    assertEquals(PermissionLevel.NONE,
+        permissionCache.get(OWNER_ID, REQUESTER_ID, () -> load(PermissionLevel.NONE)));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void invalidate_Success_ForcesReload() {
+    permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.NONE));
+    permissionCache.invalidate(REQUESTER_ID, OWNER_ID);
+
+    assertEquals(PermissionLevel.EDIT,
+        permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.EDIT)));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void invalidateUser_Success_DropsBothDirections() {
+    permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.VIEW));
+    permissionCache.get(OWNER_ID, REQUESTER_ID, () -> load(PermissionLevel.NONE));
+    permissionCache.get("someoneElse", "thirdUser", () -> load(PermissionLevel.VIEW));
+    permissionCache.invalidateUser(OWNER_ID);
+
+    assertEquals(1, permissionCache.size());
+  }
+
+  @Test
+  void get_Success_ExpiresAfterTtl() {
+    permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.VIEW));
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+
+    assertEquals(PermissionLevel.NONE,
+        permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.NONE)));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void get_Success_EvictsBeyondMaximumSize() {
+    permissionCache.get("a", OWNER_ID, () -> load(PermissionLevel.VIEW));
+    permissionCache.get("b", OWNER_ID, () -> load(PermissionLevel.VIEW));
+    permissionCache.get("c", OWNER_ID, () -> load(PermissionLevel.VIEW));
+
+    assertEquals(2, permissionCache.size());
+    assertEquals(1, permissionCache.stats().evictionCount());
+  }
+
+  @Test
+  void bindTo_Success_PublishesCacheMetrics() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    permissionCache.bindTo(registry);
+    permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.VIEW));
+    permissionCache.get(REQUESTER_ID, OWNER_ID, () -> load(PermissionLevel.VIEW));
+
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", SharedPermissionCache.CACHE_NAME)
+        .tag("result", "hit").functionCounter().count());
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", SharedPermissionCache.CACHE_NAME)
+        .tag("result", "miss").functionCounter().count());
+  }
+}
@@ -19,6 +19,7 @@ import com.bytecoders.pharmaid.repository.SharedPermissionRepository;
 import com.bytecoders.pharmaid.repository.model.SharedPermission;
 import com.bytecoders.pharmaid.repository.model.User;
 import com.bytecoders.pharmaid.util.ServiceUtils;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -46,28 +47,34 @@ public class SharedPermissionServiceTests {
   @Mock
   private SharedPermissionValidator permissionValidator;
 
+  @Mock
+  private SharedPermissionCache permissionCache;
+
   @InjectMocks
   private SharedPermissionService sharedPermissionService;
 
   private User owner;
   private User requester;
   private SharedPermission permission;
-  private final String nonExistentUserId = "nonExistentUser123";
+  private final String nonExistentUserId = "5c0a2a43-1d8e-4a55-b3b4-8f1f0d7e9a21";
+  private final String ownerId = "0b9e8c4a-5f0e-4a39-9d5e-7c6f2b1a3e44";
+  private final String requesterId = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
+  private final String permissionId = "3d6f0b17-1c4b-4b62-928e-d0b1e6e62b97";
 
   @BeforeEach
   void setUp() {
     // owner user of the health records
     owner = new User();
-    owner.setId("owner123");
+    owner.setId(UUID.fromString(ownerId));
 
     // user making a request to act on another user's health records
     requester = new User();
-    requester.setId("requester456");
+    requester.setId(UUID.fromString(requesterId));
     requester.setUserType(UserType.HEALTHCARE_PROVIDER);
 
     // a permission set between owner and requester
     permission = new SharedPermission();
-    permission.setId("permission789");
+    permission.setId(UUID.fromString(permissionId));
     permission.setOwner(owner);
     permission.setRequester(requester);
     permission.setSharePermissionType(SharePermissionType.VIEW);
@@ -77,12 +84,12 @@ public class SharedPermissionServiceTests {
   @Test
   void createSharingRequest_Success() {
     // mock owner, requester, and saved permission
-    when(userService.getUser(owner.getId())).thenReturn(owner);
-    when(userService.getUser(requester.getId())).thenReturn(requester);
+    when(userService.getUser(ownerId)).thenReturn(owner);
+    when(userService.getUser(requesterId)).thenReturn(requester);
     when(sharedPermissionRepository.save(any(SharedPermission.class))).thenReturn(permission);
 
     SharedPermission result =
-        sharedPermissionService.createSharingRequest(requester.getId(), owner.getId(),
+        sharedPermissionService.createSharingRequest(requesterId, ownerId,
             permission.getSharePermissionType());
 
     // assertions and verify
@@ -94,88 +101,92 @@ public class SharedPermissionServiceTests {
     verify(permissionValidator).validateCreateShareRequestSetup(owner, requester,
         SharePermissionType.VIEW);
     verify(sharedPermissionRepository).save(any(SharedPermission.class));
+    verify(permissionCache).invalidate(requesterId, ownerId);
   }
 
   @Test
   void shareRequestAction_AcceptSuccess() {
-    when(serviceUtils.findEntityById(eq(permission.getId()), eq("shareRequest"),
+    when(serviceUtils.findEntityById(eq(permissionId), eq("shareRequest"),
         eq(sharedPermissionRepository))).thenReturn(permission);
     when(sharedPermissionRepository.save(any(SharedPermission.class))).thenReturn(permission);
 
     // ACCEPT share action
     SharedPermission result =
-        sharedPermissionService.shareRequestAction(owner.getId(), permission.getId(),
+        sharedPermissionService.shareRequestAction(ownerId, permissionId,
             ShareRequestStatus.ACCEPT);
 
     // assertions and verify
     assertNotNull(result);
     assertEquals(ShareRequestStatus.ACCEPT, result.getStatus());
     assertEquals(permission, result);
-    verify(permissionValidator).validateShareRequestAction(permission, owner.getId(),
+    verify(permissionValidator).validateShareRequestAction(permission, ownerId,
         ShareRequestStatus.ACCEPT);
     verify(sharedPermissionRepository).save(permission);
+    verify(permissionCache).invalidate(requesterId, ownerId);
   }
 
   @Test
   void shareRequestAction_DenySuccess() {
-    when(serviceUtils.findEntityById(eq(permission.getId()), eq("shareRequest"),
+    when(serviceUtils.findEntityById(eq(permissionId), eq("shareRequest"),
         eq(sharedPermissionRepository))).thenReturn(permission);
     when(sharedPermissionRepository.save(any(SharedPermission.class))).thenReturn(permission);
 
     // DENY share action
     SharedPermission result =
-        sharedPermissionService.shareRequestAction(owner.getId(), permission.getId(),
+        sharedPermissionService.shareRequestAction(ownerId, permissionId,
             ShareRequestStatus.DENY);
 
     // assertions and verify
     assertNotNull(result);
     assertEquals(ShareRequestStatus.DENY, result.getStatus());
     assertEquals(permission, result);
-    verify(permissionValidator).validateShareRequestAction(permission, owner.getId(),
+    verify(permissionValidator).validateShareRequestAction(permission, ownerId,
         ShareRequestStatus.DENY);
     verify(sharedPermissionRepository).save(permission);
   }
 
   @Test
   void shareRequestAction_PendingFailure() {
-    when(serviceUtils.findEntityById(eq(permission.getId()), eq("shareRequest"),
+    when(serviceUtils.findEntityById(eq(permissionId), eq("shareRequest"),
         eq(sharedPermissionRepository))).thenReturn(permission);
 
     doThrow(
         new IllegalArgumentException("Cannot choose PENDING as a share action response")).when(
             permissionValidator)
-        .validateShareRequestAction(permission, owner.getId(), ShareRequestStatus.PENDING);
+        .validateShareRequestAction(permission, ownerId, ShareRequestStatus.PENDING);
 
     IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-      sharedPermissionService.shareRequestAction(owner.getId(), permission.getId(),
+      sharedPermissionService.shareRequestAction(ownerId, permissionId,
           ShareRequestStatus.PENDING);
     });
 
     // assertions and verify
     assertEquals("Cannot choose PENDING as a share action response", exception.getMessage());
-    verify(permissionValidator).validateShareRequestAction(permission, owner.getId(),
+    verify(permissionValidator).validateShareRequestAction(permission, ownerId,
         ShareRequestStatus.PENDING);
     verify(sharedPermissionRepository, never()).save(any());
+    verify(permissionCache, never()).invalidate(any(), any());
   }
 
   @Test
   void revokeSharingPermission_Success() {
     permission.setStatus(ShareRequestStatus.ACCEPT);
-    when(serviceUtils.findEntityById(eq(permission.getId()), eq("shareRequest"),
+    when(serviceUtils.findEntityById(eq(permissionId), eq("shareRequest"),
         eq(sharedPermissionRepository))).thenReturn(permission);
 
     doNothing().when(permissionValidator)
-        .validateRevokeSharePermission(permission, owner.getId());
+        .validateRevokeSharePermission(permission, ownerId);
 
-    sharedPermissionService.revokeSharingPermission(owner.getId(), permission.getId());
+    sharedPermissionService.revokeSharingPermission(ownerId, permissionId);
 
-    verify(permissionValidator).validateRevokeSharePermission(permission, owner.getId());
+    verify(permissionValidator).validateRevokeSharePermission(permission, ownerId);
     verify(sharedPermissionRepository).delete(permission);
+    verify(permissionCache).invalidate(requesterId, ownerId);
   }
 
   @Test
   void revokeSharingPermission_Failure_InvalidOwner() {
-    when(serviceUtils.findEntityById(eq(permission.getId()), eq("shareRequest"),
+    when(serviceUtils.findEntityById(eq(permissionId), eq("shareRequest"),
         eq(sharedPermissionRepository))).thenReturn(permission);
 
     doThrow(new ResponseStatusException(HttpStatus.FORBIDDEN,
@@ -183,7 +194,7 @@ public class SharedPermissionServiceTests {
         .validateRevokeSharePermission(eq(permission), eq(nonExistentUserId));
 
     ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-      sharedPermissionService.revokeSharingPermission(nonExistentUserId, permission.getId());
+      sharedPermissionService.revokeSharingPermission(nonExistentUserId, permissionId);
     });
 
     assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
@@ -192,21 +203,21 @@ public class SharedPermissionServiceTests {
 
   @Test
   void revokeSharingPermission_Failure_InvalidRevokeRequest() {
-    when(serviceUtils.findEntityById(eq(permission.getId()), eq("shareRequest"),
+    when(serviceUtils.findEntityById(eq(permissionId), eq("shareRequest"),
         eq(sharedPermissionRepository))).thenReturn(permission);
 
     // throw exception when attempting to revoke PENDING share request
     doThrow(
         new IllegalArgumentException("Can only revoke already accepted shared permissions")).when(
-        permissionValidator).validateRevokeSharePermission(permission, owner.getId());
+        permissionValidator).validateRevokeSharePermission(permission, ownerId);
 
     IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-      sharedPermissionService.revokeSharingPermission(owner.getId(), permission.getId());
+      sharedPermissionService.revokeSharingPermission(ownerId, permissionId);
     });
 
     // assertions and verify
     assertEquals("Can only revoke already accepted shared permissions", exception.getMessage());
-    verify(permissionValidator).validateRevokeSharePermission(permission, owner.getId());
+    verify(permissionValidator).validateRevokeSharePermission(permission, ownerId);
     verify(sharedPermissionRepository, never()).delete(any());
   }
 }
\ No newline at end of file
@@ -6,21 +6,27 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.bytecoders.pharmaid.openapi.model.SharePermissionType;
 import com.bytecoders.pharmaid.openapi.model.ShareRequestStatus;
 import com.bytecoders.pharmaid.openapi.model.UserType;
 import com.bytecoders.pharmaid.repository.SharedPermissionRepository;
+import com.bytecoders.pharmaid.repository.SharedPermissionRepository.EffectivePermission;
 import com.bytecoders.pharmaid.repository.model.SharedPermission;
 import com.bytecoders.pharmaid.repository.model.User;
+import com.bytecoders.pharmaid.util.ServiceUtils;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
@@ -35,8 +41,11 @@ public class SharedPermissionValidatorTests {
   @Mock
   private SharedPermissionRepository sharedPermissionRepository;
 
-  @Mock
-  private UserService userService;
+  @Spy
+  private ServiceUtils serviceUtils;
+
+  @Spy
+  private SharedPermissionCache permissionCache = new SharedPermissionCache(100, 60000);
 
   @InjectMocks
   private SharedPermissionValidator permissionValidator;
@@ -45,16 +54,18 @@ public class SharedPermissionValidatorTests {
   private User requester;
   private SharedPermission permission;
   private String nonExistentUserId;
+  private final String ownerId = "0b9e8c4a-5f0e-4a39-9d5e-7c6f2b1a3e44";
+  private final String requesterId = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
 
   @BeforeEach
   void setUp() {
     // owner user of the health records
     owner = new User();
-    owner.setId("owner123");
+    owner.setId(UUID.fromString(ownerId));
 
     // user making a request to act on another user's health records
     requester = new User();
-    requester.setId("requester456");
+    requester.setId(UUID.fromString(requesterId));
 
     permission = new SharedPermission();
     permission.setOwner(owner);
@@ -63,25 +74,23 @@ public class SharedPermissionValidatorTests {
     permission.setStatus(ShareRequestStatus.ACCEPT);
 
     // create a nonExistent user
-    nonExistentUserId = "nonExistentUser123";
+    nonExistentUserId = "5c0a2a43-1d8e-4a55-b3b4-8f1f0d7e9a21";
   }
 
   @Test
   void validateEditPermission_Success_SameUser() {
     assertDoesNotThrow(
-        () -> permissionValidator.validateEditPermission(owner.getId(), owner.getId()),
+        () -> permissionValidator.validateEditPermission(ownerId, ownerId),
         "No exception should be thrown when requester and owner are the same user");
   }
 
   @Test
   void validateEditPermission_Failure_RequesterNotFound() {
-    when(userService.getUser(nonExistentUserId)).thenThrow(
-        new ResponseStatusException(HttpStatus.NOT_FOUND,
-            String.format("Provided userId does not exist: %s", nonExistentUserId)));
+    stubResolution(nonExistentUserId, ownerId, false, true, null);
 
     // Verify the exception is thrown and contains the correct details
     ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-        () -> permissionValidator.validateEditPermission(nonExistentUserId, owner.getId()));
+        () -> permissionValidator.validateEditPermission(nonExistentUserId, ownerId));
 
     // Assert the exception details
     assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
@@ -92,15 +101,11 @@ public class SharedPermissionValidatorTests {
   @Test
   void validateEditPermission_Failure_OwnerNotFound() {
     // requester is found
-    when(userService.getUser(requester.getId())).thenReturn(requester);
-
-    when(userService.getUser(nonExistentUserId)).thenThrow(
-        new ResponseStatusException(HttpStatus.NOT_FOUND,
-            String.format("Provided userId does not exist: %s", nonExistentUserId)));
+    stubResolution(requesterId, nonExistentUserId, true, false, null);
 
     // Verify the exception is thrown and contains the correct details
     ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-        () -> permissionValidator.validateEditPermission(requester.getId(), nonExistentUserId));
+        () -> permissionValidator.validateEditPermission(requesterId, nonExistentUserId));
 
     // Assert the exception details
     assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
@@ -110,53 +115,54 @@ public class SharedPermissionValidatorTests {
 
   @Test
   void validateEditPermission_Success_HasEditPermission() {
-    permission.setSharePermissionType(SharePermissionType.EDIT);
-
-    when(userService.getUser(owner.getId())).thenReturn(owner);
-    when(userService.getUser(requester.getId())).thenReturn(requester);
-    when(sharedPermissionRepository.findByOwnerAndRequesterAndSharePermissionTypeAndStatus(owner,
-        requester, SharePermissionType.EDIT, ShareRequestStatus.ACCEPT)).thenReturn(
-        Optional.of(permission));
+    stubResolution(requesterId, ownerId, true, true, SharePermissionType.EDIT);
 
     assertDoesNotThrow(
-        () -> permissionValidator.validateEditPermission(requester.getId(), owner.getId()));
+        () -> permissionValidator.validateEditPermission(requesterId, ownerId));
   }
 
   @Test
   void validateEditPermission_Failure_NoEditPermission() {
-    when(userService.getUser(owner.getId())).thenReturn(owner);
-    when(userService.getUser(requester.getId())).thenReturn(requester);
-    when(sharedPermissionRepository.findByOwnerAndRequesterAndSharePermissionTypeAndStatus(owner,
-        requester, SharePermissionType.EDIT, ShareRequestStatus.ACCEPT)).thenReturn(
-        Optional.empty());
+    stubResolution(requesterId, ownerId, true, true, null);
 
     ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-      permissionValidator.validateEditPermission(requester.getId(), owner.getId());
+      permissionValidator.validateEditPermission(requesterId, ownerId);
     });
 
     assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
     assertEquals(
-        String.format("User %s is not authorized to edit records of user: %s", requester.getId(),
-            owner.getId()), exception.getReason());
+        String.format("User %s is not authorized to edit records of user: %s", requesterId,
+            ownerId), exception.getReason());
+  }
+
+  @Test
+  void validateEditPermission_Failure_ViewOnlyPermission() {
+    stubResolution(requesterId, ownerId, true, true, SharePermissionType.VIEW);
+
+    // a cached VIEW decision still allows viewing but never editing
+    assertDoesNotThrow(
+        () -> permissionValidator.validateViewPermission(requesterId, ownerId));
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+        () -> permissionValidator.validateEditPermission(requesterId, ownerId));
+
+    assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
   }
 
   @Test
   void validateViewPermission_Success_SameUser() {
     assertDoesNotThrow(
-        () -> permissionValidator.validateViewPermission(owner.getId(), owner.getId()),
+        () -> permissionValidator.validateViewPermission(ownerId, ownerId),
         "No exception should be thrown when requester and owner are the same user");
   }
 
   @Test
   void validateViewPermission_Failure_RequesterNotFound() {
     // Requester does not exist
-    when(userService.getUser(nonExistentUserId)).thenThrow(
-        new ResponseStatusException(HttpStatus.NOT_FOUND,
-            String.format("Provided userId does not exist: %s", nonExistentUserId)));
+    stubResolution(nonExistentUserId, ownerId, false, true, null);
 
     // Verify the exception is thrown and contains the correct details
     ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-        () -> permissionValidator.validateViewPermission(nonExistentUserId, owner.getId()));
+        () -> permissionValidator.validateViewPermission(nonExistentUserId, ownerId));
 
     // Assert the exception details
     assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
@@ -166,17 +172,12 @@ public class SharedPermissionValidatorTests {
 
   @Test
   void validateViewPermission_Failure_OwnerNotFound() {
-    // Requester is found
-    when(userService.getUser(requester.getId())).thenReturn(requester);
-
-    // Owner does not exist
-    when(userService.getUser(nonExistentUserId)).thenThrow(
-        new ResponseStatusException(HttpStatus.NOT_FOUND,
-            String.format("Provided userId does not exist: %s", nonExistentUserId)));
+    // Requester is found, owner does not exist
+    stubResolution(requesterId, nonExistentUserId, true, false, null);
 
     // Verify the exception is thrown and contains the correct details
     ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-        () -> permissionValidator.validateViewPermission(requester.getId(), nonExistentUserId));
+        () -> permissionValidator.validateViewPermission(requesterId, nonExistentUserId));
 
     // Assert the exception details
     assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
@@ -187,69 +188,128 @@ public class SharedPermissionValidatorTests {
   @Test
   void validateViewPermission_Success_HasViewPermission() {
     // ensure requester has VIEW permission
-    permission.setSharePermissionType(SharePermissionType.VIEW);
-
-    when(userService.getUser(owner.getId())).thenReturn(owner);
-    when(userService.getUser(requester.getId())).thenReturn(requester);
-    when(
-        sharedPermissionRepository.findFirstByOwnerAndRequesterAndSharePermissionTypeInAndStatusIn(
-            eq(owner), eq(requester),
-            eq(List.of(SharePermissionType.EDIT, SharePermissionType.VIEW)),
-            eq(List.of(ShareRequestStatus.ACCEPT)))).thenReturn(Optional.of(permission));
+    stubResolution(requesterId, ownerId, true, true, SharePermissionType.VIEW);
 
     assertDoesNotThrow(
-        () -> permissionValidator.validateViewPermission(requester.getId(), owner.getId()),
-        "No exception should be thrown when requester and owner are the same user");
+        () -> permissionValidator.validateViewPermission(requesterId, ownerId),
+        "No exception should be thrown when requester has VIEW permission");
   }
 
   @Test
   void validateViewPermission_Success_HasEditPermission() {
     // user has EDIT permission and should be able to pass validateViewPermission
-    permission.setSharePermissionType(SharePermissionType.EDIT);
-
-    when(userService.getUser(owner.getId())).thenReturn(owner);
-    when(userService.getUser(requester.getId())).thenReturn(requester);
-    when(
-        sharedPermissionRepository.findFirstByOwnerAndRequesterAndSharePermissionTypeInAndStatusIn(
-            eq(owner), eq(requester),
-            eq(List.of(SharePermissionType.EDIT, SharePermissionType.VIEW)),
-            eq(List.of(ShareRequestStatus.ACCEPT)))).thenReturn(Optional.of(permission));
+    stubResolution(requesterId, ownerId, true, true, SharePermissionType.EDIT);
 
     assertDoesNotThrow(
-        () -> permissionValidator.validateViewPermission(requester.getId(), owner.getId()),
-        "No exception should be thrown when requester and owner are the same user");
+        () -> permissionValidator.validateViewPermission(requesterId, ownerId),
+        "No exception should be thrown when requester has EDIT permission");
   }
 
   @Test
   void validateViewPermission_Failure_NoViewPermission() {
-    when(userService.getUser(owner.getId())).thenReturn(owner);
-    when(userService.getUser(requester.getId())).thenReturn(requester);
-    when(
-        sharedPermissionRepository.findFirstByOwnerAndRequesterAndSharePermissionTypeInAndStatusIn(
-            eq(owner), eq(requester),
-            eq(List.of(SharePermissionType.EDIT, SharePermissionType.VIEW)),
-            eq(List.of(ShareRequestStatus.ACCEPT)))).thenReturn(Optional.empty());
+    stubResolution(requesterId, ownerId, true, true, null);
 
     ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-      permissionValidator.validateViewPermission(requester.getId(), owner.getId());
+      permissionValidator.validateViewPermission(requesterId, ownerId);
     });
 
     assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
     assertEquals(
-        String.format("User %s is not authorized to view records of user: %s", requester.getId(),
-            owner.getId()), exception.getReason());
+        String.format("User %s is not authorized to view records of user: %s", requesterId,
+            ownerId), exception.getReason());
+  }
+
+  @Test
+  void validateViewPermission_Success_ServedFromCache() {
+    stubResolution(requesterId, ownerId, true, true, SharePermissionType.VIEW);
+
+    permissionValidator.validateViewPermission(requesterId, ownerId);
+    permissionValidator.validateViewPermission(requesterId, ownerId);
+
+    // second validation is a cache hit and does not touch the database
+    verify(sharedPermissionRepository, times(1))
+        .resolveEffectivePermission(UUID.fromString(ownerId), UUID.fromString(requesterId));
+    assertEquals(1, permissionCache.stats().hitCount());
+    assertEquals(1, permissionCache.stats().missCount());
+  }
+
+  @Test
+  void validateViewPermission_Success_ReloadedAfterInvalidation() {
+    when(sharedPermissionRepository.resolveEffectivePermission(UUID.fromString(ownerId),
+        UUID.fromString(requesterId)))
+        .thenReturn(resolution(true, true, null),
+            resolution(true, true, SharePermissionType.VIEW));
+
+    assertThrows(ResponseStatusException.class,
+        () -> permissionValidator.validateViewPermission(requesterId, ownerId));
+
+    // permission accepted in the meantime
+    permissionCache.invalidate(requesterId, ownerId);
+
+    assertDoesNotThrow(
+        () -> permissionValidator.validateViewPermission(requesterId, ownerId));
+  }
+
+  @Test
+  void validateViewPermission_Failure_MissingUserNotCached() {
+    stubResolution(nonExistentUserId, ownerId, false, true, null);
+
+    assertThrows(ResponseStatusException.class,
+        () -> permissionValidator.validateViewPermission(nonExistentUserId, ownerId));
+    assertThrows(ResponseStatusException.class,
+        () -> permissionValidator.validateViewPermission(nonExistentUserId, ownerId));
+
+    verify(sharedPermissionRepository, times(2)).resolveEffectivePermission(
+        UUID.fromString(ownerId), UUID.fromString(nonExistentUserId));
+    assertEquals(0, permissionCache.size());
+  }
+
+  @Test
+  void validateViewPermission_Failure_MalformedIdNotFound() {
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+        () -> permissionValidator.validateViewPermission("not-a-uuid", ownerId));
+
+    assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    verify(sharedPermissionRepository, times(0)).resolveEffectivePermission(any(), any());
+  }
+
+  private void stubResolution(String requesterId, String ownerId, boolean requesterExists,
+      boolean ownerExists, SharePermissionType permissionType) {
+    when(sharedPermissionRepository.resolveEffectivePermission(UUID.fromString(ownerId),
+        UUID.fromString(requesterId)))
+        .thenReturn(resolution(requesterExists, ownerExists, permissionType));
+  }
+
+  private static EffectivePermission resolution(boolean requesterExists, boolean ownerExists,
+      SharePermissionType permissionType) {
+    return new EffectivePermission() {
+      @Override
+      public boolean getRequesterExists() {
+        return requesterExists;
+      }
+
+      @Override
+      public boolean getOwnerExists() {
+        return ownerExists;
+      }
+
+      @Override
+      public SharePermissionType getPermissionType() {
+        return permissionType;
+      }
+    };
   }
 
   @Test
   void validateLoggedInUser_Success() {
     // test void method to ensure no exceptions are thrown
-    permissionValidator.validateLoggedInUser(owner.getId(), owner.getId());
+    permissionValidator.validateLoggedInUser(ownerId, ownerId);
   }
 
   @Test
   void validateLoggedInUser_Failure() {
     ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-        () -> permissionValidator.validateLoggedInUser("wrongId123", owner.getId()));
+        () -> permissionValidator.validateLoggedInUser("wrongId123", ownerId));
 
     assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
     assertEquals("Cannot act on a shared permission action on behalf of another user",
@@ -316,16 +376,16 @@ public class SharedPermissionValidatorTests {
   @Test
   void validateDistinctOwnerAndRequester_Success_DifferentUsers() {
     // No exception thrown for distinct users
-    assertDoesNotThrow(() -> permissionValidator.validateDistinctOwnerAndRequester(owner.getId(),
-        requester.getId()));
+    assertDoesNotThrow(() -> permissionValidator.validateDistinctOwnerAndRequester(ownerId,
+        requesterId));
   }
 
   @Test
   void validateDistinctOwnerAndRequester_Failure_SameUser() {
     // Exception thrown for same user
     IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
-        () -> permissionValidator.validateDistinctOwnerAndRequester(owner.getId(),
-            owner.getId()));
+        () -> permissionValidator.validateDistinctOwnerAndRequester(ownerId,
+            ownerId));
     assertEquals("Cannot create shared permission with self", exception.getMessage());
   }
 
@@ -418,13 +478,13 @@ public class SharedPermissionValidatorTests {
   @Test
   void validateProperOwner_Success() {
     assertDoesNotThrow(
-        () -> permissionValidator.validateProperOwner(owner.getId(), owner.getId()));
+        () -> permissionValidator.validateProperOwner(ownerId, ownerId));
   }
 
   @Test
   void validateProperOwner_Failure_NotAuthorized() {
     ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-        () -> permissionValidator.validateProperOwner(owner.getId(), requester.getId()));
+        () -> permissionValidator.validateProperOwner(ownerId, requesterId));
 
     assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
     assertEquals("Not authorized to act on this request", exception.getReason());
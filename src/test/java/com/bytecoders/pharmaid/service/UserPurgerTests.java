@@ -0,0 +1,163 @@
+package com.bytecoders.pharmaid.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bytecoders.pharmaid.repository.PrescriptionRepository;
+import com.bytecoders.pharmaid.repository.SharedPermissionRepository;
+import com.bytecoders.pharmaid.repository.UserPurgeRepository;
+import com.bytecoders.pharmaid.repository.UserRepository;
+import com.bytecoders.pharmaid.repository.model.UserPurge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Tests for {@link UserPurger}.
+ */
+@ExtendWith(MockitoExtension.class)
+public class UserPurgerTests {
+
+  private static final UUID USER_ID =
+      UUID.fromString("9101d183-26e6-45b7-a8c4-25f24fdb36fa");
+
+  private static final UUID OTHER_USER_ID =
+      UUID.fromString("0b9e8c4a-5f0e-4a39-9d5e-7c6f2b1a3e44");
+
+  private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+
+  private static final Duration BACKOFF = Duration.ofMinutes(1);
+
+  private static final Duration LEASE = Duration.ofMinutes(10);
+
+  private static final List<UserPurge.Status> CLAIMABLE =
+      List.of(UserPurge.Status.PENDING, UserPurge.Status.RUNNING);
+
+  @Mock
+  private UserRepository userRepository;
+
+  @Mock
+  private PrescriptionRepository prescriptionRepository;
+
+  @Mock
+  private SharedPermissionRepository sharedPermissionRepository;
+
+  @Mock
+  private UserPurgeRepository userPurgeRepository;
+
+  @InjectMocks
+  private UserPurger userPurger = new UserPurger(2, 3, BACKOFF, LEASE,
+      TransactionOperations.withoutTransaction(), Clock.fixed(NOW, ZoneOffset.UTC));
+
+  private static UserPurge purge(int attempts) {
+    final UserPurge purge = UserPurge.pending(USER_ID, Date.from(NOW));
+    purge.setAttempts(attempts);
+    return purge;
+  }
+
+  @Test
+  void purge_Success_DeletesInChunksUntilShort() {
+    userPurger.enqueue(USER_ID, Date.from(NOW));
+    when(prescriptionRepository.deleteChunkByUserId(USER_ID, 2)).thenReturn(2, 2, 1);
+    when(sharedPermissionRepository.deleteChunkInvolvingUser(USER_ID, 2)).thenReturn(0);
+
+    userPurger.purge(purge(0));
+
+    verify(prescriptionRepository, times(3)).deleteChunkByUserId(USER_ID, 2);
+    final Date leaseUntil = Date.from(NOW.plus(LEASE));
+    verify(userPurgeRepository, times(2)).addProgress(USER_ID, 2, 0, leaseUntil);
+    verify(userPurgeRepository).addProgress(USER_ID, 1, 0, leaseUntil);
+    verify(userPurgeRepository).addProgress(USER_ID, 0, 0, leaseUntil);
+    verify(userRepository).deleteUserById(USER_ID);
+    verify(userPurgeRepository).markCompleted(USER_ID, UserPurge.Status.COMPLETED,
+        Date.from(NOW));
+    assertFalse(userPurger.isPending(USER_ID.toString()));
+  }
+
+  @Test
+  void purge_Fail_RetriesWithBackoff() {
+    when(prescriptionRepository.deleteChunkByUserId(USER_ID, 2)).thenReturn(2, 0);
+    when(sharedPermissionRepository.deleteChunkInvolvingUser(USER_ID, 2))
+        .thenThrow(new QueryTimeoutException("lock timeout"));
+
+    userPurger.purge(purge(1));
+
+    // second failure waits twice the base backoff
+    verify(userPurgeRepository).recordFailure(USER_ID, 2, UserPurge.Status.PENDING,
+        Date.from(NOW.plus(BACKOFF.multipliedBy(2))), "lock timeout");
+    verify(userRepository, never()).deleteUserById(any(UUID.class));
+  }
+
+  @Test
+  void purge_Fail_GivesUpAfterMaxAttempts() {
+    when(prescriptionRepository.deleteChunkByUserId(USER_ID, 2))
+        .thenThrow(new QueryTimeoutException("lock timeout"));
+
+    userPurger.purge(purge(2));
+
+    verify(userPurgeRepository).recordFailure(eq(USER_ID), eq(3), eq(UserPurge.Status.FAILED),
+        any(Date.class), eq("lock timeout"));
+  }
+
+  @Test
+  void purgePending_Success_RefreshesPendingUsersAndBacklog() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    userPurger.bindTo(registry);
+    userPurger.enqueue(USER_ID, Date.from(NOW));
+    assertTrue(userPurger.isPending(USER_ID.toString()));
+    assertEquals(1, registry.get(UserPurger.METRIC_PREFIX + ".backlog").gauge().value());
+
+    // flagged on another instance, while this user's deletion was rolled back meanwhile
+    when(userRepository.findIdsPendingDeletion()).thenReturn(List.of(OTHER_USER_ID));
+    when(userPurgeRepository.findByStatusInAndNextAttemptAtLessThanEqualOrderByRequestedAt(
+        eq(CLAIMABLE), eq(Date.from(NOW)), any(Limit.class)))
+        .thenReturn(List.of());
+    when(userPurgeRepository.countByStatusIn(CLAIMABLE)).thenReturn(4L);
+
+    userPurger.purgePending();
+
+    assertFalse(userPurger.isPending(USER_ID.toString()));
+    assertTrue(userPurger.isPending(OTHER_USER_ID.toString()));
+    assertEquals(4, registry.get(UserPurger.METRIC_PREFIX + ".backlog").gauge().value());
+  }
+
+  @Test
+  void purgePending_Success_PurgesOnlyClaimedUsers() {
+    final UserPurge other = UserPurge.pending(OTHER_USER_ID, Date.from(NOW));
+    when(userPurgeRepository.findByStatusInAndNextAttemptAtLessThanEqualOrderByRequestedAt(
+        eq(CLAIMABLE), eq(Date.from(NOW)), any(Limit.class)))
+        .thenReturn(List.of(purge(0), other));
+    // the first was claimed by another instance in between
+    when(userPurgeRepository.claim(USER_ID, Date.from(NOW), Date.from(NOW.plus(LEASE))))
+        .thenReturn(0);
+    when(userPurgeRepository.claim(OTHER_USER_ID, Date.from(NOW), Date.from(NOW.plus(LEASE))))
+        .thenReturn(1);
+
+    userPurger.purgePending();
+
+    verify(prescriptionRepository, never()).deleteChunkByUserId(USER_ID, 2);
+    verify(userRepository, never()).deleteUserById(USER_ID);
+    verify(prescriptionRepository).deleteChunkByUserId(OTHER_USER_ID, 2);
+    verify(userRepository).deleteUserById(OTHER_USER_ID);
+  }
+}
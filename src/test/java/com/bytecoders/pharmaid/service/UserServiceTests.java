@@ -1,8 +1,14 @@
 package com.bytecoders.pharmaid.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.bytecoders.pharmaid.openapi.model.LoginUserRequest;
@@ -11,15 +17,23 @@ import com.bytecoders.pharmaid.openapi.model.RegisterUserRequest;
 import com.bytecoders.pharmaid.openapi.model.UserType;
 import com.bytecoders.pharmaid.repository.UserRepository;
 import com.bytecoders.pharmaid.repository.model.User;
+import com.bytecoders.pharmaid.security.VerifiedTokenCache;
 import com.bytecoders.pharmaid.util.JwtUtils;
 import com.bytecoders.pharmaid.util.PasswordUtils;
+import com.bytecoders.pharmaid.util.ServiceUtils;
+import java.util.Date;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * Tests for {@link UserService}.
@@ -36,9 +50,29 @@ public class UserServiceTests {
   @Mock
   private PasswordUtils passwordUtils;
 
+  @Mock
+  private ServiceUtils serviceUtils;
+
+  @Mock
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @Mock
+  private UserPurger userPurger;
+
+  @Mock
+  private SharedPermissionCache permissionCache;
+
+  @Mock
+  private SharedPermissionValidator permissionValidator;
+
+  @Mock
+  private Executor taskExecutor;
+
   @InjectMocks
   private UserService userService = new UserService();
 
+  private static final String USER_ID = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
+
   @Test
   public void testRegisterUser() {
     final RegisterUserRequest request = new RegisterUserRequest();
@@ -47,14 +81,14 @@ public class UserServiceTests {
     request.setUserType(UserType.PATIENT);
 
     final User expectedUser = new User();
-    expectedUser.setId("autogeneratedId");
+    expectedUser.setId(UUID.fromString(USER_ID));
     expectedUser.setEmail("email@test.com");
     expectedUser.setHashedPassword("hashedPassword");
     expectedUser.setUserType(UserType.PATIENT);
 
     doAnswer((Answer<User>) invocation -> {
       User user = invocation.getArgument(0);
-      user.setId("autogeneratedId");
+      user.setId(UUID.fromString(USER_ID));
       return user;
     }).when(userRepository).save(any(User.class));
     when(passwordUtils.hashPassword("password")).thenReturn("hashedPassword");
@@ -63,6 +97,67 @@ public class UserServiceTests {
     assertEquals(actualUser, expectedUser);
   }
 
+  private User user(String userId) {
+    final User user = new User();
+    user.setId(UUID.fromString(userId));
+    user.setEmail("email@test.com");
+    user.setHashedPassword("hashedPassword");
+    return user;
+  }
+
+  @Test
+  public void testDeleteUserSchedulesPurge() {
+    when(serviceUtils.findEntityById(USER_ID, "user", userRepository))
+        .thenReturn(user(USER_ID));
+    when(jwtUtils.getLoggedInUserId()).thenReturn(USER_ID);
+    when(userRepository.markPendingDeletion(eq(UUID.fromString(USER_ID)), any(Date.class)))
+        .thenReturn(1);
+
+    userService.deleteUser(USER_ID);
+
+    verify(permissionValidator).validateViewPermission(USER_ID, USER_ID);
+    verify(userPurger).enqueue(eq(UUID.fromString(USER_ID)), any(Date.class));
+    verify(userRepository, never()).deleteUserById(any(UUID.class));
+    verify(verifiedTokenCache).invalidateUser(USER_ID);
+    verify(permissionCache).invalidateUser(USER_ID);
+  }
+
+  @Test
+  public void testDeleteUserNotFound() {
+    when(serviceUtils.findEntityById("missing", "user", userRepository))
+        .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+    assertThrows(ResponseStatusException.class, () -> userService.deleteUser("missing"));
+    verify(userRepository, never()).markPendingDeletion(any(UUID.class), any(Date.class));
+    verify(userPurger, never()).enqueue(any(UUID.class), any(Date.class));
+  }
+
+  @Test
+  public void testGetUserPendingDeletionNotFound() {
+    final User pending = user(USER_ID);
+    pending.setDeletionRequestedAt(new Date());
+    when(serviceUtils.findEntityById(USER_ID, "user", userRepository))
+        .thenReturn(pending);
+    when(serviceUtils.entityNotFound("user", USER_ID))
+        .thenReturn(new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+    assertThrows(ResponseStatusException.class, () -> userService.getUser(USER_ID));
+  }
+
+  @Test
+  public void testLoginPendingDeletion() {
+    final LoginUserRequest request = new LoginUserRequest();
+    request.setEmail("email@test.com");
+    request.setPassword("password");
+    final User pending = user(USER_ID);
+    pending.setDeletionRequestedAt(new Date());
+
+    when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.of(pending));
+
+    assertEquals(Optional.empty(), userService.loginUser(request));
+    verify(passwordUtils, never()).verifyPassword(anyString(), anyString());
+  }
+
   @Test
   public void testLoginSuccess() {
     final LoginUserRequest request = new LoginUserRequest();
@@ -70,23 +165,68 @@ public class UserServiceTests {
     request.setPassword("password");
 
     final User mockUser = new User();
-    mockUser.setId("autogeneratedId");
+    mockUser.setId(UUID.fromString(USER_ID));
     mockUser.setEmail("email@test.com");
     mockUser.setHashedPassword("hashedPassword");
 
     LoginUserResponse mockLoginResponse = new LoginUserResponse();
-    mockLoginResponse.setUserId(mockUser.getId());
+    mockLoginResponse.setUserId(USER_ID);
     mockLoginResponse.setEmail(mockUser.getEmail());
     mockLoginResponse.setToken("mockJwtToken");
 
     when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.of(mockUser));
     when(passwordUtils.verifyPassword("password", "hashedPassword")).thenReturn(true);
-    when(jwtUtils.generateToken(mockUser.getId())).thenReturn("mockJwtToken");
+    when(jwtUtils.generateToken(USER_ID)).thenReturn("mockJwtToken");
 
     final Optional<LoginUserResponse> loginResponseOptional = userService.loginUser(request);
     assertEquals(loginResponseOptional, Optional.of(mockLoginResponse));
   }
 
+  @Test
+  public void testLoginRehashesOutdatedHash() {
+    final LoginUserRequest request = new LoginUserRequest();
+    request.setEmail("email@test.com");
+    request.setPassword("password");
+
+    final User mockUser = new User();
+    mockUser.setId(UUID.fromString(USER_ID));
+    mockUser.setEmail("email@test.com");
+    mockUser.setHashedPassword("outdatedHash");
+
+    when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.of(mockUser));
+    when(passwordUtils.verifyPassword("password", "outdatedHash")).thenReturn(true);
+    when(passwordUtils.needsRehash("outdatedHash")).thenReturn(true);
+    when(passwordUtils.rehashInBackground("password"))
+        .thenReturn(CompletableFuture.completedFuture("currentHash"));
+    doAnswer(invocation -> {
+      invocation.<Runnable>getArgument(0).run();
+      return null;
+    }).when(taskExecutor).execute(any());
+
+    assertTrue(userService.loginUser(request).isPresent());
+    verify(userRepository)
+        .replaceHashedPassword(UUID.fromString(USER_ID), "outdatedHash", "currentHash");
+  }
+
+  @Test
+  public void testLoginKeepsCurrentHash() {
+    final LoginUserRequest request = new LoginUserRequest();
+    request.setEmail("email@test.com");
+    request.setPassword("password");
+
+    final User mockUser = new User();
+    mockUser.setId(UUID.fromString(USER_ID));
+    mockUser.setEmail("email@test.com");
+    mockUser.setHashedPassword("currentHash");
+
+    when(userRepository.findByEmail(request.getEmail())).thenReturn(Optional.of(mockUser));
+    when(passwordUtils.verifyPassword("password", "currentHash")).thenReturn(true);
+    when(passwordUtils.needsRehash("currentHash")).thenReturn(false);
+
+    assertTrue(userService.loginUser(request).isPresent());
+    verify(passwordUtils, never()).rehashInBackground(anyString());
+  }
+
   @Test
   public void testLoginNoSuchUser() {
     final LoginUserRequest request = new LoginUserRequest();
@@ -106,7 +246,7 @@ public class UserServiceTests {
     request.setPassword("password");
 
     final User mockUser = new User();
-    mockUser.setId("autogeneratedId");
+    mockUser.setId(UUID.fromString(USER_ID));
     mockUser.setEmail("email@test.com");
     mockUser.setHashedPassword("hashedPassword");
 
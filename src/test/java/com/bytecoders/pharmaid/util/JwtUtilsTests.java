@@ -2,7 +2,6 @@ package com.bytecoders.pharmaid.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -13,7 +12,8 @@ import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
-import java.lang.reflect.Field;
+import io.jsonwebtoken.security.SignatureException;
+import java.time.Instant;
 import java.util.Base64;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,23 +27,18 @@ import org.springframework.security.core.context.SecurityContextHolder;
 public class JwtUtilsTests {
 
   private JwtUtils jwtUtils;
+  private String secretKey;
   private static final String MOCK_USER_ID = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
 
   @BeforeEach
-  void setup() throws Exception {
-    jwtUtils = new JwtUtils();
+  void setup() {
+    secretKey = newSecretKey();
+    jwtUtils = new JwtUtils(secretKey, 60000L); // 1 min expiration
+  }
 
-    // set secretKey (private)
-    String secretKey = Base64.getEncoder()
+  private static String newSecretKey() {
+    return Base64.getEncoder()
         .encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
-    Field secretKeyField = JwtUtils.class.getDeclaredField("secretKey");
-    secretKeyField.setAccessible(true);
-    secretKeyField.set(jwtUtils, secretKey);
-
-    // set jwtExpiration (private)
-    Field jwtExpirationField = JwtUtils.class.getDeclaredField("jwtExpiration");
-    jwtExpirationField.setAccessible(true);
-    jwtExpirationField.set(jwtUtils, 60000L); // 1 min expiration
   }
 
   @Test
@@ -88,10 +83,8 @@ public class JwtUtilsTests {
   }
 
   @Test
-  void isTokenValid_Fail_ExpiredToken() throws Exception {
-    Field jwtExpirationField = JwtUtils.class.getDeclaredField("jwtExpiration");
-    jwtExpirationField.setAccessible(true);
-    jwtExpirationField.set(jwtUtils, -1000L); // set negative expiration time
+  void isTokenValid_Fail_ExpiredToken() {
+    jwtUtils = new JwtUtils(secretKey, -1000L); // set negative expiration time
     String token = jwtUtils.generateToken(MOCK_USER_ID);
     assertThrows(ExpiredJwtException.class, () -> jwtUtils.isTokenValid(token, MOCK_USER_ID),
         "Token should be invalid due to expiration.");
@@ -117,6 +110,29 @@ public class JwtUtilsTests {
         "Token should be invalid as it is null.");
   }
 
+  @Test
+  void verifyToken_Success() {
+    Instant before = Instant.now().plusSeconds(59);
+    JwtPrincipal principal = jwtUtils.verifyToken(jwtUtils.generateToken(MOCK_USER_ID));
+
+    assertEquals(MOCK_USER_ID, principal.userId());
+    assertTrue(principal.expiresAt().isAfter(before), "Expiry should reflect the 1 min lifetime.");
+    assertFalse(principal.isExpired(Instant.now()));
+  }
+
+  @Test
+  void verifyToken_Fail_SignedWithDifferentKey() {
+    String token = new JwtUtils(newSecretKey(), 60000L).generateToken(MOCK_USER_ID);
+    assertThrows(SignatureException.class, () -> jwtUtils.verifyToken(token),
+        "Tokens signed with another key must be rejected.");
+  }
+
+  @Test
+  void verifyToken_Fail_ExpiredToken() {
+    String token = new JwtUtils(secretKey, -1000L).generateToken(MOCK_USER_ID);
+    assertThrows(ExpiredJwtException.class, () -> jwtUtils.verifyToken(token));
+  }
+
   @Test
   void getLoggedInUserId_Success() {
     Authentication authentication = mock(Authentication.class);
@@ -136,14 +152,4 @@ public class JwtUtilsTests {
     String actualUserId = jwtUtils.getLoggedInUserId();
     assertNull(actualUserId, "Logged-in userId should be null if there is no authentication.");
   }
-
-  @Test
-  void getPublicEndpoints_Success_NonEmpty() {
-    // call getPublicEndpoints()
-    String[] publicEndpoints = jwtUtils.getPublicEndpoints();
-
-    // verify returned array is not null and > 0
-    assertNotEquals(null, publicEndpoints, "Public endpoints should not be null.");
-    assertTrue(publicEndpoints.length > 0, "Public endpoints should not be empty.");
-  }
 }
@@ -0,0 +1,173 @@
+package com.bytecoders.pharmaid.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for {@link PasswordHashingExecutor}.
+ */
+public class PasswordHashingExecutorTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final ObservationRegistry observations = ObservationRegistry.create();
+  private final CountDownLatch release = new CountDownLatch(1);
+  private PasswordHashingExecutor executor;
+
+  @BeforeEach
+  void setUp() {
+    observations.observationConfig()
+        .observationHandler(new DefaultMeterObservationHandler(registry));
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    executor.shutdown();
+  }
+
+  private boolean blockUntilReleased() {
+    try {
+      return release.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @Test
+  void execute_Success_RecordsLatency() {
+    executor = new PasswordHashingExecutor(1, 1, 1, 5000, registry, observations);
+    PasswordUtils passwordUtils = new PasswordUtils(4, executor);
+
+    String hashed = passwordUtils.hashPassword("password");
+    assertTrue(passwordUtils.verifyPassword("password", hashed));
+
+    Timer hashTimer = registry.get(PasswordHashingExecutor.TIMER_NAME)
+        .tag("operation", "hash").timer();
+    assertEquals(1, hashTimer.count());
+    assertEquals(1, registry.get(PasswordHashingExecutor.TIMER_NAME)
+        .tag("operation", "verify").timer().count());
+  }
+
+  @Test
+  void execute_Success_HashingObservedAsChildOfCaller() {
+    final List<Observation.Context> started = new CopyOnWriteArrayList<>();
+    observations.observationConfig().observationHandler(new ObservationHandler<>() {
+      @Override
+      public void onStart(Observation.Context context) {
+        started.add(context);
+      }
+
+      @Override
+      public boolean supportsContext(Observation.Context context) {
+        return true;
+      }
+    });
+    executor = new PasswordHashingExecutor(1, 1, 1, 5000, registry, observations);
+
+    executor.execute("verify", () -> true);
+
+    assertEquals(2, started.size());
+    assertEquals(PasswordHashingExecutor.OBSERVATION_NAME, started.get(0).getName());
+    assertEquals(PasswordHashingExecutor.TIMER_NAME, started.get(1).getName());
+    assertSame(started.get(0), started.get(1).getParentObservation().getContextView());
+  }
+
+  @Test
+  void execute_Fail_RejectsWhenQueueFull() throws Exception {
+    executor = new PasswordHashingExecutor(1, 1, 1, 5000, registry, observations);
+
+    // one task occupies the only thread, the next fills the queue
+    final CompletableFuture<Boolean> running =
+        CompletableFuture.supplyAsync(() -> executor.execute("hash", this::blockUntilReleased));
+    final CompletableFuture<Boolean> queued =
+        CompletableFuture.supplyAsync(() -> executor.execute("hash", this::blockUntilReleased));
+    while (executor.queuedTasks() < 1) {
+      Thread.onSpinWait();
+    }
+
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> executor.execute("hash", () -> true));
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+    assertEquals(1.0, registry.get(PasswordHashingExecutor.TIMER_NAME + ".rejected")
+        .counter().count());
+
+    release.countDown();
+    assertTrue(running.get(5, TimeUnit.SECONDS));
+    assertTrue(queued.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void submitInBackground_Success_RunsOnOwnLane() throws Exception {
+    executor = new PasswordHashingExecutor(1, 1, 1, 5000, registry, observations);
+
+    assertTrue(executor.submitInBackground("rehash", () -> Thread.currentThread().getName())
+        .get(5, TimeUnit.SECONDS).startsWith("password-rehash-"));
+    assertEquals(1, registry.get(PasswordHashingExecutor.TIMER_NAME)
+        .tag("operation", "rehash").timer().count());
+  }
+
+  @Test
+  void submitInBackground_Fail_DroppedWhenSaturated() {
+    executor = new PasswordHashingExecutor(1, 1, 1, 5000, registry, observations);
+    executor.submitInBackground("rehash", this::blockUntilReleased);
+    executor.submitInBackground("rehash", this::blockUntilReleased);
+
+    final ExecutionException e = assertThrows(ExecutionException.class,
+        () -> executor.submitInBackground("rehash", () -> true).get());
+    assertInstanceOf(RejectedExecutionException.class, e.getCause());
+  }
+
+  @Test
+  void execute_Success_NotQueuedBehindBackgroundWork() {
+    executor = new PasswordHashingExecutor(1, 1, 1, 5000, registry, observations);
+    executor.submitInBackground("rehash", this::blockUntilReleased);
+    executor.submitInBackground("rehash", this::blockUntilReleased);
+    while (executor.queuedBackgroundTasks() < 1) {
+      Thread.onSpinWait();
+    }
+
+    assertTrue(executor.execute("verify", () -> true));
+    assertEquals(0, executor.queuedTasks());
+  }
+
+  @Test
+  void execute_Fail_TimesOut() {
+    executor = new PasswordHashingExecutor(1, 1, 1, 50, registry, observations);
+
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> executor.execute("verify", this::blockUntilReleased));
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+  }
+
+  @Test
+  void execute_Fail_PropagatesTaskException() {
+    executor = new PasswordHashingExecutor(1, 1, 1, 5000, registry, observations);
+
+    assertThrows(IllegalArgumentException.class, () -> executor.execute("verify", () -> {
+      throw new IllegalArgumentException("Invalid salt version");
+    }));
+  }
+}
@@ -1,6 +1,8 @@
 package com.bytecoders.pharmaid.util;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
@@ -17,4 +19,82 @@ public class PasswordUtilsTests {
     assertNotEquals("someSecretPassword", hashedPassword);
     assertTrue(passwordUtils.verifyPassword("someSecretPassword", hashedPassword));
   }
+
+  @Test
+  public void testHashPasswordUsesConfiguredCost() {
+    final String hashedPassword = new PasswordUtils(4, null).hashPassword("someSecretPassword");
+    assertTrue(hashedPassword.startsWith("$2a$04$"));
+
+    // hashes of any cost remain verifiable
+    assertTrue(passwordUtils.verifyPassword("someSecretPassword", hashedPassword));
+    assertFalse(passwordUtils.verifyPassword("wrongPassword", hashedPassword));
+  }
+
+  @Test
+  public void testOtherBcryptRevisions() {
+    // generated by Spring Security's BCryptPasswordEncoder with versions $2B and $2Y
+    final String revision2b = "$2b$04$Lg5KMnW31lHEXLq7KysYZ./D4xpSXxphh81SdaFonb3oizUoar6hm";
+    final String revision2y = "$2y$04$IjPEfjejEoc6jJnNZJLPQ.edKJgHVPuoS4CH4S9NA.Nx8L2LyTJu6";
+
+    assertTrue(passwordUtils.verifyPassword("someSecretPassword", revision2b));
+    assertFalse(passwordUtils.verifyPassword("wrongPassword", revision2b));
+    assertTrue(passwordUtils.verifyPassword("someSecretPassword", revision2y));
+    assertTrue(passwordUtils.needsRehash(revision2b));
+  }
+
+  @Test
+  public void testPbkdf2Target() {
+    final PasswordUtils pbkdf2Utils = new PasswordUtils(new Pbkdf2PasswordHasher(1000), null);
+    final String hashedPassword = pbkdf2Utils.hashPassword("someSecretPassword");
+
+    assertTrue(hashedPassword.startsWith("$pbkdf2-sha256$1000$"));
+    assertTrue(pbkdf2Utils.verifyPassword("someSecretPassword", hashedPassword));
+    assertFalse(pbkdf2Utils.verifyPassword("wrongPassword", hashedPassword));
+    assertNotEquals(hashedPassword, pbkdf2Utils.hashPassword("someSecretPassword"));
+
+    // the BCrypt-targeted utils still verify PBKDF2 hashes, and vice versa
+    assertTrue(passwordUtils.verifyPassword("someSecretPassword", hashedPassword));
+    assertTrue(pbkdf2Utils.verifyPassword("someSecretPassword",
+        passwordUtils.hashPassword("someSecretPassword")));
+  }
+
+  @Test
+  public void testNeedsRehash() {
+    final String cost4 = new PasswordUtils(4, null).hashPassword("someSecretPassword");
+    final String cost10 = passwordUtils.hashPassword("someSecretPassword");
+    final String pbkdf2 =
+        new PasswordUtils(new Pbkdf2PasswordHasher(1000), null).hashPassword("someSecretPassword");
+
+    assertTrue(passwordUtils.needsRehash(cost4));
+    assertFalse(passwordUtils.needsRehash(cost10));
+    assertTrue(passwordUtils.needsRehash(pbkdf2));
+
+    final PasswordUtils pbkdf2Utils = new PasswordUtils(new Pbkdf2PasswordHasher(2000), null);
+    assertTrue(pbkdf2Utils.needsRehash(cost10));
+    assertTrue(pbkdf2Utils.needsRehash(pbkdf2));
+    assertFalse(pbkdf2Utils.needsRehash(pbkdf2Utils.hashPassword("someSecretPassword")));
+  }
+
+  @Test
+  public void testRehashInBackground() {
+    final String rehashed = passwordUtils.rehashInBackground("someSecretPassword").join();
+
+    assertFalse(passwordUtils.needsRehash(rehashed));
+    assertTrue(passwordUtils.verifyPassword("someSecretPassword", rehashed));
+  }
+
+  @Test
+  public void testUnsupportedHashFormat() {
+    assertThrows(IllegalArgumentException.class,
+        () -> passwordUtils.verifyPassword("someSecretPassword", "plaintext"));
+    assertThrows(IllegalArgumentException.class,
+        () -> passwordUtils.verifyPassword("someSecretPassword", "$pbkdf2-sha256$1000$salt"));
+  }
+
+  @Test
+  public void testInvalidCost() {
+    assertThrows(IllegalArgumentException.class, () -> new PasswordUtils(3, null));
+    assertThrows(IllegalArgumentException.class, () -> new PasswordUtils(32, null));
+    assertThrows(IllegalArgumentException.class, () -> new Pbkdf2PasswordHasher(0));
+  }
 }
@@ -1,7 +1,13 @@
 package com.bytecoders.pharmaid.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.bytecoders.pharmaid.repository.PrescriptionRepository;
@@ -9,12 +15,19 @@ import com.bytecoders.pharmaid.repository.UserRepository;
 import com.bytecoders.pharmaid.repository.model.Prescription;
 import com.bytecoders.pharmaid.repository.model.User;
 import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.server.ResponseStatusException;
 
 /** Tests for {@link ServiceUtils}. */
@@ -30,6 +43,7 @@ public class ServiceUtilsTests {
 
   private ServiceUtils serviceUtils;
   private static final String MOCK_UUID = "9101d183-26e6-45b7-a8c4-25f24fdb36fa";
+  private static final UUID MOCK_ID = UUID.fromString(MOCK_UUID);
   private Prescription prescription;
   private User user;
 
@@ -39,16 +53,28 @@ public class ServiceUtilsTests {
 
     // mock prescription
     prescription = new Prescription();
-    prescription.setId(MOCK_UUID);
+    prescription.setId(MOCK_ID);
 
     // mock user
     user = new User();
-    user.setId(MOCK_UUID);
+    user.setId(MOCK_ID);
+  }
+
+  @AfterEach
+  void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private MockHttpServletResponse startRequest() {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest(), response));
+    return response;
   }
 
   @Test
   void findEntityById_Prescription_EntityExists() {
-    when(prescriptionRepository.findById(MOCK_UUID)).thenReturn(Optional.of(prescription));
+    when(prescriptionRepository.findById(MOCK_ID)).thenReturn(Optional.of(prescription));
     Prescription result =
         serviceUtils.findEntityById(MOCK_UUID, "prescription", prescriptionRepository);
     assertEquals(prescription, result,
@@ -59,14 +85,14 @@ public class ServiceUtilsTests {
 
   @Test
   void findEntityById_User_EntityExists() {
-    when(userRepository.findById(MOCK_UUID)).thenReturn(Optional.of(user));
+    when(userRepository.findById(MOCK_ID)).thenReturn(Optional.of(user));
     User result = serviceUtils.findEntityById(MOCK_UUID, "user", userRepository);
     assertEquals(user, result, "findEntityById should return the user when it exists");
   }
 
   @Test
   void findEntityById_Prescription_EntityNotFound() {
-    when(prescriptionRepository.findById(MOCK_UUID)).thenReturn(Optional.empty());
+    when(prescriptionRepository.findById(MOCK_ID)).thenReturn(Optional.empty());
 
     ResponseStatusException exception = assertThrows(ResponseStatusException.class,
         () -> serviceUtils.findEntityById(MOCK_UUID, "prescription", prescriptionRepository));
@@ -79,7 +105,7 @@ public class ServiceUtilsTests {
 
   @Test
   void findEntityById_User_EntityNotFound() {
-    when(userRepository.findById(MOCK_UUID)).thenReturn(Optional.empty());
+    when(userRepository.findById(MOCK_ID)).thenReturn(Optional.empty());
 
     ResponseStatusException exception = assertThrows(ResponseStatusException.class,
         () -> serviceUtils.findEntityById(MOCK_UUID, "user", userRepository));
@@ -89,4 +115,69 @@ public class ServiceUtilsTests {
     assertEquals("Provided userId does not exist: " + MOCK_UUID, exception.getReason(),
         "Exception message should match expected message");
   }
-}
\ No newline at end of file
+
+  @Test
+  void findEntityById_MalformedId_NotFoundWithoutLookup() {
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+        () -> serviceUtils.findEntityById("not-a-uuid", "user", userRepository));
+
+    assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode(),
+        "An ID that is not a UUID cannot exist");
+    assertEquals("Provided userId does not exist: not-a-uuid", exception.getReason());
+    verify(userRepository, never()).findById(any());
+  }
+
+  @Test
+  void toUuid_AcceptsOnlyCanonicalForm() {
+    assertEquals(Optional.of(MOCK_ID), ServiceUtils.toUuid(MOCK_UUID));
+    assertEquals(Optional.empty(), ServiceUtils.toUuid("1-2-3-4-5"));
+    assertEquals(Optional.empty(), ServiceUtils.toUuid(null));
+  }
+
+  @Test
+  void findEntityById_WithinRequest_LoadsEachIdOnce() {
+    final MockHttpServletResponse response = startRequest();
+    ReflectionTestUtils.setField(serviceUtils, "savedLookupsHeader", true);
+    when(userRepository.findById(MOCK_ID)).thenReturn(Optional.of(user));
+    when(prescriptionRepository.findById(MOCK_ID)).thenReturn(Optional.of(prescription));
+
+    assertSame(user, serviceUtils.findEntityById(MOCK_UUID, "user", userRepository));
+    assertSame(user, serviceUtils.findEntityById(MOCK_UUID, "user", userRepository));
+    assertSame(user, serviceUtils.findEntityById(MOCK_UUID, "user", userRepository));
+    // same ID, other entity
+    assertSame(prescription,
+        serviceUtils.findEntityById(MOCK_UUID, "prescription", prescriptionRepository));
+
+    verify(userRepository, times(1)).findById(MOCK_ID);
+    verify(prescriptionRepository, times(1)).findById(MOCK_ID);
+    assertEquals("2", response.getHeader(ServiceUtils.SAVED_LOOKUPS_HEADER));
+  }
+
+  @Test
+  void findEntityById_WithinRequest_ReloadsForgottenAndMissing() {
+    final MockHttpServletResponse response = startRequest();
+    when(userRepository.findById(MOCK_ID))
+        .thenReturn(Optional.empty())
+        .thenReturn(Optional.of(user));
+
+    assertThrows(ResponseStatusException.class,
+        () -> serviceUtils.findEntityById(MOCK_UUID, "user", userRepository));
+    serviceUtils.findEntityById(MOCK_UUID, "user", userRepository);
+    serviceUtils.forgetEntity(MOCK_ID, "user");
+    serviceUtils.findEntityById(MOCK_UUID, "user", userRepository);
+
+    verify(userRepository, times(3)).findById(MOCK_ID);
+    assertNull(response.getHeader(ServiceUtils.SAVED_LOOKUPS_HEADER),
+        "The debug header is off by default");
+  }
+
+  @Test
+  void findEntityById_OutsideRequest_LoadsEveryTime() {
+    when(userRepository.findById(MOCK_ID)).thenReturn(Optional.of(user));
+
+    serviceUtils.findEntityById(MOCK_UUID, "user", userRepository);
+    serviceUtils.findEntityById(MOCK_UUID, "user", userRepository);
+
+    verify(userRepository, times(2)).findById(MOCK_ID);
+  }
+}
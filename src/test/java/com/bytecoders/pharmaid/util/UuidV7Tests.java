@@ -0,0 +1,69 @@
+package com.bytecoders.pharmaid.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link UuidV7}. */
+public class UuidV7Tests {
+
+  private static final long NOW = 1_700_000_000_000L;
+
+  private final AtomicLong clock = new AtomicLong(NOW);
+
+  private final UuidV7 generator = new UuidV7(clock::get, new Random(4156));
+
+  @Test
+  void generate_Success_EncodesVersionVariantAndTime() {
+    final UUID id = generator.generate();
+
+    assertEquals(7, id.version());
+    assertEquals(2, id.variant());
+    assertEquals(NOW, UuidV7.timestampMillis(id));
+  }
+
+  @Test
+  void generate_Success_IncreasesWithinOneMillisecond() {
+    UUID previous = generator.generate();
+    // more than the counter holds, forcing the timestamp forward
+    for (int i = 0; i < 10_000; i++) {
+      final UUID next = generator.generate();
+      assertTrue(previous.toString().compareTo(next.toString()) < 0);
+      previous = next;
+    }
+    assertTrue(UuidV7.timestampMillis(previous) > NOW);
+  }
+
+  @Test
+  void generate_Success_IncreasesWhenClockStepsBack() {
+    final UUID before = generator.generate();
+    clock.set(NOW - 1000);
+    final UUID after = generator.generate();
+
+    assertTrue(before.toString().compareTo(after.toString()) < 0);
+    assertEquals(NOW, UuidV7.timestampMillis(after));
+  }
+
+  @Test
+  void generate_Success_OrderedAcrossMilliseconds() {
+    final UUID earlier = generator.generate();
+    clock.incrementAndGet();
+    final UUID later = generator.generate();
+
+    assertTrue(earlier.toString().compareTo(later.toString()) < 0);
+    assertEquals(NOW + 1, UuidV7.timestampMillis(later));
+  }
+
+  @Test
+  void next_Success_UsesSystemClock() {
+    final long before = System.currentTimeMillis();
+    final UUID id = UuidV7.next();
+
+    assertEquals(7, id.version());
+    assertTrue(UuidV7.timestampMillis(id) >= before);
+  }
+}